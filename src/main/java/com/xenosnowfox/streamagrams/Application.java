@@ -0,0 +1,230 @@
+package com.xenosnowfox.streamagrams;
+
+import com.xenosnowfox.streamagrams.api.LeaderboardApi;
+import com.xenosnowfox.streamagrams.api.TwitchCallbackRoute;
+import com.xenosnowfox.streamagrams.dictionary.DictionaryCache;
+import com.xenosnowfox.streamagrams.dictionary.DictionaryLoader;
+import com.xenosnowfox.streamagrams.dictionary.DictionaryService;
+import com.xenosnowfox.streamagrams.persistence.DataSourceMigration;
+import com.xenosnowfox.streamagrams.persistence.LeaderboardRepository;
+import com.xenosnowfox.streamagrams.startup.StartupOrchestrator;
+import com.xenosnowfox.streamagrams.startup.StartupReport;
+import com.xenosnowfox.streamagrams.twitch.AuthenticationUrlBuilder;
+import com.xenosnowfox.streamagrams.twitch.Scope;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCClient;
+import com.xenosnowfox.streamagrams.twitch.TwitchLoginPipeline;
+import com.xenosnowfox.streamagrams.utils.PropertiesUtils;
+import com.xenosnowfox.streamagrams.utils.ResourceUtils;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+import spark.Spark;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Application entry point.
+ * <p>
+ * Startup is declared as a graph of stages run by the {@link StartupOrchestrator}, so that the migration check, the
+ * connection pool warmup, the default dictionary load and the WebSocket client setup overlap. The HTTP server only
+ * starts once the database is migrated and the IRC client exists, as its routes serve both.
+ */
+@Getter
+public class Application {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(Application.class.getName());
+
+	/**
+	 * Path Twitch redirects to once the bot account has been authorised.
+	 */
+	public static final String CALLBACK_PATH = "/callback/twitch";
+
+	/**
+	 * Application settings.
+	 */
+	private final Properties properties;
+
+	/**
+	 * DataSource holding the leaderboard and all other persistent state.
+	 */
+	private DataSource dataSource;
+
+	/**
+	 * Leaderboard served by the JSON API.
+	 */
+	private LeaderboardRepository leaderboardRepository;
+
+	/**
+	 * Dictionaries used by each channel.
+	 */
+	private DictionaryService dictionaryService;
+
+	/**
+	 * IRC client connected to Twitch chat.
+	 */
+	private TwitchIRCClient twitchIRCClient;
+
+	/**
+	 * Pipeline logging the IRC client in once an access token arrives.
+	 */
+	private TwitchLoginPipeline twitchLoginPipeline;
+
+	/**
+	 * Starts the application.
+	 *
+	 * @param args
+	 * 		command line arguments, unused.
+	 * @throws Exception
+	 * 		if the application could not be started.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final Application application = Application.newInstance(PropertiesUtils.fromResources("application.properties"));
+		application.start();
+		application.logAuthenticationUrl();
+	}
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withProperties
+	 * 		application settings.
+	 * @return new Application instance.
+	 */
+	public static Application newInstance(@NonNull final Properties withProperties) {
+		return new Application(withProperties);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withProperties
+	 * 		application settings.
+	 */
+	private Application(final Properties withProperties) {
+		this.properties = withProperties;
+	}
+
+	/**
+	 * Runs every startup stage, blocking until the application is ready to receive an access token.
+	 *
+	 * @return startup timing report.
+	 */
+	public StartupReport start() {
+		// each stage assigns its own field; the orchestrator only starts a stage once its dependencies have completed
+		return StartupOrchestrator.newInstance()
+				.withStage("datasource", this::createDataSource)
+				.withStage("migrations", Set.of("datasource"), () -> DataSourceMigration.update(this.dataSource))
+				.withStage("pool-warmup", Set.of("datasource"), this::warmUpPool)
+				.withStage("dictionary", this::loadDefaultDictionary)
+				.withStage("websocket", this::createTwitchClient)
+				.withStage("http", Set.of("migrations", "websocket"), this::startHttpServer)
+				.run();
+	}
+
+	/**
+	 * Creates the connection pool from `datasource.properties`.
+	 *
+	 * @throws Exception
+	 * 		if the pool could not be configured.
+	 */
+	private void createDataSource() throws Exception {
+		this.dataSource = BasicDataSourceFactory.createDataSource(PropertiesUtils.fromResources("datasource.properties"));
+	}
+
+	/**
+	 * Borrows a connection, which makes the pool open its initial connections before the first request needs one.
+	 *
+	 * @throws Exception
+	 * 		if no connection could be opened.
+	 */
+	private void warmUpPool() throws Exception {
+		try (Connection connection = this.dataSource.getConnection()) {
+			connection.isValid(0);
+		}
+	}
+
+	/**
+	 * Creates the dictionary service and loads the default locale's dictionary, if one is bundled.
+	 */
+	private void loadDefaultDictionary() {
+		final String directory = this.properties.getProperty("dictionary.directory", "/dictionaries");
+		final Locale locale = Locale.forLanguageTag(this.properties.getProperty("dictionary.defaultLocale", "en"));
+
+		final DictionaryCache cache = DictionaryCache.newInstance(DictionaryLoader.fromResources(directory));
+		this.dictionaryService = DictionaryService.newInstance(cache)
+				.withDefaultLocale(locale);
+
+		if (ResourceUtils.exists(directory + "/" + locale.toLanguageTag() + ".txt")) {
+			cache.get(locale);
+		} else {
+			LOGGER.warning("No `" + locale.toLanguageTag() + "` dictionary bundled in `" + directory + "`.");
+		}
+	}
+
+	/**
+	 * Creates the IRC client and the login pipeline. Creating the client sets up the WebSocket container, which is the
+	 * slow part; the connection itself is opened once an access token arrives.
+	 */
+	private void createTwitchClient() {
+		this.twitchIRCClient = new TwitchIRCClient();
+		this.twitchLoginPipeline = TwitchLoginPipeline.newInstance(this.twitchIRCClient
+						, this.properties.getProperty("twitch.nickname", "streamagrams"))
+				.withChannels(Arrays.stream(this.properties.getProperty("twitch.channels", "")
+								.split(","))
+						.map(String::trim)
+						.filter(channel -> !channel.isEmpty())
+						.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Starts the HTTP server and registers its routes: the Twitch OAuth callback and the leaderboard API.
+	 */
+	private void startHttpServer() {
+		this.leaderboardRepository = LeaderboardRepository.newInstance(this.dataSource);
+		this.leaderboardRepository.start();
+
+		Spark.port(this.getHttpPort());
+		LeaderboardApi.register(this.leaderboardRepository);
+		Spark.get(CALLBACK_PATH, TwitchCallbackRoute.newInstance()
+				.withTwitchAccessTokenListener(this.twitchLoginPipeline));
+		Spark.awaitInitialization();
+	}
+
+	/**
+	 * Logs the URL at which the bot account can be authorised, which sends an access token to the callback route.
+	 */
+	private void logAuthenticationUrl() {
+		final String clientId = this.properties.getProperty("twitch.clientId", "");
+		if (clientId.isBlank()) {
+			LOGGER.warning("`twitch.clientId` is not defined; the bot cannot be authorised.");
+			return;
+		}
+
+		LOGGER.info("Authorise the bot at " + AuthenticationUrlBuilder.builder()
+				.withClientId(clientId)
+				.withRedirectUri(URI.create("http://localhost:" + this.getHttpPort() + CALLBACK_PATH))
+				.withScopes(EnumSet.of(Scope.CHAT_READ, Scope.CHAT_EDIT))
+				.build());
+	}
+
+	/**
+	 * Returns the port the HTTP server listens on.
+	 *
+	 * @return port.
+	 */
+	private int getHttpPort() {
+		return Integer.parseInt(this.properties.getProperty("http.port", "8080"));
+	}
+}
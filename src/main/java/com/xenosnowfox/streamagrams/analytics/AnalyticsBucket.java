@@ -0,0 +1,160 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Channel activity counted over a single period of time. Buckets are fixed in size and mergeable, so totals for any
+ * window are formed by merging the buckets it spans.
+ */
+@Getter
+class AnalyticsBucket {
+
+	/**
+	 * Index of the period this bucket counts, i.e. its start time divided by the bucket length.
+	 */
+	private long index = -1;
+
+	/**
+	 * Number of chat messages.
+	 */
+	private long messages = 0;
+
+	/**
+	 * Number of guesses.
+	 */
+	private long guesses = 0;
+
+	/**
+	 * Number of rounds that ended.
+	 */
+	private long roundsPlayed = 0;
+
+	/**
+	 * Number of rounds that were solved.
+	 */
+	private long roundsSolved = 0;
+
+	/**
+	 * Distinct chatters.
+	 */
+	private final DistinctCountSketch chatters = new DistinctCountSketch();
+
+	/**
+	 * Distinct users that guessed.
+	 */
+	private final DistinctCountSketch guessers = new DistinctCountSketch();
+
+	/**
+	 * Time taken to solve rounds, in milliseconds.
+	 */
+	private final QuantileSketch solveMillis = new QuantileSketch();
+
+	/**
+	 * Empties the bucket and assigns it to a new period.
+	 *
+	 * @param withIndex
+	 * 		index of the period.
+	 */
+	void reset(final long withIndex) {
+		this.index = withIndex;
+		this.messages = 0;
+		this.guesses = 0;
+		this.roundsPlayed = 0;
+		this.roundsSolved = 0;
+		this.chatters.clear();
+		this.guessers.clear();
+		this.solveMillis.clear();
+	}
+
+	/**
+	 * Counts a chat message.
+	 *
+	 * @param withUsername
+	 * 		user that sent the message.
+	 * @param withGuess
+	 * 		whether the message was a guess.
+	 */
+	void recordMessage(final String withUsername, final boolean withGuess) {
+		this.messages++;
+		this.chatters.add(withUsername);
+		if (withGuess) {
+			this.guesses++;
+			this.guessers.add(withUsername);
+		}
+	}
+
+	/**
+	 * Counts the end of a round.
+	 *
+	 * @param withSolved
+	 * 		whether the round was solved.
+	 * @param withSolveMillis
+	 * 		time taken to solve the round, ignored if unsolved.
+	 */
+	void recordRound(final boolean withSolved, final long withSolveMillis) {
+		this.roundsPlayed++;
+		if (withSolved) {
+			this.roundsSolved++;
+			this.solveMillis.add(withSolveMillis);
+		}
+	}
+
+	/**
+	 * Adds the counts of another bucket to this one.
+	 *
+	 * @param withOther
+	 * 		bucket to merge in.
+	 */
+	void merge(@NonNull final AnalyticsBucket withOther) {
+		this.messages += withOther.messages;
+		this.guesses += withOther.guesses;
+		this.roundsPlayed += withOther.roundsPlayed;
+		this.roundsSolved += withOther.roundsSolved;
+		this.chatters.merge(withOther.chatters);
+		this.guessers.merge(withOther.guessers);
+		this.solveMillis.merge(withOther.solveMillis);
+	}
+
+	/**
+	 * Checks whether anything has been counted.
+	 *
+	 * @return true if the bucket is empty.
+	 */
+	boolean isEmpty() {
+		return this.messages == 0 && this.roundsPlayed == 0;
+	}
+
+	/**
+	 * Returns a bucket restored from persisted values.
+	 *
+	 * @param withMessages
+	 * 		number of chat messages.
+	 * @param withGuesses
+	 * 		number of guesses.
+	 * @param withRoundsPlayed
+	 * 		number of rounds that ended.
+	 * @param withRoundsSolved
+	 * 		number of rounds that were solved.
+	 * @param withChatters
+	 * 		distinct chatters.
+	 * @param withGuessers
+	 * 		distinct users that guessed.
+	 * @param withSolveMillis
+	 * 		time taken to solve rounds.
+	 * @return restored bucket.
+	 */
+	static AnalyticsBucket restore(final long withMessages, final long withGuesses, final long withRoundsPlayed,
+			final long withRoundsSolved, final DistinctCountSketch withChatters, final DistinctCountSketch withGuessers,
+			final QuantileSketch withSolveMillis) {
+		final AnalyticsBucket bucket = new AnalyticsBucket();
+		bucket.messages = withMessages;
+		bucket.guesses = withGuesses;
+		bucket.roundsPlayed = withRoundsPlayed;
+		bucket.roundsSolved = withRoundsSolved;
+		bucket.chatters.merge(withChatters);
+		bucket.guessers.merge(withGuessers);
+		bucket.solveMillis.merge(withSolveMillis);
+		return bucket;
+	}
+}
@@ -0,0 +1,142 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Persists rolled-up analytics buckets to the `ChannelStatsRollup` table and answers historical queries from them.
+ * <p>
+ * Buckets are stored with their sketches, so statistics for any historical window are formed by merging the stored
+ * buckets rather than by re-reading raw events. Buckets are keyed by their start in milliseconds since the epoch, so
+ * that no time zone is involved in storing them.
+ */
+public class AnalyticsRollupStore {
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to persist rollups to.
+	 * @return new AnalyticsRollupStore instance.
+	 */
+	public static AnalyticsRollupStore newInstance(@NonNull final DataSource withDataSource) {
+		return new AnalyticsRollupStore(withDataSource);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to persist rollups to.
+	 */
+	private AnalyticsRollupStore(final DataSource withDataSource) {
+		this.queryRunner = new QueryRunner(withDataSource);
+	}
+
+	/**
+	 * Persists a batch of rollup rows, replacing any already stored for the same channel and bucket.
+	 *
+	 * @param withRows
+	 * 		rows to persist, as produced by {@link #toRow(String, long, long, AnalyticsBucket)}.
+	 */
+	void saveAll(final List<Object[]> withRows) {
+		if (withRows.isEmpty()) {
+			return;
+		}
+
+		try {
+			this.queryRunner.batch("MERGE INTO `ChannelStatsRollup` (CHANNEL, BUCKET_START_MILLIS, BUCKET_MILLIS, MESSAGES"
+							+ ", GUESSES, ROUNDS_PLAYED, ROUNDS_SOLVED, CHATTERS_SKETCH, GUESSERS_SKETCH, SOLVE_SKETCH)"
+							+ " KEY (CHANNEL, BUCKET_START_MILLIS) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+					, withRows.toArray(Object[][]::new)
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to persist channel analytics rollups.", sqlException);
+		}
+	}
+
+	/**
+	 * Returns statistics for a channel over a historical window.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withFrom
+	 * 		start of the window, inclusive.
+	 * @param withTo
+	 * 		end of the window, exclusive.
+	 * @return channel statistics.
+	 */
+	public ChannelStatistics query(@NonNull final String withChannelName, @NonNull final Instant withFrom,
+			@NonNull final Instant withTo) {
+		try {
+			final AnalyticsBucket totals = this.queryRunner.query("SELECT MESSAGES, GUESSES, ROUNDS_PLAYED"
+							+ ", ROUNDS_SOLVED, CHATTERS_SKETCH, GUESSERS_SKETCH, SOLVE_SKETCH FROM `ChannelStatsRollup`"
+							+ " WHERE CHANNEL = ? AND BUCKET_START_MILLIS >= ? AND BUCKET_START_MILLIS < ?;"
+					, resultSet -> {
+						final AnalyticsBucket bucket = new AnalyticsBucket();
+						while (resultSet.next()) {
+							bucket.merge(AnalyticsBucket.restore(resultSet.getLong(1)
+									, resultSet.getLong(2)
+									, resultSet.getLong(3)
+									, resultSet.getLong(4)
+									, DistinctCountSketch.fromBytes(resultSet.getBytes(5))
+									, DistinctCountSketch.fromBytes(resultSet.getBytes(6))
+									, QuantileSketch.fromBytes(resultSet.getBytes(7))));
+						}
+						return bucket;
+					}
+					, withChannelName
+					, withFrom.toEpochMilli()
+					, withTo.toEpochMilli()
+			);
+			return new ChannelStatistics(withChannelName, Duration.between(withFrom, withTo), totals,
+					Collections.emptyList());
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to query channel analytics for `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Converts a bucket into a row of parameters for {@link #saveAll(List)}.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withStartMillis
+	 * 		start time of the bucket.
+	 * @param withBucketMillis
+	 * 		length of the bucket.
+	 * @param withBucket
+	 * 		bucket.
+	 * @return row parameters.
+	 */
+	static Object[] toRow(final String withChannelName, final long withStartMillis, final long withBucketMillis,
+			final AnalyticsBucket withBucket) {
+		return new Object[]{
+				withChannelName
+				, withStartMillis
+				, withBucketMillis
+				, withBucket.getMessages()
+				, withBucket.getGuesses()
+				, withBucket.getRoundsPlayed()
+				, withBucket.getRoundsSolved()
+				, withBucket.getChatters()
+						.toBytes()
+				, withBucket.getGuessers()
+						.toBytes()
+				, withBucket.getSolveMillis()
+						.toBytes()
+		};
+	}
+}
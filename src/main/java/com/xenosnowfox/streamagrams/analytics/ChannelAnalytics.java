@@ -0,0 +1,264 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Live activity of a single channel, held in a fixed-size ring of time buckets.
+ * <p>
+ * Every event updates the bucket for the current period in constant time; a bucket is reused once the ring wraps
+ * around to it, so memory per channel is bounded no matter how busy the channel is.
+ */
+class ChannelAnalytics {
+
+	/**
+	 * Number of recent round outcomes kept for finding the hardest words.
+	 */
+	private static final int RECENT_ROUNDS = 64;
+
+	/**
+	 * Channel name.
+	 */
+	private final String channelName;
+
+	/**
+	 * Length of each bucket, in milliseconds.
+	 */
+	private final long bucketMillis;
+
+	/**
+	 * Ring of buckets, indexed by period modulo the ring size.
+	 */
+	private final AnalyticsBucket[] buckets;
+
+	/**
+	 * Ring of recent round outcomes.
+	 */
+	private final RoundOutcome[] recentRounds = new RoundOutcome[RECENT_ROUNDS];
+
+	/**
+	 * Number of round outcomes recorded.
+	 */
+	private long roundCount = 0;
+
+	/**
+	 * Index of the most recent period that has been handed to the rollup consumer.
+	 */
+	private long lastRolledUpIndex;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withBucketLength
+	 * 		length of each bucket.
+	 * @param withBucketCount
+	 * 		number of buckets kept.
+	 * @param withNowMillis
+	 * 		current time.
+	 */
+	ChannelAnalytics(final String withChannelName, final Duration withBucketLength, final int withBucketCount,
+			final long withNowMillis) {
+		this.channelName = withChannelName;
+		this.bucketMillis = withBucketLength.toMillis();
+		this.buckets = new AnalyticsBucket[withBucketCount];
+		for (int i = 0; i < withBucketCount; i++) {
+			this.buckets[i] = new AnalyticsBucket();
+		}
+		this.lastRolledUpIndex = withNowMillis / this.bucketMillis - 1;
+	}
+
+	/**
+	 * Counts a chat message.
+	 *
+	 * @param withUsername
+	 * 		user that sent the message.
+	 * @param withGuess
+	 * 		whether the message was a guess.
+	 * @param withNowMillis
+	 * 		current time.
+	 */
+	synchronized void recordMessage(final String withUsername, final boolean withGuess, final long withNowMillis) {
+		this.getBucket(withNowMillis)
+				.recordMessage(withUsername, withGuess);
+	}
+
+	/**
+	 * Counts the end of a round.
+	 *
+	 * @param withWord
+	 * 		word the round was about.
+	 * @param withSolved
+	 * 		whether the round was solved.
+	 * @param withSolveMillis
+	 * 		time taken to solve the round, ignored if unsolved.
+	 * @param withNowMillis
+	 * 		current time.
+	 */
+	synchronized void recordRound(final String withWord, final boolean withSolved, final long withSolveMillis,
+			final long withNowMillis) {
+		this.getBucket(withNowMillis)
+				.recordRound(withSolved, withSolveMillis);
+		this.recentRounds[(int) (this.roundCount++ % RECENT_ROUNDS)] = new RoundOutcome(withWord, withSolved,
+				withSolveMillis);
+	}
+
+	/**
+	 * Returns statistics over the most recent window, which is capped to the span of the ring.
+	 *
+	 * @param withWindow
+	 * 		window length.
+	 * @param withHardestWordCount
+	 * 		maximum number of hardest words to include.
+	 * @param withNowMillis
+	 * 		current time.
+	 * @return channel statistics.
+	 */
+	synchronized ChannelStatistics getStatistics(final Duration withWindow, final int withHardestWordCount,
+			final long withNowMillis) {
+		final long currentIndex = withNowMillis / this.bucketMillis;
+		final long bucketsInWindow = Math.max(1, Math.min(this.buckets.length,
+				(withWindow.toMillis() + this.bucketMillis - 1) / this.bucketMillis));
+
+		final AnalyticsBucket totals = new AnalyticsBucket();
+		for (long index = currentIndex - bucketsInWindow + 1; index <= currentIndex; index++) {
+			final AnalyticsBucket bucket = this.buckets[this.slotOf(index)];
+			if (bucket.getIndex() == index) {
+				totals.merge(bucket);
+			}
+		}
+
+		return new ChannelStatistics(this.channelName, Duration.ofMillis(bucketsInWindow * this.bucketMillis), totals,
+				this.getHardestWords(withHardestWordCount));
+	}
+
+	/**
+	 * Hands every completed, not yet rolled up, non-empty bucket to a consumer along with its start time. The buckets
+	 * remain pending until {@link #commitRollUp(long)} is called with the returned index, so that they are handed out
+	 * again if persisting them fails.
+	 *
+	 * @param withNowMillis
+	 * 		current time.
+	 * @param withConsumer
+	 * 		consumer receiving the bucket start time and the bucket.
+	 * @return index of the last bucket handed out.
+	 */
+	synchronized long rollUp(final long withNowMillis, final BiConsumer<Long, AnalyticsBucket> withConsumer) {
+		final long currentIndex = withNowMillis / this.bucketMillis;
+		final long firstIndex = Math.max(this.lastRolledUpIndex + 1, currentIndex - this.buckets.length + 1);
+		for (long index = firstIndex; index < currentIndex; index++) {
+			final AnalyticsBucket bucket = this.buckets[this.slotOf(index)];
+			if (bucket.getIndex() == index && !bucket.isEmpty()) {
+				withConsumer.accept(index * this.bucketMillis, bucket);
+			}
+		}
+		return currentIndex - 1;
+	}
+
+	/**
+	 * Marks every bucket up to and including an index as rolled up, once they have been persisted.
+	 *
+	 * @param withIndex
+	 * 		index returned by {@link #rollUp(long, BiConsumer)}.
+	 */
+	synchronized void commitRollUp(final long withIndex) {
+		this.lastRolledUpIndex = Math.max(this.lastRolledUpIndex, withIndex);
+	}
+
+	/**
+	 * Returns the recent words that took longest to solve, unsolved words first.
+	 *
+	 * @param withCount
+	 * 		maximum number of words.
+	 * @return hardest words.
+	 */
+	private List<String> getHardestWords(final int withCount) {
+		final List<RoundOutcome> outcomes = new ArrayList<>();
+		for (final RoundOutcome outcome : this.recentRounds) {
+			if (outcome != null) {
+				outcomes.add(outcome);
+			}
+		}
+		outcomes.sort(Comparator.comparing((RoundOutcome outcome) -> outcome.solved)
+				.thenComparing(outcome -> -outcome.solveMillis));
+
+		final Set<String> words = new LinkedHashSet<>();
+		for (final RoundOutcome outcome : outcomes) {
+			if (words.size() >= withCount) {
+				break;
+			}
+			words.add(outcome.word);
+		}
+		return new ArrayList<>(words);
+	}
+
+	/**
+	 * Returns the bucket for the current period, recycling it if it still holds an older period.
+	 *
+	 * @param withNowMillis
+	 * 		current time.
+	 * @return current bucket.
+	 */
+	private AnalyticsBucket getBucket(final long withNowMillis) {
+		final long index = withNowMillis / this.bucketMillis;
+		final AnalyticsBucket bucket = this.buckets[this.slotOf(index)];
+		if (bucket.getIndex() != index) {
+			bucket.reset(index);
+		}
+		return bucket;
+	}
+
+	/**
+	 * Returns the ring slot of a period.
+	 *
+	 * @param withIndex
+	 * 		period index.
+	 * @return ring slot.
+	 */
+	private int slotOf(final long withIndex) {
+		return (int) Math.floorMod(withIndex, (long) this.buckets.length);
+	}
+
+	/**
+	 * Outcome of a single round.
+	 */
+	private static final class RoundOutcome {
+
+		/**
+		 * Word the round was about.
+		 */
+		private final String word;
+
+		/**
+		 * Whether the round was solved.
+		 */
+		private final boolean solved;
+
+		/**
+		 * Time taken to solve the round.
+		 */
+		private final long solveMillis;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withWord
+		 * 		word the round was about.
+		 * @param withSolved
+		 * 		whether the round was solved.
+		 * @param withSolveMillis
+		 * 		time taken to solve the round.
+		 */
+		private RoundOutcome(final String withWord, final boolean withSolved, final long withSolveMillis) {
+			this.word = withWord;
+			this.solved = withSolved;
+			this.solveMillis = withSolveMillis;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessage;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessageListener;
+import lombok.NonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming aggregation of live per-channel statistics: guesses per minute, median solve time, participation rate and
+ * hardest words.
+ * <p>
+ * Chat messages are fed in as a {@link TwitchIRCMessageListener} and round outcomes through
+ * {@link #recordRoundOutcome(String, String, boolean, Duration)}. Each event is counted in constant time into a fixed
+ * ring of time buckets per channel. Completed buckets are periodically rolled up to an {@link AnalyticsRollupStore}
+ * for historical queries.
+ */
+public class ChannelAnalyticsEngine implements TwitchIRCMessageListener {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ChannelAnalyticsEngine.class.getName());
+
+	/**
+	 * Default length of each time bucket.
+	 */
+	private static final Duration DEFAULT_BUCKET_LENGTH = Duration.ofMinutes(1);
+
+	/**
+	 * Default number of buckets kept in memory per channel.
+	 */
+	private static final int DEFAULT_BUCKET_COUNT = 60;
+
+	/**
+	 * Number of hardest words included in live statistics.
+	 */
+	private static final int HARDEST_WORD_COUNT = 5;
+
+	/**
+	 * Pattern matching chat messages that look like a guess: a single word made up only of letters.
+	 */
+	private static final Pattern GUESS_PATTERN = Pattern.compile("\\p{L}{2,}");
+
+	/**
+	 * Live analytics, keyed by lower-cased channel name.
+	 */
+	private final Map<String, ChannelAnalytics> channels = new ConcurrentHashMap<>();
+
+	/**
+	 * Clock used to timestamp events.
+	 */
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Length of each time bucket.
+	 */
+	private Duration bucketLength = DEFAULT_BUCKET_LENGTH;
+
+	/**
+	 * Number of buckets kept in memory per channel.
+	 */
+	private int bucketCount = DEFAULT_BUCKET_COUNT;
+
+	/**
+	 * Decides whether a chat message is a guess.
+	 */
+	private Predicate<String> guessClassifier = message -> GUESS_PATTERN.matcher(message.trim())
+			.matches();
+
+	/**
+	 * Store receiving rolled-up buckets, if persistence is enabled.
+	 */
+	private AnalyticsRollupStore rollupStore = null;
+
+	/**
+	 * Scheduler running periodic rollups.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @return new ChannelAnalyticsEngine instance.
+	 */
+	public static ChannelAnalyticsEngine newInstance() {
+		return new ChannelAnalyticsEngine();
+	}
+
+	/**
+	 * Hidden constructor.
+	 */
+	private ChannelAnalyticsEngine() {
+	}
+
+	/**
+	 * Defines the clock used to timestamp events, e.g. to replay recorded chat.
+	 *
+	 * @param withClock
+	 * 		clock.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelAnalyticsEngine withClock(@NonNull final Clock withClock) {
+		this.clock = withClock;
+		return this;
+	}
+
+	/**
+	 * Defines the length and number of the time buckets kept per channel. Only affects channels seen afterwards.
+	 *
+	 * @param withBucketLength
+	 * 		length of each bucket.
+	 * @param withBucketCount
+	 * 		number of buckets kept per channel.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelAnalyticsEngine withBuckets(@NonNull final Duration withBucketLength, final int withBucketCount) {
+		if (withBucketLength.toMillis() <= 0 || withBucketCount <= 0) {
+			throw new IllegalArgumentException("Bucket length and count must be positive.");
+		}
+		this.bucketLength = withBucketLength;
+		this.bucketCount = withBucketCount;
+		return this;
+	}
+
+	/**
+	 * Defines how chat messages are classified as guesses.
+	 *
+	 * @param withClassifier
+	 * 		predicate returning true for guesses.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelAnalyticsEngine withGuessClassifier(@NonNull final Predicate<String> withClassifier) {
+		this.guessClassifier = withClassifier;
+		return this;
+	}
+
+	/**
+	 * Defines the store that completed buckets are rolled up to.
+	 *
+	 * @param withRollupStore
+	 * 		rollup store.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelAnalyticsEngine withRollupStore(@NonNull final AnalyticsRollupStore withRollupStore) {
+		this.rollupStore = withRollupStore;
+		return this;
+	}
+
+	@Override
+	public void onMessage(final TwitchIRCMessage withMessage) {
+		if (!"PRIVMSG".equalsIgnoreCase(withMessage.getCommand())
+				|| withMessage.getArguments() == null
+				|| withMessage.getArguments().length < 2
+				|| withMessage.getPrefix() == null) {
+			return;
+		}
+
+		final String prefix = withMessage.getPrefix();
+		final int nickEnd = prefix.indexOf('!');
+		final String username = prefix.substring(prefix.startsWith(":") ? 1 : 0, nickEnd < 0 ? prefix.length() : nickEnd);
+		final String text = withMessage.getArguments()[1];
+
+		this.getChannel(withMessage.getArguments()[0])
+				.recordMessage(username, this.guessClassifier.test(text), this.clock.millis());
+	}
+
+	/**
+	 * Records the end of a round.
+	 *
+	 * @param withChannelName
+	 * 		channel the round was played in.
+	 * @param withWord
+	 * 		word the round was about.
+	 * @param withSolved
+	 * 		whether the round was solved.
+	 * @param withSolveTime
+	 * 		time taken to solve the round, ignored if unsolved.
+	 */
+	public void recordRoundOutcome(@NonNull final String withChannelName, @NonNull final String withWord,
+			final boolean withSolved, @NonNull final Duration withSolveTime) {
+		this.getChannel(withChannelName)
+				.recordRound(withWord, withSolved, withSolveTime.toMillis(), this.clock.millis());
+	}
+
+	/**
+	 * Returns live statistics for a channel over the most recent window. The window is capped to the span of the
+	 * buckets kept in memory.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withWindow
+	 * 		window length.
+	 * @return channel statistics, if the channel has been seen.
+	 */
+	public Optional<ChannelStatistics> getStatistics(@NonNull final String withChannelName,
+			@NonNull final Duration withWindow) {
+		return Optional.ofNullable(this.channels.get(ChannelAnalyticsEngine.toKey(withChannelName)))
+				.map(channel -> channel.getStatistics(withWindow, HARDEST_WORD_COUNT, this.clock.millis()));
+	}
+
+	/**
+	 * Returns statistics for a channel over a historical window, read from the rollup store.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withFrom
+	 * 		start of the window, inclusive.
+	 * @param withTo
+	 * 		end of the window, exclusive.
+	 * @return channel statistics.
+	 * @throws IllegalStateException
+	 * 		if no rollup store has been defined.
+	 */
+	public ChannelStatistics getHistoricalStatistics(@NonNull final String withChannelName,
+			@NonNull final Instant withFrom, @NonNull final Instant withTo) {
+		if (this.rollupStore == null) {
+			throw new IllegalStateException("Rollup store has not been defined.");
+		}
+		return this.rollupStore.query(ChannelAnalyticsEngine.toKey(withChannelName), withFrom, withTo);
+	}
+
+	/**
+	 * Starts rolling up completed buckets in the background, once per bucket length.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null || this.rollupStore == null) {
+			return;
+		}
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "channel-analytics-rollup");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleAtFixedRate(() -> {
+			try {
+				this.rollUp();
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Channel analytics rollup failed.", ex);
+			}
+		}, this.bucketLength.toMillis(), this.bucketLength.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops background rollups, rolling up any completed buckets first.
+	 */
+	public synchronized void stop() {
+		if (this.scheduler == null) {
+			return;
+		}
+
+		this.scheduler.shutdown();
+		this.scheduler = null;
+		this.rollUp();
+	}
+
+	/**
+	 * Persists every completed bucket that has not yet been rolled up. Buckets are only marked as rolled up once they
+	 * have been saved, so a failed save is retried on the next rollup for as long as the buckets remain in the ring.
+	 */
+	public void rollUp() {
+		if (this.rollupStore == null) {
+			return;
+		}
+
+		final long now = this.clock.millis();
+		final List<Object[]> rows = new ArrayList<>();
+		final Map<ChannelAnalytics, Long> pending = new HashMap<>();
+		this.channels.forEach((name, channel) -> pending.put(channel, channel.rollUp(now, (startMillis, bucket) ->
+				rows.add(AnalyticsRollupStore.toRow(name, startMillis, this.bucketLength.toMillis(), bucket)))));
+		this.rollupStore.saveAll(rows);
+		pending.forEach(ChannelAnalytics::commitRollUp);
+	}
+
+	/**
+	 * Returns the live analytics of a channel, creating them on first use.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return channel analytics.
+	 */
+	private ChannelAnalytics getChannel(final String withChannelName) {
+		return this.channels.computeIfAbsent(ChannelAnalyticsEngine.toKey(withChannelName)
+				, key -> new ChannelAnalytics(key, this.bucketLength, this.bucketCount, this.clock.millis()));
+	}
+
+	/**
+	 * Normalises a channel name.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return normalised channel name.
+	 */
+	private static String toKey(final String withChannelName) {
+		final String name = withChannelName.startsWith("#") ? withChannelName.substring(1) : withChannelName;
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
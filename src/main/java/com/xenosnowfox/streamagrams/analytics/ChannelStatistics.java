@@ -0,0 +1,116 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics for a channel over a window of time.
+ */
+@Getter
+@ToString
+public class ChannelStatistics {
+
+	/**
+	 * Channel name.
+	 */
+	private final String channelName;
+
+	/**
+	 * Length of the window the statistics cover.
+	 */
+	private final Duration window;
+
+	/**
+	 * Number of chat messages.
+	 */
+	private final long messages;
+
+	/**
+	 * Number of guesses.
+	 */
+	private final long guesses;
+
+	/**
+	 * Estimated number of distinct chatters.
+	 */
+	private final long chatters;
+
+	/**
+	 * Estimated number of distinct users that guessed.
+	 */
+	private final long guessers;
+
+	/**
+	 * Number of rounds that ended.
+	 */
+	private final long roundsPlayed;
+
+	/**
+	 * Number of rounds that were solved.
+	 */
+	private final long roundsSolved;
+
+	/**
+	 * Estimated median time taken to solve a round, in milliseconds, or NaN if no round was solved.
+	 */
+	private final double medianSolveMillis;
+
+	/**
+	 * Recent words that took longest to solve, or were not solved at all, hardest first. Only available for live
+	 * windows.
+	 */
+	private final List<String> hardestWords;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withWindow
+	 * 		length of the window.
+	 * @param withTotals
+	 * 		totals across the window.
+	 * @param withHardestWords
+	 * 		hardest recent words.
+	 */
+	ChannelStatistics(final String withChannelName, final Duration withWindow, final AnalyticsBucket withTotals,
+			final List<String> withHardestWords) {
+		this.channelName = withChannelName;
+		this.window = withWindow;
+		this.messages = withTotals.getMessages();
+		this.guesses = withTotals.getGuesses();
+		this.chatters = withTotals.getChatters()
+				.getEstimate();
+		this.guessers = Math.min(withTotals.getGuessers()
+				.getEstimate(), this.chatters);
+		this.roundsPlayed = withTotals.getRoundsPlayed();
+		this.roundsSolved = withTotals.getRoundsSolved();
+		this.medianSolveMillis = withTotals.getSolveMillis()
+				.getQuantile(0.5);
+		this.hardestWords = Collections.unmodifiableList(withHardestWords);
+	}
+
+	/**
+	 * Returns the average number of guesses per minute across the window.
+	 *
+	 * @return guesses per minute.
+	 */
+	public double getGuessesPerMinute() {
+		final double minutes = this.window.toMillis() / (double) Duration.ofMinutes(1)
+				.toMillis();
+		return minutes <= 0 ? 0 : this.guesses / minutes;
+	}
+
+	/**
+	 * Returns the fraction of chatters that made at least one guess.
+	 *
+	 * @return participation rate between 0 and 1.
+	 */
+	public double getParticipationRate() {
+		return this.chatters == 0 ? 0 : (double) this.guessers / this.chatters;
+	}
+}
@@ -0,0 +1,125 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, mergeable sketch for estimating the number of distinct values, such as chatters, using linear counting.
+ * <p>
+ * Each value sets one bit of a fixed bitmap; the number of distinct values is estimated from the fraction of bits
+ * still clear. Two sketches are merged with a bitwise OR, so distinct counts can be combined across time buckets.
+ */
+public class DistinctCountSketch {
+
+	/**
+	 * Number of 64-bit words in the bitmap.
+	 */
+	private static final int WORDS = 64;
+
+	/**
+	 * Number of bits in the bitmap.
+	 */
+	private static final int BITS = WORDS * Long.SIZE;
+
+	/**
+	 * Bitmap of hashed values.
+	 */
+	private final long[] bitmap = new long[WORDS];
+
+	/**
+	 * Adds a value to the sketch.
+	 *
+	 * @param withValue
+	 * 		value to add.
+	 */
+	public void add(@NonNull final String withValue) {
+		final int bit = DistinctCountSketch.mix(withValue.hashCode()) & (BITS - 1);
+		this.bitmap[bit >>> 6] |= 1L << bit;
+	}
+
+	/**
+	 * Adds every value counted by another sketch to this one.
+	 *
+	 * @param withOther
+	 * 		sketch to merge in.
+	 */
+	public void merge(@NonNull final DistinctCountSketch withOther) {
+		for (int i = 0; i < WORDS; i++) {
+			this.bitmap[i] |= withOther.bitmap[i];
+		}
+	}
+
+	/**
+	 * Removes every value from the sketch.
+	 */
+	public void clear() {
+		Arrays.fill(this.bitmap, 0);
+	}
+
+	/**
+	 * Returns an estimate of the number of distinct values added.
+	 *
+	 * @return estimated distinct count.
+	 */
+	public long getEstimate() {
+		int set = 0;
+		for (final long word : this.bitmap) {
+			set += Long.bitCount(word);
+		}
+
+		final int clear = BITS - set;
+		if (clear == 0) {
+			// saturated; the estimate is unbounded so report the largest meaningful value
+			return Math.round(BITS * Math.log(BITS));
+		}
+		return Math.round(BITS * Math.log((double) BITS / clear));
+	}
+
+	/**
+	 * Serialises the sketch.
+	 *
+	 * @return serialised sketch.
+	 */
+	public byte[] toBytes() {
+		final ByteBuffer buffer = ByteBuffer.allocate(WORDS * Long.BYTES);
+		for (final long word : this.bitmap) {
+			buffer.putLong(word);
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Returns a sketch deserialised from bytes produced by {@link #toBytes()}.
+	 *
+	 * @param withBytes
+	 * 		serialised sketch.
+	 * @return sketch.
+	 */
+	public static DistinctCountSketch fromBytes(@NonNull final byte[] withBytes) {
+		final DistinctCountSketch sketch = new DistinctCountSketch();
+		final ByteBuffer buffer = ByteBuffer.wrap(withBytes);
+		for (int i = 0; i < WORDS; i++) {
+			sketch.bitmap[i] = buffer.getLong();
+		}
+		return sketch;
+	}
+
+	/**
+	 * Spreads the bits of a hash code so that similar strings land on unrelated bits.
+	 *
+	 * @param withHash
+	 * 		hash code.
+	 * @return mixed hash.
+	 */
+	private static int mix(final int withHash) {
+		int h = withHash;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -0,0 +1,176 @@
+package com.xenosnowfox.streamagrams.analytics;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, mergeable sketch for estimating quantiles of positive values such as durations in milliseconds.
+ * <p>
+ * Values are counted in logarithmically sized buckets, so every estimate is within a few percent of a true value
+ * while memory stays constant no matter how many values are added. Two sketches are merged by adding their buckets.
+ */
+public class QuantileSketch {
+
+	/**
+	 * Ratio between the bounds of consecutive buckets, giving a relative error of roughly 4%.
+	 */
+	private static final double GAMMA = 1.08;
+
+	/**
+	 * Natural logarithm of {@link #GAMMA}.
+	 */
+	private static final double LOG_GAMMA = Math.log(GAMMA);
+
+	/**
+	 * Number of buckets; values above GAMMA^BUCKETS (several days in milliseconds) share the last bucket.
+	 */
+	private static final int BUCKETS = 256;
+
+	/**
+	 * Number of values counted in each bucket.
+	 */
+	private final int[] counts = new int[BUCKETS];
+
+	/**
+	 * Total number of values added.
+	 */
+	private long count = 0;
+
+	/**
+	 * Adds a value to the sketch. Values below one are counted as one.
+	 *
+	 * @param withValue
+	 * 		value to add.
+	 */
+	public void add(final double withValue) {
+		this.counts[QuantileSketch.indexOf(withValue)]++;
+		this.count++;
+	}
+
+	/**
+	 * Adds every value counted by another sketch to this one.
+	 *
+	 * @param withOther
+	 * 		sketch to merge in.
+	 */
+	public void merge(@NonNull final QuantileSketch withOther) {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.counts[i] += withOther.counts[i];
+		}
+		this.count += withOther.count;
+	}
+
+	/**
+	 * Removes every value from the sketch.
+	 */
+	public void clear() {
+		Arrays.fill(this.counts, 0);
+		this.count = 0;
+	}
+
+	/**
+	 * Returns the number of values added.
+	 *
+	 * @return value count.
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * Returns an estimate of the given quantile.
+	 *
+	 * @param withQuantile
+	 * 		quantile between 0 and 1, e.g. 0.5 for the median.
+	 * @return estimated value, or NaN if the sketch is empty.
+	 */
+	public double getQuantile(final double withQuantile) {
+		if (this.count == 0) {
+			return Double.NaN;
+		}
+
+		final long rank = (long) Math.floor(Math.max(0, Math.min(1, withQuantile)) * (this.count - 1));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.counts[i];
+			if (seen > rank) {
+				return QuantileSketch.valueOf(i);
+			}
+		}
+		return QuantileSketch.valueOf(BUCKETS - 1);
+	}
+
+	/**
+	 * Serialises the sketch, storing only non-empty buckets.
+	 *
+	 * @return serialised sketch.
+	 */
+	public byte[] toBytes() {
+		int nonEmpty = 0;
+		for (final int bucketCount : this.counts) {
+			if (bucketCount != 0) {
+				nonEmpty++;
+			}
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES + nonEmpty * (Short.BYTES + Integer.BYTES));
+		buffer.putShort((short) nonEmpty);
+		for (int i = 0; i < BUCKETS; i++) {
+			if (this.counts[i] != 0) {
+				buffer.putShort((short) i);
+				buffer.putInt(this.counts[i]);
+			}
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * Returns a sketch deserialised from bytes produced by {@link #toBytes()}.
+	 *
+	 * @param withBytes
+	 * 		serialised sketch.
+	 * @return sketch.
+	 */
+	public static QuantileSketch fromBytes(@NonNull final byte[] withBytes) {
+		final QuantileSketch sketch = new QuantileSketch();
+		final ByteBuffer buffer = ByteBuffer.wrap(withBytes);
+		final int nonEmpty = buffer.getShort();
+		for (int i = 0; i < nonEmpty; i++) {
+			final int index = buffer.getShort();
+			final int bucketCount = buffer.getInt();
+			sketch.counts[index] = bucketCount;
+			sketch.count += bucketCount;
+		}
+		return sketch;
+	}
+
+	/**
+	 * Returns the bucket a value is counted in.
+	 *
+	 * @param withValue
+	 * 		value.
+	 * @return bucket index.
+	 */
+	private static int indexOf(final double withValue) {
+		if (!(withValue > 1)) {
+			return 0;
+		}
+		return (int) Math.min(BUCKETS - 1, Math.ceil(Math.log(withValue) / LOG_GAMMA));
+	}
+
+	/**
+	 * Returns the value representing a bucket, chosen to minimise the relative error across the bucket.
+	 *
+	 * @param withIndex
+	 * 		bucket index.
+	 * @return representative value.
+	 */
+	private static double valueOf(final int withIndex) {
+		if (withIndex == 0) {
+			return 1;
+		}
+		return 2 * Math.pow(GAMMA, withIndex) / (GAMMA + 1);
+	}
+}
@@ -0,0 +1,321 @@
+package com.xenosnowfox.streamagrams.api;
+
+import lombok.NonNull;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Spark Route that serves a JSON document from pre-serialised bytes.
+ * <p>
+ * The document is only rebuilt when the underlying data version changes, and the version is checked at most once
+ * per maximum age, so that a steady stream of writes costs at most one rebuild per interval rather than one per request.
+ * Each build is kept both as plain and as gzipped bytes, and is served with a strong ETag so that clients polling an
+ * unchanged document receive a `304 Not Modified` without a body.
+ * <p>
+ * The response is written straight to the servlet response and committed, which stops Spark from serialising (and
+ * gzipping) the body a second time.
+ */
+public class CachedJsonRoute implements Route {
+
+	/**
+	 * Number of digest bytes used to form an ETag.
+	 */
+	private static final int ETAG_DIGEST_BYTES = 16;
+
+	/**
+	 * Default time a document is served before the data version is checked again.
+	 */
+	private static final Duration DEFAULT_MAX_AGE = Duration.ofSeconds(1);
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withVersionSupplier
+	 * 		supplies the current version of the underlying data.
+	 * @param withBodySupplier
+	 * 		builds the JSON document from the underlying data.
+	 * @return new CachedJsonRoute instance.
+	 */
+	public static CachedJsonRoute newInstance(@NonNull final LongSupplier withVersionSupplier,
+			@NonNull final Supplier<String> withBodySupplier) {
+		return new CachedJsonRoute(withVersionSupplier, withBodySupplier);
+	}
+
+	/**
+	 * Supplies the current version of the underlying data.
+	 */
+	private final LongSupplier versionSupplier;
+
+	/**
+	 * Builds the JSON document from the underlying data.
+	 */
+	private final Supplier<String> bodySupplier;
+
+	/**
+	 * Time a document is served before the data version is checked again, in nanoseconds.
+	 */
+	private volatile long maxAgeNanos = DEFAULT_MAX_AGE.toNanos();
+
+	/**
+	 * Most recently built document.
+	 */
+	private volatile CachedBody cachedBody = null;
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withVersionSupplier
+	 * 		supplies the current version of the underlying data.
+	 * @param withBodySupplier
+	 * 		builds the JSON document from the underlying data.
+	 */
+	private CachedJsonRoute(final LongSupplier withVersionSupplier, final Supplier<String> withBodySupplier) {
+		this.versionSupplier = withVersionSupplier;
+		this.bodySupplier = withBodySupplier;
+	}
+
+	/**
+	 * Defines how long a document is served before the data version is checked again. Clients may see data up to this
+	 * old.
+	 *
+	 * @param withMaxAge
+	 * 		maximum age, zero to check the version on every request.
+	 * @return this instance to allow for method chaining.
+	 */
+	public CachedJsonRoute withMaxAge(@NonNull final Duration withMaxAge) {
+		if (withMaxAge.isNegative()) {
+			throw new IllegalArgumentException("Maximum age must not be negative.");
+		}
+		this.maxAgeNanos = withMaxAge.toNanos();
+		return this;
+	}
+
+	@Override
+	public Object handle(final Request request, final Response response) throws IOException {
+		final CachedBody body = this.getCachedBody();
+		final boolean gzip = CachedJsonRoute.acceptsGzip(request.headers("Accept-Encoding"));
+		final String etag = gzip ? body.gzipETag : body.plainETag;
+
+		final HttpServletResponse raw = response.raw();
+		raw.setHeader("ETag", etag);
+		raw.setHeader("Cache-Control", "no-cache");
+		raw.setHeader("Vary", "Accept-Encoding");
+
+		if (CachedJsonRoute.matchesETag(request.headers("If-None-Match"), etag)) {
+			raw.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			raw.flushBuffer();
+			return "";
+		}
+
+		final byte[] bytes = gzip ? body.gzipBytes : body.plainBytes;
+		raw.setStatus(HttpServletResponse.SC_OK);
+		raw.setContentType("application/json;charset=utf-8");
+		if (gzip) {
+			raw.setHeader("Content-Encoding", "gzip");
+		}
+		raw.setContentLength(bytes.length);
+
+		final OutputStream outputStream = raw.getOutputStream();
+		outputStream.write(bytes);
+		raw.flushBuffer();
+		return "";
+	}
+
+	/**
+	 * Returns the cached document. Once the document is older than the maximum age the data version is checked, and
+	 * the document rebuilt if the version has changed.
+	 *
+	 * @return cached document.
+	 */
+	private CachedBody getCachedBody() {
+		CachedBody body = this.cachedBody;
+		if (body != null && System.nanoTime() - body.checkedAtNanos < this.maxAgeNanos) {
+			return body;
+		}
+
+		synchronized (this) {
+			body = this.cachedBody;
+			if (body != null && System.nanoTime() - body.checkedAtNanos < this.maxAgeNanos) {
+				return body;
+			}
+
+			// the version is read before building, so a write racing with the build only causes a further rebuild
+			final long version = this.versionSupplier.getAsLong();
+			if (body != null && body.version == version) {
+				body.checkedAtNanos = System.nanoTime();
+				return body;
+			}
+			body = new CachedBody(version, this.bodySupplier.get());
+			this.cachedBody = body;
+			return body;
+		}
+	}
+
+	/**
+	 * Checks whether an `Accept-Encoding` header permits a gzipped response.
+	 *
+	 * @param withHeader
+	 * 		header value, may be null.
+	 * @return true if gzip is acceptable.
+	 */
+	private static boolean acceptsGzip(final String withHeader) {
+		if (withHeader == null) {
+			return false;
+		}
+
+		for (final String coding : withHeader.split(",")) {
+			final String[] parts = coding.trim()
+					.toLowerCase(Locale.ROOT)
+					.split(";");
+			if (!parts[0].trim()
+					.equals("gzip")) {
+				continue;
+			}
+			for (int i = 1; i < parts.length; i++) {
+				final String parameter = parts[i].replace(" ", "");
+				if (parameter.matches("q=0(\\.0*)?")) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether an `If-None-Match` header matches the given ETag.
+	 *
+	 * @param withHeader
+	 * 		header value, may be null.
+	 * @param withETag
+	 * 		current ETag.
+	 * @return true if the client already holds the current document.
+	 */
+	private static boolean matchesETag(final String withHeader, final String withETag) {
+		if (withHeader == null) {
+			return false;
+		}
+
+		for (final String candidate : withHeader.split(",")) {
+			String tag = candidate.trim();
+			if (tag.equals("*")) {
+				return true;
+			}
+			// If-None-Match uses weak comparison
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals(withETag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A pre-serialised JSON document.
+	 */
+	private static final class CachedBody {
+
+		/**
+		 * Data version the document was built from.
+		 */
+		private final long version;
+
+		/**
+		 * UTF-8 encoded document.
+		 */
+		private final byte[] plainBytes;
+
+		/**
+		 * Gzipped UTF-8 encoded document.
+		 */
+		private final byte[] gzipBytes;
+
+		/**
+		 * Strong ETag of the plain representation.
+		 */
+		private final String plainETag;
+
+		/**
+		 * Strong ETag of the gzipped representation.
+		 */
+		private final String gzipETag;
+
+		/**
+		 * Time the data version was last confirmed to match this document, from {@link System#nanoTime()}.
+		 */
+		private volatile long checkedAtNanos;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withVersion
+		 * 		data version the document was built from.
+		 * @param withJson
+		 * 		JSON document.
+		 */
+		private CachedBody(final long withVersion, final String withJson) {
+			this.version = withVersion;
+			this.plainBytes = withJson.getBytes(StandardCharsets.UTF_8);
+			this.gzipBytes = CachedBody.gzip(this.plainBytes);
+
+			final String digest = CachedBody.digest(this.plainBytes);
+			this.plainETag = "\"" + digest + "\"";
+			this.gzipETag = "\"" + digest + "-gzip\"";
+			this.checkedAtNanos = System.nanoTime();
+		}
+
+		/**
+		 * Returns the gzipped form of the given bytes.
+		 *
+		 * @param withBytes
+		 * 		bytes to compress.
+		 * @return compressed bytes.
+		 */
+		private static byte[] gzip(final byte[] withBytes) {
+			final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(withBytes.length);
+			try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+				gzipOutputStream.write(withBytes);
+			} catch (IOException ex) {
+				throw new RuntimeException(ex);
+			}
+			return outputStream.toByteArray();
+		}
+
+		/**
+		 * Returns a hex encoded digest of the given bytes, truncated to a length suitable for an ETag.
+		 *
+		 * @param withBytes
+		 * 		bytes to digest.
+		 * @return hex digest.
+		 */
+		private static String digest(final byte[] withBytes) {
+			try {
+				final byte[] hash = MessageDigest.getInstance("SHA-256")
+						.digest(withBytes);
+				final StringBuilder builder = new StringBuilder();
+				for (int i = 0; i < ETAG_DIGEST_BYTES; i++) {
+					builder.append(String.format("%02x", hash[i]));
+				}
+				return builder.toString();
+			} catch (NoSuchAlgorithmException ex) {
+				throw new RuntimeException(ex);
+			}
+		}
+	}
+}
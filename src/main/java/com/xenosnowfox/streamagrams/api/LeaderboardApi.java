@@ -0,0 +1,88 @@
+package com.xenosnowfox.streamagrams.api;
+
+import com.xenosnowfox.streamagrams.persistence.LeaderboardEntry;
+import com.xenosnowfox.streamagrams.persistence.LeaderboardRepository;
+import com.xenosnowfox.streamagrams.persistence.LeaderboardStatistics;
+import com.xenosnowfox.streamagrams.utils.JsonUtils;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import spark.Spark;
+
+import java.util.List;
+
+/**
+ * Registers the read-only JSON API used by overlays and bots.
+ */
+@UtilityClass
+public class LeaderboardApi {
+
+	/**
+	 * Path of the leaderboard endpoint.
+	 */
+	public static final String LEADERBOARD_PATH = "/api/leaderboard";
+
+	/**
+	 * Path of the statistics endpoint.
+	 */
+	public static final String STATISTICS_PATH = "/api/stats";
+
+	/**
+	 * Number of entries included in the leaderboard document.
+	 */
+	private static final int LEADERBOARD_SIZE = 100;
+
+	/**
+	 * Registers the API routes with Spark.
+	 *
+	 * @param withRepository
+	 * 		leaderboard repository to serve.
+	 */
+	public void register(@NonNull final LeaderboardRepository withRepository) {
+		Spark.get(LEADERBOARD_PATH, CachedJsonRoute.newInstance(withRepository::getVersion
+				, () -> LeaderboardApi.toJson(withRepository.getTopEntries(LEADERBOARD_SIZE))));
+		Spark.get(STATISTICS_PATH, CachedJsonRoute.newInstance(withRepository::getVersion
+				, () -> LeaderboardApi.toJson(withRepository.getStatistics())));
+	}
+
+	/**
+	 * Serialises leaderboard entries as a JSON document.
+	 *
+	 * @param withEntries
+	 * 		leaderboard entries.
+	 * @return JSON document.
+	 */
+	private String toJson(final List<LeaderboardEntry> withEntries) {
+		final StringBuilder builder = new StringBuilder("{\"entries\":[");
+		for (int i = 0; i < withEntries.size(); i++) {
+			final LeaderboardEntry entry = withEntries.get(i);
+			if (i > 0) {
+				builder.append(',');
+			}
+			builder.append("{\"rank\":")
+					.append(i + 1)
+					.append(",\"username\":")
+					.append(JsonUtils.quote(entry.getUsername()))
+					.append(",\"totalCorrectGuesses\":")
+					.append(entry.getTotalCorrectGuesses())
+					.append(",\"totalGuesses\":")
+					.append(entry.getTotalGuesses())
+					.append('}');
+		}
+		return builder.append("]}")
+				.toString();
+	}
+
+	/**
+	 * Serialises leaderboard statistics as a JSON document.
+	 *
+	 * @param withStatistics
+	 * 		leaderboard statistics.
+	 * @return JSON document.
+	 */
+	private String toJson(final LeaderboardStatistics withStatistics) {
+		return "{\"totalUsers\":" + withStatistics.getTotalUsers()
+				+ ",\"totalCorrectGuesses\":" + withStatistics.getTotalCorrectGuesses()
+				+ ",\"totalGuesses\":" + withStatistics.getTotalGuesses()
+				+ "}";
+	}
+}
@@ -0,0 +1,507 @@
+package com.xenosnowfox.streamagrams.cluster;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ColumnListHandler;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+
+import javax.sql.DataSource;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shares channels between bot instances that use the same database.
+ * <p>
+ * Each channel has a row in the `ChannelLease` table. A node owns a channel while it holds an unexpired lease on it,
+ * and renews its leases on every heartbeat. Every time a lease changes hands its fencing token is incremented, so a
+ * node that has lost a lease can no longer write on behalf of the channel (see {@link ChannelRoundStateStore}).
+ * <p>
+ * On each heartbeat the node also rebalances: it releases channels above its fair share of the live nodes and claims
+ * unowned or expired channels until it reaches its share. Shares are the channel count divided by the live node count,
+ * rounded down, with the remainder going one each to the nodes with the lowest identifiers, so that shares always add
+ * up to the channel count and a joining node is never starved. All timestamps are taken from the database so node
+ * clocks do not need to agree.
+ */
+public class ChannelLeaseManager {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ChannelLeaseManager.class.getName());
+
+	/**
+	 * Default period for which a lease is valid without being renewed.
+	 */
+	private static final Duration DEFAULT_LEASE_DURATION = Duration.ofSeconds(10);
+
+	/**
+	 * Default period between heartbeats.
+	 */
+	private static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofSeconds(3);
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Identifier of this node.
+	 */
+	private final String nodeId;
+
+	/**
+	 * Channels owned by this node, mapped to their fencing token.
+	 */
+	private final Map<String, Long> ownedChannels = new ConcurrentHashMap<>();
+
+	/**
+	 * Period for which a lease is valid without being renewed.
+	 */
+	private Duration leaseDuration = DEFAULT_LEASE_DURATION;
+
+	/**
+	 * Period between heartbeats.
+	 */
+	private Duration heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+
+	/**
+	 * Listener notified when channels are acquired or released.
+	 */
+	private ChannelOwnershipListener ownershipListener = null;
+
+	/**
+	 * Scheduler running the heartbeat.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Returns a new instance with a generated node identifier.
+	 *
+	 * @param withDataSource
+	 * 		DataSource shared by all nodes in the cluster.
+	 * @return new ChannelLeaseManager instance.
+	 */
+	public static ChannelLeaseManager newInstance(@NonNull final DataSource withDataSource) {
+		return new ChannelLeaseManager(withDataSource, ChannelLeaseManager.generateNodeId());
+	}
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource shared by all nodes in the cluster.
+	 * @param withNodeId
+	 * 		identifier of this node, unique within the cluster.
+	 * @return new ChannelLeaseManager instance.
+	 */
+	public static ChannelLeaseManager newInstance(@NonNull final DataSource withDataSource, @NonNull final String withNodeId) {
+		return new ChannelLeaseManager(withDataSource, withNodeId);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource shared by all nodes in the cluster.
+	 * @param withNodeId
+	 * 		identifier of this node.
+	 */
+	private ChannelLeaseManager(final DataSource withDataSource, final String withNodeId) {
+		this.queryRunner = new QueryRunner(withDataSource);
+		this.nodeId = withNodeId;
+	}
+
+	/**
+	 * Defines the period for which a lease is valid without being renewed. This bounds how long an orphaned channel
+	 * waits before another node takes it over.
+	 *
+	 * @param withLeaseDuration
+	 * 		lease duration.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLeaseManager withLeaseDuration(@NonNull final Duration withLeaseDuration) {
+		this.leaseDuration = withLeaseDuration;
+		return this;
+	}
+
+	/**
+	 * Defines the period between heartbeats. Must be comfortably shorter than the lease duration.
+	 *
+	 * @param withHeartbeatInterval
+	 * 		heartbeat interval.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLeaseManager withHeartbeatInterval(@NonNull final Duration withHeartbeatInterval) {
+		this.heartbeatInterval = withHeartbeatInterval;
+		return this;
+	}
+
+	/**
+	 * Defines the listener notified when channels are acquired or released.
+	 *
+	 * @param withListener
+	 * 		Listener.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLeaseManager withOwnershipListener(@NonNull final ChannelOwnershipListener withListener) {
+		this.ownershipListener = withListener;
+		return this;
+	}
+
+	/**
+	 * Returns the identifier of this node.
+	 *
+	 * @return node identifier.
+	 */
+	public String getNodeId() {
+		return this.nodeId;
+	}
+
+	/**
+	 * Returns the channels owned by this node, mapped to their fencing token.
+	 *
+	 * @return owned channels.
+	 */
+	public Map<String, Long> getOwnedChannels() {
+		return Collections.unmodifiableMap(this.ownedChannels);
+	}
+
+	/**
+	 * Adds a channel to the set of channels hosted by the cluster. Adding a channel that already exists has no effect.
+	 *
+	 * @param withChannelName
+	 * 		channel to host.
+	 */
+	public void registerChannel(@NonNull final String withChannelName) {
+		final String channel = ChannelLeaseManager.toKey(withChannelName);
+		try {
+			this.queryRunner.update("INSERT INTO `ChannelLease` (CHANNEL, FENCING_TOKEN) SELECT ?, 0 FROM DUAL"
+							+ " WHERE NOT EXISTS (SELECT 1 FROM `ChannelLease` WHERE CHANNEL = ?);"
+					, channel
+					, channel
+			);
+		} catch (SQLException sqlException) {
+			// another node may have registered the same channel concurrently
+			if (!ChannelLeaseManager.isDuplicateKey(sqlException)) {
+				throw new RuntimeException("Unable to register channel `" + channel + "`.", sqlException);
+			}
+		}
+	}
+
+	/**
+	 * Starts heart-beating and rebalancing in the background.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null) {
+			return;
+		}
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "channel-lease-" + this.nodeId);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				this.heartbeat();
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Channel lease heartbeat failed.", ex);
+			}
+		}, 0, this.heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops heart-beating and releases every lease held by this node so that other nodes can take over immediately.
+	 */
+	public synchronized void stop() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+
+		new ArrayList<>(this.ownedChannels.keySet()).forEach(this::release);
+		try {
+			this.queryRunner.update("DELETE FROM `ClusterNode` WHERE NODE_ID = ?;", this.nodeId);
+		} catch (SQLException sqlException) {
+			LOGGER.log(Level.WARNING, "Unable to deregister node `" + this.nodeId + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Performs a single heartbeat: records this node as alive, renews owned leases and rebalances channels.
+	 */
+	public void heartbeat() {
+		try {
+			this.queryRunner.update("MERGE INTO `ClusterNode` (NODE_ID, HEARTBEAT_AT) KEY (NODE_ID)"
+					+ " VALUES (?, CURRENT_TIMESTAMP());", this.nodeId);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to record heartbeat for node `" + this.nodeId + "`.", sqlException);
+		}
+
+		this.renewLeases();
+		this.rebalance();
+	}
+
+	/**
+	 * Renews every lease owned by this node, dropping any that have been lost to another node.
+	 */
+	private void renewLeases() {
+		for (final Map.Entry<String, Long> entry : new ArrayList<>(this.ownedChannels.entrySet())) {
+			final int updated;
+			try {
+				updated = this.queryRunner.update("UPDATE `ChannelLease`"
+								+ " SET EXPIRES_AT = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP())"
+								+ " WHERE CHANNEL = ? AND OWNER_NODE = ? AND FENCING_TOKEN = ?;"
+						, this.leaseDuration.toMillis()
+						, entry.getKey()
+						, this.nodeId
+						, entry.getValue()
+				);
+			} catch (SQLException sqlException) {
+				throw new RuntimeException("Unable to renew lease for `" + entry.getKey() + "`.", sqlException);
+			}
+
+			if (updated == 0) {
+				LOGGER.warning("Lost lease for channel `" + entry.getKey() + "`.");
+				this.ownedChannels.remove(entry.getKey());
+				this.notifyReleased(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Releases channels above this node's fair share, or claims available channels until it is reached.
+	 */
+	private void rebalance() {
+		final List<String> liveNodes;
+		final Number totalChannels;
+		try {
+			liveNodes = this.queryRunner.query("SELECT NODE_ID FROM `ClusterNode`"
+							+ " WHERE HEARTBEAT_AT >= DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP()) ORDER BY NODE_ID;"
+					, new ColumnListHandler<String>(1)
+					, -this.leaseDuration.toMillis()
+			);
+			totalChannels = this.queryRunner.query("SELECT COUNT(*) FROM `ChannelLease`;", new ScalarHandler<Number>());
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to read cluster membership.", sqlException);
+		}
+
+		final long fairShare = ChannelLeaseManager.getFairShare(totalChannels == null ? 0 : totalChannels.longValue()
+				, liveNodes, this.nodeId);
+
+		if (this.ownedChannels.size() > fairShare) {
+			new ArrayList<>(this.ownedChannels.keySet()).stream()
+					.sorted()
+					.skip(fairShare)
+					.forEach(this::release);
+			return;
+		}
+
+		if (this.ownedChannels.size() < fairShare) {
+			for (final String channel : this.getClaimableChannels()) {
+				if (this.ownedChannels.size() >= fairShare) {
+					break;
+				}
+				this.claim(channel);
+			}
+		}
+	}
+
+	/**
+	 * Returns channels that are not owned by any node, or whose lease has expired.
+	 *
+	 * @return claimable channel names.
+	 */
+	private List<String> getClaimableChannels() {
+		try {
+			return this.queryRunner.query("SELECT CHANNEL FROM `ChannelLease`"
+							+ " WHERE OWNER_NODE IS NULL OR EXPIRES_AT IS NULL OR EXPIRES_AT < CURRENT_TIMESTAMP()"
+							+ " ORDER BY CHANNEL;"
+					, new ColumnListHandler<>(1)
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to list claimable channels.", sqlException);
+		}
+	}
+
+	/**
+	 * Attempts to claim the lease for a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel to claim.
+	 */
+	private void claim(final String withChannelName) {
+		final Number fencingToken;
+		try (Connection connection = this.queryRunner.getDataSource()
+				.getConnection()) {
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				// the conditional update is atomic, so only one node can win a contested channel, and the row lock it
+				// takes is held until commit, so the token read back is the one granted to this node
+				final int updated = this.queryRunner.update(connection, "UPDATE `ChannelLease`"
+								+ " SET OWNER_NODE = ?, FENCING_TOKEN = FENCING_TOKEN + 1"
+								+ ", EXPIRES_AT = DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP())"
+								+ " WHERE CHANNEL = ?"
+								+ " AND (OWNER_NODE IS NULL OR EXPIRES_AT IS NULL OR EXPIRES_AT < CURRENT_TIMESTAMP());"
+						, this.nodeId
+						, this.leaseDuration.toMillis()
+						, withChannelName
+				);
+				fencingToken = updated == 0 ? null : this.queryRunner.query(connection, "SELECT FENCING_TOKEN"
+								+ " FROM `ChannelLease` WHERE CHANNEL = ? AND OWNER_NODE = ?;"
+						, new ScalarHandler<Number>()
+						, withChannelName
+						, this.nodeId
+				);
+				connection.commit();
+			} catch (SQLException | RuntimeException ex) {
+				connection.rollback();
+				throw ex;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to claim channel `" + withChannelName + "`.", sqlException);
+		}
+
+		if (fencingToken == null) {
+			return;
+		}
+
+		LOGGER.info("Node `" + this.nodeId + "` acquired channel `" + withChannelName + "` (token " + fencingToken + ").");
+		this.ownedChannels.put(withChannelName, fencingToken.longValue());
+		if (this.ownershipListener != null) {
+			try {
+				this.ownershipListener.onChannelAcquired(withChannelName, fencingToken.longValue());
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Ownership listener failed for `" + withChannelName + "`.", ex);
+			}
+		}
+	}
+
+	/**
+	 * Releases the lease for a channel owned by this node.
+	 *
+	 * @param withChannelName
+	 * 		channel to release.
+	 */
+	private void release(final String withChannelName) {
+		final Long fencingToken = this.ownedChannels.remove(withChannelName);
+		if (fencingToken == null) {
+			return;
+		}
+
+		// notify first so the channel stops being served before another node can claim it
+		this.notifyReleased(withChannelName);
+		try {
+			this.queryRunner.update("UPDATE `ChannelLease` SET OWNER_NODE = NULL, EXPIRES_AT = NULL"
+							+ " WHERE CHANNEL = ? AND OWNER_NODE = ? AND FENCING_TOKEN = ?;"
+					, withChannelName
+					, this.nodeId
+					, fencingToken
+			);
+		} catch (SQLException sqlException) {
+			// the lease will simply expire
+			LOGGER.log(Level.WARNING, "Unable to release channel `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Notifies the ownership listener that a channel has been released.
+	 *
+	 * @param withChannelName
+	 * 		released channel.
+	 */
+	private void notifyReleased(final String withChannelName) {
+		if (this.ownershipListener == null) {
+			return;
+		}
+
+		try {
+			this.ownershipListener.onChannelReleased(withChannelName);
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Ownership listener failed for `" + withChannelName + "`.", ex);
+		}
+	}
+
+	/**
+	 * Returns the number of channels a node should own. Every live node gets the channel count divided by the live
+	 * node count, rounded down, and the remainder is handed out one each to the nodes with the lowest identifiers.
+	 *
+	 * @param withTotalChannels
+	 * 		number of channels hosted by the cluster.
+	 * @param withLiveNodes
+	 * 		identifiers of the live nodes, in ascending order.
+	 * @param withNodeId
+	 * 		identifier of the node. A node not yet seen as live is counted as an extra node after the others.
+	 * @return fair share of channels.
+	 */
+	static long getFairShare(final long withTotalChannels, @NonNull final List<String> withLiveNodes,
+			@NonNull final String withNodeId) {
+		int index = withLiveNodes.indexOf(withNodeId);
+		final int nodes;
+		if (index < 0) {
+			index = withLiveNodes.size();
+			nodes = withLiveNodes.size() + 1;
+		} else {
+			nodes = withLiveNodes.size();
+		}
+		return withTotalChannels / nodes + (index < withTotalChannels % nodes ? 1 : 0);
+	}
+
+	/**
+	 * Normalises a channel name into the key used by the lease and round state tables.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @return channel key.
+	 */
+	static String toKey(final String withChannelName) {
+		return withChannelName.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Checks whether an exception was caused by a primary key violation.
+	 *
+	 * @param withException
+	 * 		exception to inspect.
+	 * @return true if the exception is a duplicate key violation.
+	 */
+	static boolean isDuplicateKey(final SQLException withException) {
+		return "23505".equals(withException.getSQLState());
+	}
+
+	/**
+	 * Generates a node identifier from the host name and a random suffix.
+	 *
+	 * @return node identifier.
+	 */
+	private static String generateNodeId() {
+		String hostName;
+		try {
+			hostName = InetAddress.getLocalHost()
+					.getHostName();
+		} catch (UnknownHostException ex) {
+			hostName = "node";
+		}
+		return hostName + "-" + UUID.randomUUID()
+				.toString()
+				.substring(0, 8);
+	}
+}
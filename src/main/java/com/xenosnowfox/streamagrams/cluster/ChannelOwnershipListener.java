@@ -0,0 +1,25 @@
+package com.xenosnowfox.streamagrams.cluster;
+
+/**
+ * Listener callback for changes in which channels this node owns.
+ */
+public interface ChannelOwnershipListener {
+
+	/**
+	 * Called when this node acquires the lease for a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel that was acquired.
+	 * @param withFencingToken
+	 * 		fencing token of the lease, used to guard writes made on behalf of the channel.
+	 */
+	void onChannelAcquired(String withChannelName, long withFencingToken);
+
+	/**
+	 * Called when this node releases, or loses, the lease for a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel that was released.
+	 */
+	void onChannelReleased(String withChannelName);
+}
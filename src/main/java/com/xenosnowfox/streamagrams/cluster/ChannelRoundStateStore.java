@@ -0,0 +1,155 @@
+package com.xenosnowfox.streamagrams.cluster;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Stores per-channel round state in the shared database so that a node taking over a channel can resume its round.
+ * <p>
+ * All writes are guarded by the fencing token of the writer's lease. A node whose lease has been taken over holds a
+ * stale token, so its writes are rejected rather than overwriting the new owner's state.
+ * <p>
+ * Channel names are matched case-insensitively, in the same way as {@link ChannelLeaseManager#registerChannel(String)}.
+ */
+public class ChannelRoundStateStore {
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource shared by all nodes in the cluster.
+	 * @return new ChannelRoundStateStore instance.
+	 */
+	public static ChannelRoundStateStore newInstance(@NonNull final DataSource withDataSource) {
+		return new ChannelRoundStateStore(withDataSource);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource shared by all nodes in the cluster.
+	 */
+	private ChannelRoundStateStore(final DataSource withDataSource) {
+		this.queryRunner = new QueryRunner(withDataSource);
+	}
+
+	/**
+	 * Returns the last saved round state for a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @return saved state, if any.
+	 */
+	public Optional<String> load(@NonNull final String withChannelName) {
+		try {
+			return Optional.ofNullable(this.queryRunner.query("SELECT STATE FROM `ChannelRoundState` WHERE CHANNEL = ?;"
+					, new ScalarHandler<String>()
+					, ChannelLeaseManager.toKey(withChannelName)
+			));
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to load round state for `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Saves the round state for a channel, provided the given fencing token still holds the channel's lease.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withFencingToken
+	 * 		fencing token of the writer's lease.
+	 * @param withState
+	 * 		serialised round state.
+	 * @return true if the state was saved, false if the writer no longer owns the channel.
+	 */
+	public boolean save(@NonNull final String withChannelName, final long withFencingToken, @NonNull final String withState) {
+		final String channel = ChannelLeaseManager.toKey(withChannelName);
+		try {
+			final int updated = this.queryRunner.update("UPDATE `ChannelRoundState`"
+							+ " SET STATE = ?, FENCING_TOKEN = ?, UPDATED_AT = CURRENT_TIMESTAMP()"
+							+ " WHERE CHANNEL = ? AND FENCING_TOKEN <= ?"
+							+ " AND EXISTS (" + ChannelRoundStateStore.currentLeaseCondition() + ");"
+					, withState
+					, withFencingToken
+					, channel
+					, withFencingToken
+					, channel
+					, withFencingToken
+			);
+			if (updated > 0) {
+				return true;
+			}
+
+			return this.queryRunner.update("INSERT INTO `ChannelRoundState` (CHANNEL, FENCING_TOKEN, STATE, UPDATED_AT)"
+							+ " SELECT ?, ?, ?, CURRENT_TIMESTAMP() FROM DUAL"
+							+ " WHERE EXISTS (" + ChannelRoundStateStore.currentLeaseCondition() + ");"
+					, channel
+					, withFencingToken
+					, withState
+					, channel
+					, withFencingToken
+			) > 0;
+		} catch (SQLException sqlException) {
+			// the row exists, so the update above was rejected by a newer fencing token
+			if (ChannelLeaseManager.isDuplicateKey(sqlException)) {
+				return false;
+			}
+			throw new RuntimeException("Unable to save round state for `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Claims the right to announce the winner of a round. Only the first claim for a round succeeds, and only while
+	 * the claimant still holds the channel's lease, so a winner is never announced twice across a failover.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withRoundId
+	 * 		identifier of the round.
+	 * @param withFencingToken
+	 * 		fencing token of the claimant's lease.
+	 * @return true if the caller should announce the winner.
+	 */
+	public boolean claimWinnerAnnouncement(@NonNull final String withChannelName, @NonNull final String withRoundId,
+			final long withFencingToken) {
+		final String channel = ChannelLeaseManager.toKey(withChannelName);
+		try {
+			return this.queryRunner.update("INSERT INTO `RoundAnnouncement` (CHANNEL, ROUND_ID, FENCING_TOKEN, ANNOUNCED_AT)"
+							+ " SELECT ?, ?, ?, CURRENT_TIMESTAMP() FROM DUAL"
+							+ " WHERE EXISTS (" + ChannelRoundStateStore.currentLeaseCondition() + ");"
+					, channel
+					, withRoundId
+					, withFencingToken
+					, channel
+					, withFencingToken
+			) > 0;
+		} catch (SQLException sqlException) {
+			if (ChannelLeaseManager.isDuplicateKey(sqlException)) {
+				return false;
+			}
+			throw new RuntimeException("Unable to claim announcement for round `" + withRoundId + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Returns a sub-query condition that holds while the given channel and fencing token identify an unexpired lease.
+	 * Takes the channel name and fencing token as parameters.
+	 *
+	 * @return SQL condition.
+	 */
+	private static String currentLeaseCondition() {
+		return "SELECT 1 FROM `ChannelLease` WHERE CHANNEL = ? AND FENCING_TOKEN = ?"
+				+ " AND EXPIRES_AT >= CURRENT_TIMESTAMP()";
+	}
+}
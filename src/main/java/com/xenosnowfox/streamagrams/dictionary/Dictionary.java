@@ -0,0 +1,229 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Word list of a single locale, indexed by letter signature so that both membership and anagram lookups are a single
+ * hash lookup.
+ * <p>
+ * Instances are immutable once built and safe to share between channels.
+ */
+public class Dictionary {
+
+	/**
+	 * Rough per-entry overhead of the index, in bytes, used when estimating its size.
+	 */
+	private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+	/**
+	 * Rough per-word overhead of a string, in bytes, used when estimating its size.
+	 */
+	private static final long WORD_OVERHEAD_BYTES = 40;
+
+	/**
+	 * Locale of the words.
+	 */
+	@Getter
+	private final Locale locale;
+
+	/**
+	 * Whether combining marks are removed before comparing words.
+	 */
+	@Getter
+	private final boolean foldAccents;
+
+	/**
+	 * Normalised words, keyed by letter signature.
+	 */
+	private final Map<String, String[]> index;
+
+	/**
+	 * Number of distinct words.
+	 */
+	@Getter
+	private final int wordCount;
+
+	/**
+	 * Estimated heap used by the index, in bytes.
+	 */
+	@Getter
+	private final long estimatedBytes;
+
+	/**
+	 * Returns a new builder.
+	 *
+	 * @param withLocale
+	 * 		locale of the words.
+	 * @param withFoldAccents
+	 * 		whether combining marks are removed before comparing words.
+	 * @return new Builder instance.
+	 */
+	public static Builder builder(@NonNull final Locale withLocale, final boolean withFoldAccents) {
+		return new Builder(withLocale, withFoldAccents);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withBuilder
+	 * 		builder holding the words.
+	 */
+	private Dictionary(final Builder withBuilder) {
+		this.locale = withBuilder.locale;
+		this.foldAccents = withBuilder.foldAccents;
+		this.index = new HashMap<>((int) (withBuilder.index.size() / 0.75f) + 1);
+
+		int words = 0;
+		long bytes = 0;
+		for (Map.Entry<String, List<String>> entry : withBuilder.index.entrySet()) {
+			final String[] anagrams = entry.getValue()
+					.toArray(String[]::new);
+			this.index.put(entry.getKey(), anagrams);
+			words += anagrams.length;
+			bytes += ENTRY_OVERHEAD_BYTES + WORD_OVERHEAD_BYTES + entry.getKey()
+					.length() * 2L;
+			for (String word : anagrams) {
+				bytes += WORD_OVERHEAD_BYTES + word.length() * 2L;
+			}
+		}
+		this.wordCount = words;
+		this.estimatedBytes = bytes;
+	}
+
+	/**
+	 * Returns the normalised form of a word, as stored in this dictionary.
+	 *
+	 * @param withWord
+	 * 		word.
+	 * @return normalised word.
+	 */
+	public String normalise(@NonNull final String withWord) {
+		return LetterSignature.normalise(withWord, this.locale, this.foldAccents);
+	}
+
+	/**
+	 * Returns the letter signature of a word under this dictionary's locale.
+	 *
+	 * @param withWord
+	 * 		word.
+	 * @return letter signature.
+	 */
+	public String signatureOf(@NonNull final String withWord) {
+		return LetterSignature.of(withWord, this.locale, this.foldAccents);
+	}
+
+	/**
+	 * Checks whether a word is in this dictionary.
+	 *
+	 * @param withWord
+	 * 		word, in any case or normalisation form.
+	 * @return true if the word is known.
+	 */
+	public boolean contains(@NonNull final String withWord) {
+		final String[] anagrams = this.index.get(this.signatureOf(withWord));
+		if (anagrams == null) {
+			return false;
+		}
+
+		final String word = this.normalise(withWord);
+		for (String anagram : anagrams) {
+			if (anagram.equals(word)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns every word made up of exactly the given letters.
+	 *
+	 * @param withLetters
+	 * 		letters, in any order.
+	 * @return normalised words, possibly empty.
+	 */
+	public List<String> getAnagrams(@NonNull final String withLetters) {
+		final String[] anagrams = this.index.get(this.signatureOf(withLetters));
+		return anagrams == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(anagrams));
+	}
+
+	@Override
+	public String toString() {
+		return "Dictionary{locale=" + this.locale.toLanguageTag() + ", words=" + this.wordCount + ", estimatedBytes="
+				+ this.estimatedBytes + "}";
+	}
+
+	/**
+	 * Builder collecting the words of a dictionary.
+	 */
+	public static final class Builder {
+
+		/**
+		 * Locale of the words.
+		 */
+		private final Locale locale;
+
+		/**
+		 * Whether combining marks are removed before comparing words.
+		 */
+		private final boolean foldAccents;
+
+		/**
+		 * Normalised words collected so far, keyed by letter signature.
+		 */
+		private final Map<String, List<String>> index = new HashMap<>();
+
+		/**
+		 * Hidden constructor.
+		 *
+		 * @param withLocale
+		 * 		locale of the words.
+		 * @param withFoldAccents
+		 * 		whether combining marks are removed before comparing words.
+		 */
+		private Builder(final Locale withLocale, final boolean withFoldAccents) {
+			this.locale = withLocale;
+			this.foldAccents = withFoldAccents;
+		}
+
+		/**
+		 * Adds a word. Blank lines and lines starting with `#` are ignored, as are duplicates.
+		 *
+		 * @param withWord
+		 * 		word.
+		 * @return this instance to allow for method chaining.
+		 */
+		public Builder withWord(@NonNull final String withWord) {
+			final String word = LetterSignature.normalise(withWord, this.locale, this.foldAccents);
+			if (word.isEmpty() || word.startsWith("#")) {
+				return this;
+			}
+
+			final List<String> letters = LetterSignature.letters(word);
+			Collections.sort(letters);
+			final List<String> anagrams = this.index.computeIfAbsent(String.join("", letters),
+					key -> new ArrayList<>(1));
+			if (!anagrams.contains(word)) {
+				anagrams.add(word);
+			}
+			return this;
+		}
+
+		/**
+		 * Builds the dictionary.
+		 *
+		 * @return new Dictionary instance.
+		 */
+		public Dictionary build() {
+			return new Dictionary(this);
+		}
+	}
+}
@@ -0,0 +1,394 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Size-bounded cache of dictionaries, loading each locale lazily on first use and evicting the least recently used
+ * locales once the estimated size of the cached dictionaries exceeds a budget.
+ * <p>
+ * Concurrent requests for a locale that is not yet cached share a single load. The most recently used dictionary is
+ * always kept, even if it alone exceeds the budget.
+ */
+public class DictionaryCache {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(DictionaryCache.class.getName());
+
+	/**
+	 * Default budget for cached dictionaries, in bytes.
+	 */
+	private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+	/**
+	 * Loader used for locales that are not cached.
+	 */
+	private final DictionaryLoader loader;
+
+	/**
+	 * Cached dictionaries in access order, least recently used first. Guarded by its own monitor.
+	 */
+	private final LinkedHashMap<Locale, Dictionary> dictionaries = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Loads currently in progress, keyed by locale.
+	 */
+	private final Map<Locale, CompletableFuture<Dictionary>> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Budget for cached dictionaries, in bytes.
+	 */
+	@Getter
+	private long maxBytes = DEFAULT_MAX_BYTES;
+
+	/**
+	 * Whether combining marks are removed before comparing words.
+	 */
+	@Getter
+	private boolean foldAccents = false;
+
+	/**
+	 * Estimated size of the cached dictionaries, in bytes. Guarded by the monitor of {@link #dictionaries}.
+	 */
+	private long currentBytes = 0;
+
+	/**
+	 * Number of lookups answered from the cache.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * Number of lookups that required a load, including those that joined a load already in progress.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Number of completed loads.
+	 */
+	private final AtomicLong loads = new AtomicLong();
+
+	/**
+	 * Number of failed loads.
+	 */
+	private final AtomicLong loadFailures = new AtomicLong();
+
+	/**
+	 * Total time spent loading, in nanoseconds.
+	 */
+	private final AtomicLong loadNanos = new AtomicLong();
+
+	/**
+	 * Number of dictionaries evicted.
+	 */
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withLoader
+	 * 		loader used for locales that are not cached.
+	 * @return new DictionaryCache instance.
+	 */
+	public static DictionaryCache newInstance(@NonNull final DictionaryLoader withLoader) {
+		return new DictionaryCache(withLoader);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withLoader
+	 * 		loader used for locales that are not cached.
+	 */
+	private DictionaryCache(final DictionaryLoader withLoader) {
+		this.loader = withLoader;
+	}
+
+	/**
+	 * Defines the budget for cached dictionaries.
+	 *
+	 * @param withMaxBytes
+	 * 		maximum estimated size, in bytes.
+	 * @return this instance to allow for method chaining.
+	 */
+	public DictionaryCache withMaxBytes(final long withMaxBytes) {
+		if (withMaxBytes <= 0) {
+			throw new IllegalArgumentException("Maximum size must be positive.");
+		}
+		this.maxBytes = withMaxBytes;
+		this.evict();
+		return this;
+	}
+
+	/**
+	 * Defines whether combining marks are removed before comparing words, so that e.g. `é` matches `e`. Only affects
+	 * dictionaries loaded afterwards.
+	 *
+	 * @param withFoldAccents
+	 * 		whether accents are folded.
+	 * @return this instance to allow for method chaining.
+	 */
+	public DictionaryCache withFoldAccents(final boolean withFoldAccents) {
+		this.foldAccents = withFoldAccents;
+		return this;
+	}
+
+	/**
+	 * Returns the dictionary of a locale, loading it if it is not cached.
+	 *
+	 * @param withLocale
+	 * 		locale.
+	 * @return dictionary.
+	 * @throws IllegalArgumentException
+	 * 		if no word list exists for the locale.
+	 */
+	public Dictionary get(@NonNull final Locale withLocale) {
+		synchronized (this.dictionaries) {
+			final Dictionary cached = this.dictionaries.get(withLocale);
+			if (cached != null) {
+				this.hits.incrementAndGet();
+				return cached;
+			}
+		}
+		this.misses.incrementAndGet();
+
+		final CompletableFuture<Dictionary> future = new CompletableFuture<>();
+		final CompletableFuture<Dictionary> existing = this.pending.putIfAbsent(withLocale, future);
+		if (existing != null) {
+			return DictionaryCache.join(existing);
+		}
+
+		try {
+			// another thread may have finished loading between the cache check and registering this load
+			Dictionary dictionary;
+			synchronized (this.dictionaries) {
+				dictionary = this.dictionaries.get(withLocale);
+			}
+			if (dictionary == null) {
+				dictionary = this.load(withLocale);
+			}
+			future.complete(dictionary);
+			return dictionary;
+		} catch (RuntimeException ex) {
+			future.completeExceptionally(ex);
+			throw ex;
+		} finally {
+			this.pending.remove(withLocale, future);
+		}
+	}
+
+	/**
+	 * Checks whether a locale is currently cached, without affecting its recency.
+	 *
+	 * @param withLocale
+	 * 		locale.
+	 * @return true if the locale's dictionary is cached.
+	 */
+	public boolean isCached(@NonNull final Locale withLocale) {
+		synchronized (this.dictionaries) {
+			return this.dictionaries.containsKey(withLocale);
+		}
+	}
+
+	/**
+	 * Removes a locale from the cache.
+	 *
+	 * @param withLocale
+	 * 		locale.
+	 */
+	public void invalidate(@NonNull final Locale withLocale) {
+		synchronized (this.dictionaries) {
+			final Dictionary removed = this.dictionaries.remove(withLocale);
+			if (removed != null) {
+				this.currentBytes -= removed.getEstimatedBytes();
+			}
+		}
+	}
+
+	/**
+	 * Returns the locales currently cached, least recently used first.
+	 *
+	 * @return cached locales.
+	 */
+	public List<Locale> getCachedLocales() {
+		synchronized (this.dictionaries) {
+			return new ArrayList<>(this.dictionaries.keySet());
+		}
+	}
+
+	/**
+	 * Returns the estimated size of the cached dictionaries.
+	 *
+	 * @return size in bytes.
+	 */
+	public long getCurrentBytes() {
+		synchronized (this.dictionaries) {
+			return this.currentBytes;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return hit count.
+	 */
+	public long getHitCount() {
+		return this.hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that required a load.
+	 *
+	 * @return miss count.
+	 */
+	public long getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * Returns the proportion of lookups answered from the cache.
+	 *
+	 * @return hit rate between 0 and 1.
+	 */
+	public double getHitRate() {
+		final long hitCount = this.hits.get();
+		final long total = hitCount + this.misses.get();
+		return total == 0 ? 0 : (double) hitCount / total;
+	}
+
+	/**
+	 * Returns the number of completed loads.
+	 *
+	 * @return load count.
+	 */
+	public long getLoadCount() {
+		return this.loads.get();
+	}
+
+	/**
+	 * Returns the number of failed loads.
+	 *
+	 * @return failure count.
+	 */
+	public long getLoadFailureCount() {
+		return this.loadFailures.get();
+	}
+
+	/**
+	 * Returns the total time spent loading dictionaries.
+	 *
+	 * @return load time in nanoseconds.
+	 */
+	public long getTotalLoadNanos() {
+		return this.loadNanos.get();
+	}
+
+	/**
+	 * Returns the mean time taken by a completed load.
+	 *
+	 * @return mean load time in milliseconds.
+	 */
+	public double getAverageLoadMillis() {
+		final long loadCount = this.loads.get();
+		return loadCount == 0 ? 0 : this.loadNanos.get() / 1_000_000.0 / loadCount;
+	}
+
+	/**
+	 * Returns the number of dictionaries evicted.
+	 *
+	 * @return eviction count.
+	 */
+	public long getEvictionCount() {
+		return this.evictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "DictionaryCache{cached=%s, bytes=%d/%d, hitRate=%.3f, loads=%d, failures=%d"
+						+ ", avgLoadMillis=%.1f, evictions=%d}"
+				, this.getCachedLocales(), this.getCurrentBytes(), this.maxBytes, this.getHitRate(), this.getLoadCount()
+				, this.getLoadFailureCount(), this.getAverageLoadMillis(), this.getEvictionCount());
+	}
+
+	/**
+	 * Loads a dictionary and adds it to the cache, evicting others if needed.
+	 *
+	 * @param withLocale
+	 * 		locale.
+	 * @return loaded dictionary.
+	 */
+	private Dictionary load(final Locale withLocale) {
+		final long start = System.nanoTime();
+		final Dictionary dictionary;
+		try {
+			dictionary = this.loader.load(withLocale, this.foldAccents);
+		} catch (RuntimeException ex) {
+			this.loadFailures.incrementAndGet();
+			throw ex;
+		}
+		final long elapsed = System.nanoTime() - start;
+		this.loads.incrementAndGet();
+		this.loadNanos.addAndGet(elapsed);
+		LOGGER.info(() -> "Loaded " + dictionary + " in " + elapsed / 1_000_000 + " ms.");
+
+		synchronized (this.dictionaries) {
+			final Dictionary replaced = this.dictionaries.put(withLocale, dictionary);
+			if (replaced != null) {
+				this.currentBytes -= replaced.getEstimatedBytes();
+			}
+			this.currentBytes += dictionary.getEstimatedBytes();
+		}
+		this.evict();
+		return dictionary;
+	}
+
+	/**
+	 * Evicts least recently used dictionaries until the cache is within budget, always keeping the most recent one.
+	 */
+	private void evict() {
+		synchronized (this.dictionaries) {
+			final Iterator<Map.Entry<Locale, Dictionary>> iterator = this.dictionaries.entrySet()
+					.iterator();
+			while (this.currentBytes > this.maxBytes && this.dictionaries.size() > 1 && iterator.hasNext()) {
+				final Map.Entry<Locale, Dictionary> eldest = iterator.next();
+				iterator.remove();
+				this.currentBytes -= eldest.getValue()
+						.getEstimatedBytes();
+				this.evictions.incrementAndGet();
+				LOGGER.info(() -> "Evicted dictionary " + eldest.getKey()
+						.toLanguageTag() + ".");
+			}
+		}
+	}
+
+	/**
+	 * Waits for a load started by another thread.
+	 *
+	 * @param withFuture
+	 * 		pending load.
+	 * @return loaded dictionary.
+	 */
+	private static Dictionary join(final CompletableFuture<Dictionary> withFuture) {
+		try {
+			return withFuture.join();
+		} catch (CompletionException ex) {
+			if (ex.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) ex.getCause();
+			}
+			throw ex;
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import com.xenosnowfox.streamagrams.utils.ResourceUtils;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Source of dictionaries, loading the word list of a locale on demand.
+ * <p>
+ * Word lists are UTF-8 text with one word per line, named after the locale's language tag, e.g. `de-DE.txt`.
+ */
+@FunctionalInterface
+public interface DictionaryLoader {
+
+	/**
+	 * Loads the dictionary of a locale.
+	 *
+	 * @param withLocale
+	 * 		locale.
+	 * @param withFoldAccents
+	 * 		whether combining marks are removed before comparing words.
+	 * @return loaded dictionary.
+	 * @throws IllegalArgumentException
+	 * 		if no word list exists for the locale.
+	 */
+	Dictionary load(Locale withLocale, boolean withFoldAccents);
+
+	/**
+	 * Returns a loader reading word lists from the classpath, streaming them line by line.
+	 *
+	 * @param withDirectory
+	 * 		resource directory, e.g. `/dictionaries`.
+	 * @return new DictionaryLoader instance.
+	 */
+	static DictionaryLoader fromResources(@NonNull final String withDirectory) {
+		return (locale, foldAccents) -> {
+			final String resource = withDirectory + "/" + locale.toLanguageTag() + ".txt";
+			if (!ResourceUtils.exists(resource)) {
+				throw new IllegalArgumentException("No dictionary resource `" + resource + "`.");
+			}
+
+			final Dictionary.Builder builder = Dictionary.builder(locale, foldAccents);
+			ResourceUtils.forEachLine(resource, builder::withWord);
+			return builder.build();
+		};
+	}
+
+	/**
+	 * Returns a loader reading word lists from a directory on disk. Files are memory-mapped and decoded in place, so
+	 * the raw file never needs to be copied onto the heap.
+	 *
+	 * @param withDirectory
+	 * 		directory holding the word lists.
+	 * @return new DictionaryLoader instance.
+	 */
+	static DictionaryLoader fromDirectory(@NonNull final Path withDirectory) {
+		return (locale, foldAccents) -> {
+			final Path file = withDirectory.resolve(locale.toLanguageTag() + ".txt");
+			if (!Files.isRegularFile(file)) {
+				throw new IllegalArgumentException("No dictionary file `" + file + "`.");
+			}
+
+			final Dictionary.Builder builder = Dictionary.builder(locale, foldAccents);
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				int start = 0;
+				for (int i = 0; i <= mapped.limit(); i++) {
+					if (i == mapped.limit() || mapped.get(i) == '\n') {
+						int end = i;
+						if (end > start && mapped.get(end - 1) == '\r') {
+							end--;
+						}
+						if (end > start) {
+							final ByteBuffer line = mapped.duplicate()
+									.position(start)
+									.limit(end);
+							final CharBuffer chars = StandardCharsets.UTF_8.decode(line);
+							builder.withWord(chars.toString());
+						}
+						start = i + 1;
+					}
+				}
+			} catch (IOException ex) {
+				throw new RuntimeException("Unable to read dictionary file `" + file + "`.", ex);
+			}
+			return builder.build();
+		};
+	}
+}
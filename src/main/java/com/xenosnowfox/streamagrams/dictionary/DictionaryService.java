@@ -0,0 +1,116 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-channel dictionary selection. Each channel plays in a locale of its own choosing, falling back to a default, and
+ * the matching dictionary is fetched from a shared {@link DictionaryCache} so that only locales in use are held in
+ * memory.
+ */
+public class DictionaryService {
+
+	/**
+	 * Cache the dictionaries are fetched from.
+	 */
+	@Getter
+	private final DictionaryCache cache;
+
+	/**
+	 * Locale of channels that have not selected one.
+	 */
+	@Getter
+	private Locale defaultLocale = Locale.ENGLISH;
+
+	/**
+	 * Selected locales, keyed by lower-cased channel name.
+	 */
+	private final Map<String, Locale> channelLocales = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withCache
+	 * 		cache the dictionaries are fetched from.
+	 * @return new DictionaryService instance.
+	 */
+	public static DictionaryService newInstance(@NonNull final DictionaryCache withCache) {
+		return new DictionaryService(withCache);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withCache
+	 * 		cache the dictionaries are fetched from.
+	 */
+	private DictionaryService(final DictionaryCache withCache) {
+		this.cache = withCache;
+	}
+
+	/**
+	 * Defines the locale of channels that have not selected one.
+	 *
+	 * @param withLocale
+	 * 		default locale.
+	 * @return this instance to allow for method chaining.
+	 */
+	public DictionaryService withDefaultLocale(@NonNull final Locale withLocale) {
+		this.defaultLocale = withLocale;
+		return this;
+	}
+
+	/**
+	 * Selects the locale a channel plays in. The dictionary is not loaded until it is first used.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @param withLocale
+	 * 		locale, or null to revert to the default.
+	 */
+	public void setLocale(@NonNull final String withChannelName, final Locale withLocale) {
+		if (withLocale == null) {
+			this.channelLocales.remove(DictionaryService.toKey(withChannelName));
+		} else {
+			this.channelLocales.put(DictionaryService.toKey(withChannelName), withLocale);
+		}
+	}
+
+	/**
+	 * Returns the locale a channel plays in.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return selected locale, or the default.
+	 */
+	public Locale getLocale(@NonNull final String withChannelName) {
+		return this.channelLocales.getOrDefault(DictionaryService.toKey(withChannelName), this.defaultLocale);
+	}
+
+	/**
+	 * Returns the dictionary of the locale a channel plays in, loading it if needed.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return dictionary.
+	 */
+	public Dictionary forChannel(@NonNull final String withChannelName) {
+		return this.cache.get(this.getLocale(withChannelName));
+	}
+
+	/**
+	 * Normalises a channel name.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return normalised channel name.
+	 */
+	private static String toKey(final String withChannelName) {
+		final String name = withChannelName.startsWith("#") ? withChannelName.substring(1) : withChannelName;
+		return name.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,105 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Utility class for computing the letter signature of a word: its letters in sorted order, so that anagrams share a
+ * signature.
+ * <p>
+ * Words are normalised to NFC and lower-cased using the dictionary's locale (so e.g. Turkish dotted and dotless i stay
+ * distinct). A letter is a base character together with any combining marks following it, so letters without a
+ * precomposed form still count as a single letter. `ß` is kept as one letter rather than expanded to `ss`. When accent
+ * folding is enabled, combining marks are stripped so that e.g. `é` and `e` are interchangeable.
+ */
+@UtilityClass
+public class LetterSignature {
+
+	/**
+	 * Returns the normalised form of a word, as used for lookups.
+	 *
+	 * @param withWord
+	 * 		word.
+	 * @param withLocale
+	 * 		locale of the word.
+	 * @param withFoldAccents
+	 * 		whether combining marks should be removed.
+	 * @return normalised word.
+	 */
+	public String normalise(@NonNull final String withWord, @NonNull final Locale withLocale,
+			final boolean withFoldAccents) {
+		String word = withWord.strip();
+		if (withFoldAccents) {
+			final String decomposed = Normalizer.normalize(word, Normalizer.Form.NFD);
+			final StringBuilder builder = new StringBuilder(decomposed.length());
+			decomposed.codePoints()
+					.filter(codePoint -> !LetterSignature.isMark(codePoint))
+					.forEach(builder::appendCodePoint);
+			word = builder.toString();
+		}
+		return Normalizer.normalize(word, Normalizer.Form.NFC)
+				.toLowerCase(withLocale);
+	}
+
+	/**
+	 * Returns the letters of a normalised word, each a base character followed by its combining marks.
+	 *
+	 * @param withNormalisedWord
+	 * 		word produced by {@link #normalise(String, Locale, boolean)}.
+	 * @return letters in order of appearance.
+	 */
+	public List<String> letters(@NonNull final String withNormalisedWord) {
+		final List<String> letters = new ArrayList<>(withNormalisedWord.length());
+		final StringBuilder letter = new StringBuilder();
+		withNormalisedWord.codePoints()
+				.forEach(codePoint -> {
+					if (!LetterSignature.isMark(codePoint) && letter.length() > 0) {
+						letters.add(letter.toString());
+						letter.setLength(0);
+					}
+					letter.appendCodePoint(codePoint);
+				});
+		if (letter.length() > 0) {
+			letters.add(letter.toString());
+		}
+		return letters;
+	}
+
+	/**
+	 * Returns the signature of a word.
+	 *
+	 * @param withWord
+	 * 		word.
+	 * @param withLocale
+	 * 		locale of the word.
+	 * @param withFoldAccents
+	 * 		whether combining marks should be removed.
+	 * @return letter signature.
+	 */
+	public String of(@NonNull final String withWord, @NonNull final Locale withLocale, final boolean withFoldAccents) {
+		final List<String> letters = LetterSignature.letters(LetterSignature.normalise(withWord, withLocale,
+				withFoldAccents));
+		Collections.sort(letters);
+		return String.join("", letters);
+	}
+
+	/**
+	 * Checks whether a code point is a combining mark.
+	 *
+	 * @param withCodePoint
+	 * 		code point.
+	 * @return true if the code point combines with the preceding character.
+	 */
+	private boolean isMark(final int withCodePoint) {
+		final int type = Character.getType(withCodePoint);
+		return type == Character.NON_SPACING_MARK
+				|| type == Character.COMBINING_SPACING_MARK
+				|| type == Character.ENCLOSING_MARK;
+	}
+}
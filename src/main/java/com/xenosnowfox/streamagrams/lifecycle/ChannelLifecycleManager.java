@@ -0,0 +1,687 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+import com.xenosnowfox.streamagrams.analytics.QuantileSketch;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessage;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessageListener;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps per-channel state resident only while a channel is active.
+ * <p>
+ * Channels that have not been accessed for the idle threshold are passivated: their state is serialised with a
+ * {@link ChannelStateCodec}, compressed and written to a {@link PassivationStore}, then dropped from memory. If the
+ * estimated size of all resident state exceeds the memory budget, the least recently used channels are passivated
+ * early until it fits again. A passivated channel is rehydrated on the first relevant {@link TwitchIRCMessage}
+ * addressed to it, or on any call to {@link #withState(String, Function)}.
+ *
+ * @param <S>
+ * 		type of the channel state.
+ */
+public class ChannelLifecycleManager<S> implements TwitchIRCMessageListener {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(ChannelLifecycleManager.class.getName());
+
+	/**
+	 * Default time a channel may stay idle before it is passivated.
+	 */
+	private static final Duration DEFAULT_IDLE_THRESHOLD = Duration.ofMinutes(10);
+
+	/**
+	 * Default budget for resident channel state, in bytes.
+	 */
+	private static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+
+	/**
+	 * Shortest interval between idle sweeps.
+	 */
+	private static final long MIN_SWEEP_MILLIS = 1000;
+
+	/**
+	 * Codec converting state to and from bytes.
+	 */
+	private final ChannelStateCodec<S> codec;
+
+	/**
+	 * Store holding passivated state.
+	 */
+	private final PassivationStore store;
+
+	/**
+	 * Creates the state of a channel that has never been seen.
+	 */
+	private final Function<String, S> stateFactory;
+
+	/**
+	 * Resident channels, keyed by normalised channel name.
+	 */
+	private final Map<String, Entry<S>> resident = new ConcurrentHashMap<>();
+
+	/**
+	 * Handler receiving relevant messages together with the channel's state.
+	 */
+	private ChannelMessageHandler<S> messageHandler = null;
+
+	/**
+	 * Decides whether a message should rehydrate its channel and be passed to the handler.
+	 */
+	private Predicate<TwitchIRCMessage> relevance = message -> "PRIVMSG".equalsIgnoreCase(message.getCommand());
+
+	/**
+	 * Clock used to track channel activity.
+	 */
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Time a channel may stay idle before it is passivated.
+	 */
+	@Getter
+	private Duration idleThreshold = DEFAULT_IDLE_THRESHOLD;
+
+	/**
+	 * Budget for resident channel state, in bytes.
+	 */
+	@Getter
+	private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	/**
+	 * Scheduler running idle sweeps.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Estimated size of all resident state, in bytes.
+	 */
+	private final AtomicLong residentBytes = new AtomicLong();
+
+	/**
+	 * Set while the memory budget is being enforced, so only one thread does so at a time.
+	 */
+	private final AtomicBoolean enforcingBudget = new AtomicBoolean();
+
+	/**
+	 * Number of channels passivated.
+	 */
+	private final AtomicLong passivations = new AtomicLong();
+
+	/**
+	 * Number of channels passivated early to stay within the memory budget.
+	 */
+	private final AtomicLong budgetPassivations = new AtomicLong();
+
+	/**
+	 * Number of channels rehydrated from the store.
+	 */
+	private final AtomicLong rehydrations = new AtomicLong();
+
+	/**
+	 * Number of channels created fresh.
+	 */
+	private final AtomicLong creations = new AtomicLong();
+
+	/**
+	 * Total uncompressed bytes passivated.
+	 */
+	private final AtomicLong encodedBytes = new AtomicLong();
+
+	/**
+	 * Total compressed bytes written to the store.
+	 */
+	private final AtomicLong storedBytes = new AtomicLong();
+
+	/**
+	 * Rehydration latencies in microseconds. Guarded by its own monitor.
+	 */
+	private final QuantileSketch rehydrationMicros = new QuantileSketch();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withCodec
+	 * 		codec converting state to and from bytes.
+	 * @param withStore
+	 * 		store holding passivated state.
+	 * @param withStateFactory
+	 * 		creates the state of a channel that has never been seen.
+	 * @param <S>
+	 * 		type of the channel state.
+	 * @return new ChannelLifecycleManager instance.
+	 */
+	public static <S> ChannelLifecycleManager<S> newInstance(@NonNull final ChannelStateCodec<S> withCodec,
+			@NonNull final PassivationStore withStore, @NonNull final Function<String, S> withStateFactory) {
+		return new ChannelLifecycleManager<>(withCodec, withStore, withStateFactory);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withCodec
+	 * 		codec converting state to and from bytes.
+	 * @param withStore
+	 * 		store holding passivated state.
+	 * @param withStateFactory
+	 * 		creates the state of a channel that has never been seen.
+	 */
+	private ChannelLifecycleManager(final ChannelStateCodec<S> withCodec, final PassivationStore withStore,
+			final Function<String, S> withStateFactory) {
+		this.codec = withCodec;
+		this.store = withStore;
+		this.stateFactory = withStateFactory;
+	}
+
+	/**
+	 * Defines the handler receiving relevant messages together with the channel's state.
+	 *
+	 * @param withHandler
+	 * 		message handler.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLifecycleManager<S> withMessageHandler(@NonNull final ChannelMessageHandler<S> withHandler) {
+		this.messageHandler = withHandler;
+		return this;
+	}
+
+	/**
+	 * Defines which messages rehydrate their channel. By default only chat messages do, so joins, parts and other
+	 * traffic never bring an idle channel back into memory.
+	 *
+	 * @param withRelevance
+	 * 		predicate returning true for relevant messages.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLifecycleManager<S> withRelevance(@NonNull final Predicate<TwitchIRCMessage> withRelevance) {
+		this.relevance = withRelevance;
+		return this;
+	}
+
+	/**
+	 * Defines the clock used to track channel activity.
+	 *
+	 * @param withClock
+	 * 		clock.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLifecycleManager<S> withClock(@NonNull final Clock withClock) {
+		this.clock = withClock;
+		return this;
+	}
+
+	/**
+	 * Defines how long a channel may stay idle before it is passivated.
+	 *
+	 * @param withIdleThreshold
+	 * 		idle threshold.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLifecycleManager<S> withIdleThreshold(@NonNull final Duration withIdleThreshold) {
+		if (withIdleThreshold.isNegative() || withIdleThreshold.isZero()) {
+			throw new IllegalArgumentException("Idle threshold must be positive.");
+		}
+		this.idleThreshold = withIdleThreshold;
+		return this;
+	}
+
+	/**
+	 * Defines the budget for resident channel state.
+	 *
+	 * @param withMemoryBudget
+	 * 		maximum estimated size, in bytes.
+	 * @return this instance to allow for method chaining.
+	 */
+	public ChannelLifecycleManager<S> withMemoryBudget(final long withMemoryBudget) {
+		if (withMemoryBudget <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive.");
+		}
+		this.memoryBudget = withMemoryBudget;
+		return this;
+	}
+
+	@Override
+	public void onMessage(final TwitchIRCMessage withMessage) {
+		final ChannelMessageHandler<S> handler = this.messageHandler;
+		if (handler == null
+				|| withMessage.getArguments() == null
+				|| withMessage.getArguments().length == 0
+				|| !withMessage.getArguments()[0].startsWith("#")
+				|| !this.relevance.test(withMessage)) {
+			return;
+		}
+
+		final String channel = ChannelLifecycleManager.toKey(withMessage.getArguments()[0]);
+		this.withState(channel, state -> {
+			handler.onMessage(channel, state, withMessage);
+			return null;
+		});
+	}
+
+	/**
+	 * Runs a function with exclusive access to a channel's state, rehydrating or creating the state first if needed.
+	 * The state must not be retained beyond the call, as the channel may be passivated afterwards.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @param withFunction
+	 * 		function given the channel's state.
+	 * @param <R>
+	 * 		type of the result.
+	 * @return result of the function.
+	 */
+	public <R> R withState(@NonNull final String withChannelName, @NonNull final Function<S, R> withFunction) {
+		final String channel = ChannelLifecycleManager.toKey(withChannelName);
+		R result;
+		while (true) {
+			final Entry<S> entry = this.resident.computeIfAbsent(channel, key -> new Entry<>());
+			synchronized (entry) {
+				if (entry.passivated) {
+					// passivated between the lookup and taking the lock, so look it up again
+					continue;
+				}
+				if (entry.state == null) {
+					entry.state = this.rehydrate(channel);
+				}
+
+				result = withFunction.apply(entry.state);
+				entry.lastAccessMillis = this.clock.millis();
+				final long bytes = this.codec.estimateBytes(entry.state);
+				this.residentBytes.addAndGet(bytes - entry.estimatedBytes);
+				entry.estimatedBytes = bytes;
+			}
+			break;
+		}
+
+		if (this.residentBytes.get() > this.memoryBudget) {
+			this.enforceBudget(channel);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether a channel's state is currently resident.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return true if resident.
+	 */
+	public boolean isResident(@NonNull final String withChannelName) {
+		return this.resident.containsKey(ChannelLifecycleManager.toKey(withChannelName));
+	}
+
+	/**
+	 * Passivates a channel now, regardless of how recently it was used.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return true if the channel was resident.
+	 */
+	public boolean passivate(@NonNull final String withChannelName) {
+		final String channel = ChannelLifecycleManager.toKey(withChannelName);
+		final Entry<S> entry = this.resident.get(channel);
+		return entry != null && this.passivate(channel, entry, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Discards a channel's state, both resident and passivated.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 */
+	public void remove(@NonNull final String withChannelName) {
+		final String channel = ChannelLifecycleManager.toKey(withChannelName);
+		final Entry<S> entry = this.resident.get(channel);
+		if (entry != null) {
+			synchronized (entry) {
+				entry.passivated = true;
+				this.resident.remove(channel, entry);
+				this.residentBytes.addAndGet(-entry.estimatedBytes);
+			}
+		}
+		this.store.delete(channel);
+	}
+
+	/**
+	 * Passivates every channel that has been idle for longer than the idle threshold.
+	 *
+	 * @return number of channels passivated.
+	 */
+	public int sweep() {
+		final long idleBefore = this.clock.millis() - this.idleThreshold.toMillis();
+		int count = 0;
+		for (Map.Entry<String, Entry<S>> entry : this.resident.entrySet()) {
+			if (entry.getValue().lastAccessMillis <= idleBefore
+					&& this.passivate(entry.getKey(), entry.getValue(), idleBefore)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Starts sweeping for idle channels in the background.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null) {
+			return;
+		}
+
+		final long interval = Math.max(MIN_SWEEP_MILLIS, this.idleThreshold.toMillis() / 4);
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "channel-lifecycle-sweep");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				final int count = this.sweep();
+				if (count > 0) {
+					LOGGER.fine(() -> "Passivated " + count + " idle channels.");
+				}
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Channel lifecycle sweep failed.", ex);
+			}
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops background sweeps and passivates every resident channel, so no state is lost on shutdown.
+	 */
+	public synchronized void stop() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+
+		this.resident.forEach((channel, entry) -> this.passivate(channel, entry, Long.MAX_VALUE));
+	}
+
+	/**
+	 * Returns the number of resident channels.
+	 *
+	 * @return resident channel count.
+	 */
+	public int getResidentCount() {
+		return this.resident.size();
+	}
+
+	/**
+	 * Returns the estimated size of all resident state.
+	 *
+	 * @return size in bytes.
+	 */
+	public long getResidentBytes() {
+		return this.residentBytes.get();
+	}
+
+	/**
+	 * Returns the number of channels passivated, including those passivated to stay within the memory budget.
+	 *
+	 * @return passivation count.
+	 */
+	public long getPassivationCount() {
+		return this.passivations.get();
+	}
+
+	/**
+	 * Returns the number of channels passivated early to stay within the memory budget.
+	 *
+	 * @return passivation count.
+	 */
+	public long getBudgetPassivationCount() {
+		return this.budgetPassivations.get();
+	}
+
+	/**
+	 * Returns the number of channels rehydrated from the store.
+	 *
+	 * @return rehydration count.
+	 */
+	public long getRehydrationCount() {
+		return this.rehydrations.get();
+	}
+
+	/**
+	 * Returns the number of channels created fresh because no passivated state existed.
+	 *
+	 * @return creation count.
+	 */
+	public long getCreationCount() {
+		return this.creations.get();
+	}
+
+	/**
+	 * Returns the ratio between the compressed and uncompressed size of passivated state.
+	 *
+	 * @return compression ratio, or 1 if nothing has been passivated.
+	 */
+	public double getCompressionRatio() {
+		final long encoded = this.encodedBytes.get();
+		return encoded == 0 ? 1 : (double) this.storedBytes.get() / encoded;
+	}
+
+	/**
+	 * Returns an estimate of a rehydration latency quantile.
+	 *
+	 * @param withQuantile
+	 * 		quantile between 0 and 1, e.g. 0.99.
+	 * @return latency in milliseconds, or NaN if nothing has been rehydrated.
+	 */
+	public double getRehydrationMillis(final double withQuantile) {
+		synchronized (this.rehydrationMicros) {
+			return this.rehydrationMicros.getQuantile(withQuantile) / 1000.0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "ChannelLifecycleManager{resident=%d, bytes=%d/%d, passivations=%d"
+						+ ", budgetPassivations=%d, rehydrations=%d, creations=%d, compression=%.2f"
+						+ ", rehydrateP50Millis=%.2f, rehydrateP99Millis=%.2f}"
+				, this.getResidentCount(), this.getResidentBytes(), this.memoryBudget, this.getPassivationCount()
+				, this.getBudgetPassivationCount(), this.getRehydrationCount(), this.getCreationCount()
+				, this.getCompressionRatio(), this.getRehydrationMillis(0.5), this.getRehydrationMillis(0.99));
+	}
+
+	/**
+	 * Restores a channel's state from the store, or creates it if none is stored.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @return channel state.
+	 */
+	private S rehydrate(final String withChannelName) {
+		final long start = System.nanoTime();
+		final Optional<byte[]> stored = this.store.load(withChannelName);
+		if (stored.isEmpty()) {
+			this.creations.incrementAndGet();
+			return this.stateFactory.apply(withChannelName);
+		}
+
+		final S state = this.codec.decode(ChannelLifecycleManager.inflate(stored.get()));
+		this.rehydrations.incrementAndGet();
+		synchronized (this.rehydrationMicros) {
+			this.rehydrationMicros.add((System.nanoTime() - start) / 1000.0);
+		}
+		return state;
+	}
+
+	/**
+	 * Passivates a channel, unless it has been accessed since the given time.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @param withEntry
+	 * 		resident entry of the channel.
+	 * @param withIdleBefore
+	 * 		only passivate if last accessed at or before this time.
+	 * @return true if the channel was passivated.
+	 */
+	private boolean passivate(final String withChannelName, final Entry<S> withEntry, final long withIdleBefore) {
+		synchronized (withEntry) {
+			if (withEntry.passivated || withEntry.lastAccessMillis > withIdleBefore) {
+				return false;
+			}
+
+			if (withEntry.state != null) {
+				final byte[] encoded = this.codec.encode(withEntry.state);
+				final byte[] compressed = ChannelLifecycleManager.deflate(encoded);
+				this.store.save(withChannelName, compressed);
+				this.encodedBytes.addAndGet(encoded.length);
+				this.storedBytes.addAndGet(compressed.length);
+			}
+
+			withEntry.passivated = true;
+			withEntry.state = null;
+			this.resident.remove(withChannelName, withEntry);
+			this.residentBytes.addAndGet(-withEntry.estimatedBytes);
+			this.passivations.incrementAndGet();
+			return true;
+		}
+	}
+
+	/**
+	 * Passivates the least recently used channels until resident state fits within the memory budget.
+	 *
+	 * @param withExcludedChannel
+	 * 		channel that was just accessed and must stay resident.
+	 */
+	private void enforceBudget(final String withExcludedChannel) {
+		if (!this.enforcingBudget.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			final List<Map.Entry<String, Entry<S>>> candidates = new ArrayList<>(this.resident.entrySet());
+			candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastAccessMillis));
+			for (Map.Entry<String, Entry<S>> candidate : candidates) {
+				if (this.residentBytes.get() <= this.memoryBudget) {
+					break;
+				}
+				if (!candidate.getKey()
+						.equals(withExcludedChannel)
+						&& this.passivate(candidate.getKey(), candidate.getValue(), Long.MAX_VALUE)) {
+					this.budgetPassivations.incrementAndGet();
+				}
+			}
+		} finally {
+			this.enforcingBudget.set(false);
+		}
+	}
+
+	/**
+	 * Compresses serialised state.
+	 *
+	 * @param withBytes
+	 * 		serialised state.
+	 * @return compressed state.
+	 */
+	private static byte[] deflate(final byte[] withBytes) {
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(withBytes);
+			deflater.finish();
+			final ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, withBytes.length / 2));
+			final byte[] buffer = new byte[4096];
+			while (!deflater.finished()) {
+				output.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decompresses state compressed by {@link #deflate(byte[])}.
+	 *
+	 * @param withBytes
+	 * 		compressed state.
+	 * @return serialised state.
+	 */
+	private static byte[] inflate(final byte[] withBytes) {
+		final Inflater inflater = new Inflater();
+		try (ByteArrayOutputStream output = new ByteArrayOutputStream(withBytes.length * 4)) {
+			inflater.setInput(withBytes);
+			final byte[] buffer = new byte[4096];
+			while (!inflater.finished()) {
+				final int length = inflater.inflate(buffer);
+				if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalStateException("Passivated channel state is truncated.");
+				}
+				output.write(buffer, 0, length);
+			}
+			return output.toByteArray();
+		} catch (DataFormatException | IOException ex) {
+			throw new IllegalStateException("Passivated channel state is corrupt.", ex);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Normalises a channel name.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return normalised channel name.
+	 */
+	private static String toKey(final String withChannelName) {
+		final String name = withChannelName.startsWith("#") ? withChannelName.substring(1) : withChannelName;
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Resident state of a single channel. Fields are guarded by the entry's monitor, except
+	 * {@link #lastAccessMillis}, which sweeps read without locking to skip active channels cheaply.
+	 *
+	 * @param <S>
+	 * 		type of the channel state.
+	 */
+	private static final class Entry<S> {
+
+		/**
+		 * Channel state, or null until it has been rehydrated.
+		 */
+		private S state;
+
+		/**
+		 * Time the channel was last accessed.
+		 */
+		private volatile long lastAccessMillis;
+
+		/**
+		 * Estimated size of the state, in bytes.
+		 */
+		private long estimatedBytes;
+
+		/**
+		 * Whether the entry has been passivated and removed from the resident channels.
+		 */
+		private boolean passivated;
+	}
+}
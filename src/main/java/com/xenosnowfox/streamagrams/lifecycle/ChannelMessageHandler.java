@@ -0,0 +1,25 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessage;
+
+/**
+ * Handles an IRC message addressed to a channel, given that channel's resident state.
+ *
+ * @param <S>
+ * 		type of the channel state.
+ */
+@FunctionalInterface
+public interface ChannelMessageHandler<S> {
+
+	/**
+	 * Called with a message for a channel. The state is held exclusively for the duration of the call.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @param withState
+	 * 		channel state.
+	 * @param withMessage
+	 * 		IRC message.
+	 */
+	void onMessage(String withChannelName, S withState, TwitchIRCMessage withMessage);
+}
@@ -0,0 +1,38 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+/**
+ * Converts per-channel state to and from bytes so that idle channels can be passivated.
+ *
+ * @param <S>
+ * 		type of the channel state.
+ */
+public interface ChannelStateCodec<S> {
+
+	/**
+	 * Serialises channel state. The result is compressed before it is stored, so it need not be compact itself.
+	 *
+	 * @param withState
+	 * 		channel state.
+	 * @return serialised state.
+	 */
+	byte[] encode(S withState);
+
+	/**
+	 * Restores channel state serialised by {@link #encode(Object)}.
+	 *
+	 * @param withBytes
+	 * 		serialised state.
+	 * @return channel state.
+	 */
+	S decode(byte[] withBytes);
+
+	/**
+	 * Estimates the heap held by channel state while it is resident. Called after every access, so it should be
+	 * cheap rather than exact.
+	 *
+	 * @param withState
+	 * 		channel state.
+	 * @return estimated size in bytes.
+	 */
+	long estimateBytes(S withState);
+}
@@ -0,0 +1,74 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Stores passivated channel state in the `PassivatedChannel` table.
+ */
+public class DatabasePassivationStore implements PassivationStore {
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to store channel state in.
+	 * @return new DatabasePassivationStore instance.
+	 */
+	public static DatabasePassivationStore newInstance(@NonNull final DataSource withDataSource) {
+		return new DatabasePassivationStore(withDataSource);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to store channel state in.
+	 */
+	private DatabasePassivationStore(final DataSource withDataSource) {
+		this.queryRunner = new QueryRunner(withDataSource);
+	}
+
+	@Override
+	public void save(@NonNull final String withChannelName, @NonNull final byte[] withState) {
+		try {
+			this.queryRunner.update("MERGE INTO `PassivatedChannel` (CHANNEL, STATE, PASSIVATED_AT)"
+							+ " KEY (CHANNEL) VALUES (?, ?, CURRENT_TIMESTAMP());"
+					, withChannelName
+					, withState
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to passivate channel `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	@Override
+	public Optional<byte[]> load(@NonNull final String withChannelName) {
+		try {
+			return Optional.ofNullable(this.queryRunner.query("SELECT STATE FROM `PassivatedChannel` WHERE CHANNEL = ?;"
+					, resultSet -> resultSet.next() ? resultSet.getBytes(1) : null
+					, withChannelName
+			));
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to load passivated channel `" + withChannelName + "`.", sqlException);
+		}
+	}
+
+	@Override
+	public void delete(@NonNull final String withChannelName) {
+		try {
+			this.queryRunner.update("DELETE FROM `PassivatedChannel` WHERE CHANNEL = ?;", withChannelName);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to delete passivated channel `" + withChannelName + "`.", sqlException);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+/**
+ * Stores passivated channel state as one file per channel in a local directory. Files are written to a temporary name
+ * and then moved into place, so a crash never leaves a partially written state behind.
+ */
+public class FilePassivationStore implements PassivationStore {
+
+	/**
+	 * File extension of stored state.
+	 */
+	private static final String EXTENSION = ".state";
+
+	/**
+	 * Directory holding the state files.
+	 */
+	private final Path directory;
+
+	/**
+	 * Returns a new instance, creating the directory if needed.
+	 *
+	 * @param withDirectory
+	 * 		directory to hold the state files.
+	 * @return new FilePassivationStore instance.
+	 */
+	public static FilePassivationStore newInstance(@NonNull final Path withDirectory) {
+		try {
+			Files.createDirectories(withDirectory);
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to create passivation directory `" + withDirectory + "`.", ex);
+		}
+		return new FilePassivationStore(withDirectory);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDirectory
+	 * 		directory to hold the state files.
+	 */
+	private FilePassivationStore(final Path withDirectory) {
+		this.directory = withDirectory;
+	}
+
+	@Override
+	public void save(@NonNull final String withChannelName, @NonNull final byte[] withState) {
+		final Path file = this.fileOf(withChannelName);
+		final Path temporary;
+		try {
+			temporary = Files.createTempFile(this.directory, "passivate", ".tmp");
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to passivate channel `" + withChannelName + "`.", ex);
+		}
+
+		try {
+			Files.write(temporary, withState);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			// the move did not happen, so the temporary file would otherwise be left behind
+			try {
+				Files.deleteIfExists(temporary);
+			} catch (IOException deleteException) {
+				ex.addSuppressed(deleteException);
+			}
+			throw new RuntimeException("Unable to passivate channel `" + withChannelName + "`.", ex);
+		}
+	}
+
+	@Override
+	public Optional<byte[]> load(@NonNull final String withChannelName) {
+		final Path file = this.fileOf(withChannelName);
+		if (!Files.isRegularFile(file)) {
+			return Optional.empty();
+		}
+
+		try {
+			return Optional.of(Files.readAllBytes(file));
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to load passivated channel `" + withChannelName + "`.", ex);
+		}
+	}
+
+	@Override
+	public void delete(@NonNull final String withChannelName) {
+		try {
+			Files.deleteIfExists(this.fileOf(withChannelName));
+		} catch (IOException ex) {
+			throw new RuntimeException("Unable to delete passivated channel `" + withChannelName + "`.", ex);
+		}
+	}
+
+	/**
+	 * Returns the file holding a channel's state. Channel names are hex-encoded so that any name maps to a safe file
+	 * name.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @return state file.
+	 */
+	private Path fileOf(final String withChannelName) {
+		final StringBuilder name = new StringBuilder();
+		for (byte b : withChannelName.getBytes(StandardCharsets.UTF_8)) {
+			name.append(Character.forDigit((b >> 4) & 0xF, 16))
+					.append(Character.forDigit(b & 0xF, 16));
+		}
+		return this.directory.resolve(name.append(EXTENSION)
+				.toString());
+	}
+}
@@ -0,0 +1,36 @@
+package com.xenosnowfox.streamagrams.lifecycle;
+
+import java.util.Optional;
+
+/**
+ * Storage for the serialised state of passivated channels.
+ */
+public interface PassivationStore {
+
+	/**
+	 * Stores the state of a channel, replacing any previously stored.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @param withState
+	 * 		compressed channel state.
+	 */
+	void save(String withChannelName, byte[] withState);
+
+	/**
+	 * Returns the stored state of a channel.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @return compressed channel state, if stored.
+	 */
+	Optional<byte[]> load(String withChannelName);
+
+	/**
+	 * Removes the stored state of a channel.
+	 *
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 */
+	void delete(String withChannelName);
+}
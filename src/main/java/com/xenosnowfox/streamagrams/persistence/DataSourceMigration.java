@@ -6,17 +6,27 @@ import org.apache.commons.dbutils.handlers.ColumnListHandler;
 import org.apache.commons.dbutils.handlers.ScalarHandler;
 
 import javax.sql.DataSource;
-import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.sql.SQLException;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Helper class that applies database migrations between versions.
@@ -95,19 +105,50 @@ public class DataSourceMigration {
 	}
 
 	/**
-	 * Returns a list of mutation files.
+	 * Returns the file names of the mutations, whether the resource folder is a directory or lies within a jar.
 	 *
-	 * @return Mutation file list.
+	 * @return Mutation file name list.
 	 */
-	private static List<File> getResourceFolderFiles() {
-		return Optional.of(Thread.currentThread())
+	private static List<String> getResourceFolderFiles() {
+		final URL folder = Optional.of(Thread.currentThread())
 				.map(Thread::getContextClassLoader)
 				.map(classLoader -> classLoader.getResource(DDL_RESOURCE_FOLDER))
-				.map(URL::getPath)
-				.map(File::new)
-				.map(File::listFiles)
-				.map(Arrays::asList)
-				.orElseThrow();
+				.orElseThrow(() -> new IllegalStateException("Unable to find resource `" + DDL_RESOURCE_FOLDER + "`."));
+
+		try {
+			final URI uri = folder.toURI();
+			if (!"jar".equals(uri.getScheme())) {
+				return DataSourceMigration.listFileNames(Paths.get(uri));
+			}
+
+			try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Map.of())) {
+				return DataSourceMigration.listFileNames(fileSystem.provider()
+						.getPath(uri));
+			} catch (FileSystemAlreadyExistsException ex) {
+				// opened elsewhere, e.g. by another class reading from the same jar, so must not be closed here
+				return DataSourceMigration.listFileNames(Paths.get(uri));
+			}
+		} catch (URISyntaxException | IOException ex) {
+			throw new RuntimeException("Unable to list resource `" + DDL_RESOURCE_FOLDER + "`.", ex);
+		}
+	}
+
+	/**
+	 * Returns the names of the SQL files in a directory.
+	 *
+	 * @param withDirectory
+	 * 		directory.
+	 * @return file names.
+	 * @throws IOException
+	 * 		if the directory could not be listed.
+	 */
+	private static List<String> listFileNames(final Path withDirectory) throws IOException {
+		try (Stream<Path> paths = Files.list(withDirectory)) {
+			return paths.map(Path::getFileName)
+					.map(Path::toString)
+					.filter(name -> name.endsWith(".sql"))
+					.collect(Collectors.toList());
+		}
 	}
 
 	/**
@@ -115,15 +156,14 @@ public class DataSourceMigration {
 	 *
 	 * @param withQueryRunner
 	 * 		query runner.
-	 * @return file consumer.
+	 * @return file name consumer.
 	 */
-	private static Consumer<File> getMutationApplicator(final QueryRunner withQueryRunner) {
-		return withFile -> {
-			final int mutationId = Integer.parseInt(withFile.getName()
-					.split("\\.")[0]);
+	private static Consumer<String> getMutationApplicator(final QueryRunner withQueryRunner) {
+		return withFileName -> {
+			final int mutationId = Integer.parseInt(withFileName.split("\\.")[0]);
 			LOGGER.info("Applying Mutation ID: " + mutationId);
 
-			final String sql = ResourceUtils.getResourceAsString("/" + DDL_RESOURCE_FOLDER + withFile.getName());
+			final String sql = ResourceUtils.getResourceAsString("/" + DDL_RESOURCE_FOLDER + withFileName);
 
 			try {
 				withQueryRunner.execute(sql);
@@ -142,12 +182,11 @@ public class DataSourceMigration {
 	 *
 	 * @param withLastAppliedMutationId
 	 * 		identifier of the last applied mutation.
-	 * @return file predicate.
+	 * @return file name predicate.
 	 */
-	private static Predicate<File> getFilePredicate(final int withLastAppliedMutationId) {
-		return file -> {
-			String s = file.getName()
-					.split("\\.")[0];
+	private static Predicate<String> getFilePredicate(final int withLastAppliedMutationId) {
+		return fileName -> {
+			String s = fileName.split("\\.")[0];
 			return Integer.parseInt(s) > withLastAppliedMutationId;
 		};
 	}
@@ -155,18 +194,16 @@ public class DataSourceMigration {
 	/**
 	 * Returns a comparator that sorts files in ascending numerical order.
 	 *
-	 * @return file comparator.
+	 * @return file name comparator.
 	 */
-	private static Comparator<File> getFileComparator() {
+	private static Comparator<String> getFileComparator() {
 		return (withFirstFile, withSecondFile) -> {
 			int intA = Optional.of(withFirstFile)
-					.map(File::getName)
 					.map(m -> m.split("\\.")[0])
 					.map(Integer::parseInt)
 					.orElseThrow();
 
 			int intB = Optional.of(withSecondFile)
-					.map(File::getName)
 					.map(m -> m.split("\\.")[0])
 					.map(Integer::parseInt)
 					.orElseThrow();
@@ -0,0 +1,45 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+/**
+ * A single user's row on the leaderboard.
+ */
+@Getter
+@ToString
+public class LeaderboardEntry {
+
+	/**
+	 * Username.
+	 */
+	private final String username;
+
+	/**
+	 * Total number of correct guesses made by the user.
+	 */
+	private final int totalCorrectGuesses;
+
+	/**
+	 * Total number of guesses made by the user.
+	 */
+	private final int totalGuesses;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withUsername
+	 * 		username.
+	 * @param withTotalCorrectGuesses
+	 * 		total number of correct guesses.
+	 * @param withTotalGuesses
+	 * 		total number of guesses.
+	 */
+	public LeaderboardEntry(@NonNull final String withUsername, final int withTotalCorrectGuesses,
+			final int withTotalGuesses) {
+		this.username = withUsername;
+		this.totalCorrectGuesses = withTotalCorrectGuesses;
+		this.totalGuesses = withTotalGuesses;
+	}
+}
@@ -0,0 +1,282 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the `Leaderboard` table.
+ * <p>
+ * Writes are published by incrementing the data version held in the `LeaderboardVersion` table, so that readers on
+ * any node can cheaply detect whether anything has changed since they last looked. Once {@link #start()} has been
+ * called, guesses only mark the data as changed and the version is incremented at most once per version interval, so
+ * that guesses never queue behind the single version row. Until then every guess increments the version itself.
+ */
+public class LeaderboardRepository {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(LeaderboardRepository.class.getName());
+
+	/**
+	 * Default time between version increments.
+	 */
+	private static final Duration DEFAULT_VERSION_INTERVAL = Duration.ofSeconds(1);
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Whether the leaderboard was written to since the version was last incremented.
+	 */
+	private final AtomicBoolean dirty = new AtomicBoolean();
+
+	/**
+	 * Time between version increments.
+	 */
+	private Duration versionInterval = DEFAULT_VERSION_INTERVAL;
+
+	/**
+	 * Scheduler incrementing the version, while started.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Recorder that guesses are also counted into for time-windowed boards, if enabled.
+	 */
+	private SeasonalScoreRecorder seasonalScoreRecorder = null;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource containing the leaderboard.
+	 * @return new LeaderboardRepository instance.
+	 */
+	public static LeaderboardRepository newInstance(@NonNull final DataSource withDataSource) {
+		return new LeaderboardRepository(withDataSource);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource containing the leaderboard.
+	 */
+	private LeaderboardRepository(final DataSource withDataSource) {
+		this.queryRunner = new QueryRunner(withDataSource);
+	}
+
+	/**
+	 * Defines a recorder that every guess is also counted into, so that daily, weekly and season boards can be served
+	 * alongside the all-time board.
+	 *
+	 * @param withRecorder
+	 * 		seasonal score recorder.
+	 * @return this instance to allow for method chaining.
+	 */
+	public LeaderboardRepository withSeasonalScoreRecorder(@NonNull final SeasonalScoreRecorder withRecorder) {
+		this.seasonalScoreRecorder = withRecorder;
+		return this;
+	}
+
+	/**
+	 * Defines how often the version is incremented while started. Readers may see new guesses up to this much later.
+	 *
+	 * @param withVersionInterval
+	 * 		time between version increments.
+	 * @return this instance to allow for method chaining.
+	 */
+	public LeaderboardRepository withVersionInterval(@NonNull final Duration withVersionInterval) {
+		if (withVersionInterval.isNegative() || withVersionInterval.isZero()) {
+			throw new IllegalArgumentException("Version interval must be positive.");
+		}
+		this.versionInterval = withVersionInterval;
+		return this;
+	}
+
+	/**
+	 * Starts incrementing the version in the background, once per version interval if anything was written.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null) {
+			return;
+		}
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "leaderboard-version");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				this.publish();
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Leaderboard version increment failed; will retry.", ex);
+			}
+		}, this.versionInterval.toMillis(), this.versionInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops incrementing the version in the background, publishing any outstanding writes first.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (this.scheduler == null) {
+				return;
+			}
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+		this.publish();
+	}
+
+	/**
+	 * Increments the version if the leaderboard was written to since it was last incremented.
+	 */
+	public void publish() {
+		if (!this.dirty.getAndSet(false)) {
+			return;
+		}
+
+		try {
+			this.invalidate();
+		} catch (RuntimeException ex) {
+			this.dirty.set(true);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Returns the current data version. The value changes after the leaderboard is written to, by any node.
+	 *
+	 * @return data version.
+	 */
+	public long getVersion() {
+		try {
+			final Number version = this.queryRunner.query("SELECT VERSION FROM `LeaderboardVersion` WHERE ID = 0;"
+					, new ScalarHandler<>());
+			return version == null ? 0 : version.longValue();
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to retrieve leaderboard version.", sqlException);
+		}
+	}
+
+	/**
+	 * Marks the leaderboard data as changed, e.g. after it has been written to outside of this repository.
+	 */
+	public void invalidate() {
+		try (Connection connection = this.queryRunner.getDataSource()
+				.getConnection()) {
+			LeaderboardRepository.incrementVersion(connection);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to invalidate leaderboard.", sqlException);
+		}
+	}
+
+	/**
+	 * Records a guess made by a user.
+	 *
+	 * @param withUsername
+	 * 		user that made the guess.
+	 * @param withCorrect
+	 * 		whether the guess was correct.
+	 */
+	public void recordGuess(@NonNull final String withUsername, final boolean withCorrect) {
+		final int correct = withCorrect ? 1 : 0;
+		try {
+			this.queryRunner.update("INSERT INTO `Leaderboard` (USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES)"
+							+ " VALUES (?, ?, 1)"
+							+ " ON DUPLICATE KEY UPDATE TOTAL_CORRECT_GUESSES = TOTAL_CORRECT_GUESSES + ?"
+							+ ", TOTAL_GUESSES = TOTAL_GUESSES + 1;"
+					, withUsername
+					, correct
+					, correct
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to record guess for `" + withUsername + "`.", sqlException);
+		}
+
+		this.dirty.set(true);
+		if (this.scheduler == null) {
+			this.publish();
+		}
+
+		if (this.seasonalScoreRecorder != null) {
+			this.seasonalScoreRecorder.recordGuess(withUsername, withCorrect);
+		}
+	}
+
+	/**
+	 * Returns the top entries on the leaderboard, ordered by correct guesses.
+	 *
+	 * @param withLimit
+	 * 		maximum number of entries to return.
+	 * @return leaderboard entries.
+	 */
+	public List<LeaderboardEntry> getTopEntries(final int withLimit) {
+		try {
+			return this.queryRunner.query("SELECT USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES FROM `Leaderboard`"
+							+ " ORDER BY TOTAL_CORRECT_GUESSES DESC, USERNAME ASC LIMIT ?;"
+					, resultSet -> {
+						final List<LeaderboardEntry> entries = new ArrayList<>();
+						while (resultSet.next()) {
+							entries.add(new LeaderboardEntry(resultSet.getString(1), resultSet.getInt(2), resultSet.getInt(3)));
+						}
+						return entries;
+					}
+					, withLimit
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to retrieve leaderboard.", sqlException);
+		}
+	}
+
+	/**
+	 * Returns aggregate statistics across the whole leaderboard.
+	 *
+	 * @return leaderboard statistics.
+	 */
+	public LeaderboardStatistics getStatistics() {
+		try {
+			return this.queryRunner.query("SELECT COUNT(*), COALESCE(SUM(TOTAL_CORRECT_GUESSES), 0)"
+							+ ", COALESCE(SUM(TOTAL_GUESSES), 0) FROM `Leaderboard`;"
+					, resultSet -> {
+						resultSet.next();
+						return new LeaderboardStatistics(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+					}
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to retrieve leaderboard statistics.", sqlException);
+		}
+	}
+
+	/**
+	 * Increments the leaderboard data version. Bulk writers run this within the same transaction as their write, so
+	 * that the version never lags the data it describes.
+	 *
+	 * @param withConnection
+	 * 		connection the leaderboard was written through.
+	 * @throws SQLException
+	 * 		if the version could not be updated.
+	 */
+	static void incrementVersion(@NonNull final Connection withConnection) throws SQLException {
+		new QueryRunner().update(withConnection, "UPDATE `LeaderboardVersion` SET VERSION = VERSION + 1 WHERE ID = 0;");
+	}
+}
@@ -0,0 +1,44 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Aggregate statistics across the whole leaderboard.
+ */
+@Getter
+@ToString
+public class LeaderboardStatistics {
+
+	/**
+	 * Number of users on the leaderboard.
+	 */
+	private final long totalUsers;
+
+	/**
+	 * Total number of correct guesses made by all users.
+	 */
+	private final long totalCorrectGuesses;
+
+	/**
+	 * Total number of guesses made by all users.
+	 */
+	private final long totalGuesses;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withTotalUsers
+	 * 		number of users.
+	 * @param withTotalCorrectGuesses
+	 * 		total number of correct guesses.
+	 * @param withTotalGuesses
+	 * 		total number of guesses.
+	 */
+	public LeaderboardStatistics(final long withTotalUsers, final long withTotalCorrectGuesses,
+			final long withTotalGuesses) {
+		this.totalUsers = withTotalUsers;
+		this.totalCorrectGuesses = withTotalCorrectGuesses;
+		this.totalGuesses = withTotalGuesses;
+	}
+}
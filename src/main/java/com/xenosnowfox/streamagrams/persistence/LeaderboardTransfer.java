@@ -0,0 +1,437 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.NonNull;
+
+import javax.sql.DataSource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the `Leaderboard` table to and from a compact, gzipped, versioned CSV format.
+ * <p>
+ * Exports page through the table by primary key with a forward-only cursor, and imports stage rows in batches before
+ * merging them in key-ranged chunks, so memory use stays constant regardless of the number of rows. The first line
+ * of the format is a header naming the format version, followed by one `USERNAME,TOTAL_CORRECT_GUESSES,TOTAL_GUESSES`
+ * row per line. {@link LeaderboardTransferTool} runs either direction from the command line.
+ */
+public class LeaderboardTransfer {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(LeaderboardTransfer.class.getName());
+
+	/**
+	 * Header identifying the format and its version.
+	 */
+	private static final String FORMAT_HEADER = "#streamagrams-leaderboard,1";
+
+	/**
+	 * Number of rows read per page when exporting.
+	 */
+	private static final int PAGE_SIZE = 10_000;
+
+	/**
+	 * Number of rows written per batch when importing.
+	 */
+	private static final int BATCH_SIZE = 5_000;
+
+	/**
+	 * Number of staged rows merged into the leaderboard per transaction when importing.
+	 */
+	private static final int MERGE_CHUNK_SIZE = 10_000;
+
+	/**
+	 * Number of rows between progress reports.
+	 */
+	private static final int PROGRESS_INTERVAL = 1_000_000;
+
+	/**
+	 * Size of the buffers wrapping the compressed streams.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Hidden Constructor.
+	 */
+	private LeaderboardTransfer() {}
+
+	/**
+	 * Writes the whole leaderboard to a stream. The stream is not closed.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to read from.
+	 * @param withOutputStream
+	 * 		stream to write to.
+	 * @return transfer report.
+	 * @throws IOException
+	 * 		if the stream could not be written to.
+	 */
+	public static TransferReport exportTo(@NonNull final DataSource withDataSource,
+			@NonNull final OutputStream withOutputStream) throws IOException {
+		final long start = System.nanoTime();
+		long rows = 0;
+
+		final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(new BufferedOutputStream(withOutputStream,
+				BUFFER_SIZE), BUFFER_SIZE);
+		final Writer writer = new BufferedWriter(new OutputStreamWriter(gzipOutputStream, StandardCharsets.UTF_8),
+				BUFFER_SIZE);
+		writer.write(FORMAT_HEADER);
+		writer.write('\n');
+
+		final String select = "SELECT USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES FROM `Leaderboard`";
+		try (Connection connection = withDataSource.getConnection();
+				PreparedStatement firstPage = connection.prepareStatement(select + " ORDER BY USERNAME LIMIT ?;"
+						, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				PreparedStatement nextPage = connection.prepareStatement(select
+								+ " WHERE USERNAME > ? ORDER BY USERNAME LIMIT ?;", ResultSet.TYPE_FORWARD_ONLY
+						, ResultSet.CONCUR_READ_ONLY)) {
+			firstPage.setFetchSize(PAGE_SIZE);
+			nextPage.setFetchSize(PAGE_SIZE);
+
+			// keyset pagination keeps every page an index range scan, however deep into the table it is; the first
+			// page has no lower bound, as no sentinel sorts before every possible username
+			String lastUsername = null;
+			int pageRows;
+			do {
+				pageRows = 0;
+				final PreparedStatement statement;
+				if (lastUsername == null) {
+					statement = firstPage;
+					statement.setInt(1, PAGE_SIZE);
+				} else {
+					statement = nextPage;
+					statement.setString(1, lastUsername);
+					statement.setInt(2, PAGE_SIZE);
+				}
+				try (ResultSet resultSet = statement.executeQuery()) {
+					while (resultSet.next()) {
+						lastUsername = resultSet.getString(1);
+						LeaderboardTransfer.writeField(writer, lastUsername);
+						writer.write(',');
+						writer.write(Integer.toString(resultSet.getInt(2)));
+						writer.write(',');
+						writer.write(Integer.toString(resultSet.getInt(3)));
+						writer.write('\n');
+
+						pageRows++;
+						rows++;
+						if (rows % PROGRESS_INTERVAL == 0) {
+							LeaderboardTransfer.logProgress("Exported", rows, start);
+						}
+					}
+				}
+			} while (pageRows == PAGE_SIZE);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to export leaderboard.", sqlException);
+		}
+
+		writer.flush();
+		gzipOutputStream.finish();
+		gzipOutputStream.flush();
+		return new TransferReport(rows, System.nanoTime() - start);
+	}
+
+	/**
+	 * Reads leaderboard rows from a stream, inserting new users and overwriting existing ones. The stream is not
+	 * closed.
+	 * <p>
+	 * Rows are first loaded into the `LeaderboardImport` staging table in batches, so a stream that fails to read
+	 * leaves the leaderboard untouched. The staged rows are then merged into the leaderboard in chunks of consecutive
+	 * usernames, each chunk committed together with a bump of the leaderboard version so that cached leaderboard
+	 * documents on every node are invalidated. Should merging fail part way, the merged chunks remain, and as rows are
+	 * overwritten rather than added to, running the import again completes it. The row in `LeaderboardImportLock` is
+	 * held throughout, so a second import fails rather than truncating the staging table of a running one.
+	 *
+	 * @param withDataSource
+	 * 		DataSource to write to.
+	 * @param withInputStream
+	 * 		stream to read from.
+	 * @return transfer report.
+	 * @throws IOException
+	 * 		if the stream could not be read, or is not in a supported format.
+	 */
+	public static TransferReport importFrom(@NonNull final DataSource withDataSource,
+			@NonNull final InputStream withInputStream) throws IOException {
+		final long start = System.nanoTime();
+
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+				new BufferedInputStream(withInputStream, BUFFER_SIZE), BUFFER_SIZE), StandardCharsets.UTF_8), BUFFER_SIZE);
+		final String header = reader.readLine();
+		if (!FORMAT_HEADER.equals(header)) {
+			throw new IOException("Unsupported leaderboard export format: " + header);
+		}
+
+		try (Connection lockConnection = withDataSource.getConnection();
+				Connection connection = withDataSource.getConnection()) {
+			// the row lock is held by the open transaction of the lock connection until the import is over
+			final boolean lockAutoCommit = lockConnection.getAutoCommit();
+			lockConnection.setAutoCommit(false);
+			try {
+				try (Statement statement = lockConnection.createStatement();
+						ResultSet ignored = statement.executeQuery("SELECT ID FROM `LeaderboardImportLock`"
+								+ " WHERE ID = 0 FOR UPDATE;")) {
+					LOGGER.fine("Locked the leaderboard import.");
+				} catch (SQLException sqlException) {
+					throw new RuntimeException("Unable to lock the leaderboard import; is another import running?",
+							sqlException);
+				}
+
+				final long rows = LeaderboardTransfer.stage(connection, reader, start);
+				LeaderboardTransfer.mergeStaged(connection);
+				return new TransferReport(rows, System.nanoTime() - start);
+			} finally {
+				lockConnection.rollback();
+				lockConnection.setAutoCommit(lockAutoCommit);
+			}
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to import leaderboard.", sqlException);
+		}
+	}
+
+	/**
+	 * Loads every row of a stream into the emptied `LeaderboardImport` staging table, committing once per batch.
+	 *
+	 * @param withConnection
+	 * 		connection to write through.
+	 * @param withReader
+	 * 		reader positioned after the format header.
+	 * @param withStartNanos
+	 * 		time at which the import started.
+	 * @return number of rows read.
+	 * @throws IOException
+	 * 		if the stream could not be read, or holds a malformed row.
+	 * @throws SQLException
+	 * 		if the rows could not be staged.
+	 */
+	private static long stage(final Connection withConnection, final BufferedReader withReader,
+			final long withStartNanos) throws IOException, SQLException {
+		// clear anything left behind by an earlier import that failed part way
+		try (Statement statement = withConnection.createStatement()) {
+			statement.execute("TRUNCATE TABLE `LeaderboardImport`;");
+		}
+
+		long rows = 0;
+		final boolean autoCommit = withConnection.getAutoCommit();
+		withConnection.setAutoCommit(false);
+		try (PreparedStatement statement = withConnection.prepareStatement("MERGE INTO `LeaderboardImport`"
+				+ " (USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES) KEY (USERNAME) VALUES (?, ?, ?);")) {
+			int batchRows = 0;
+			String line;
+			while ((line = withReader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				LeaderboardTransfer.bindRow(statement, line, rows + 2);
+				statement.addBatch();
+				batchRows++;
+				rows++;
+
+				if (batchRows == BATCH_SIZE) {
+					statement.executeBatch();
+					withConnection.commit();
+					batchRows = 0;
+				}
+				if (rows % PROGRESS_INTERVAL == 0) {
+					LeaderboardTransfer.logProgress("Staged", rows, withStartNanos);
+				}
+			}
+
+			if (batchRows > 0) {
+				statement.executeBatch();
+				withConnection.commit();
+			}
+		} catch (SQLException | IOException | RuntimeException ex) {
+			withConnection.rollback();
+			throw ex;
+		} finally {
+			withConnection.setAutoCommit(autoCommit);
+		}
+		return rows;
+	}
+
+	/**
+	 * Merges the `LeaderboardImport` staging table into the leaderboard in chunks of consecutive usernames, each in
+	 * its own transaction that also bumps the leaderboard version, then empties the staging table.
+	 *
+	 * @param withConnection
+	 * 		connection to write through.
+	 * @throws SQLException
+	 * 		if a chunk could not be merged.
+	 */
+	private static void mergeStaged(final Connection withConnection) throws SQLException {
+		final String keys = "SELECT USERNAME FROM `LeaderboardImport`";
+		final String merge = "MERGE INTO `Leaderboard` (USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES) KEY (USERNAME)"
+				+ " SELECT USERNAME, TOTAL_CORRECT_GUESSES, TOTAL_GUESSES FROM `LeaderboardImport` WHERE ";
+		final boolean autoCommit = withConnection.getAutoCommit();
+		withConnection.setAutoCommit(false);
+		try (PreparedStatement firstBound = withConnection.prepareStatement("SELECT MAX(USERNAME) FROM (" + keys
+						+ " ORDER BY USERNAME LIMIT ?) AS K;");
+				PreparedStatement nextBound = withConnection.prepareStatement("SELECT MAX(USERNAME) FROM (" + keys
+						+ " WHERE USERNAME > ? ORDER BY USERNAME LIMIT ?) AS K;");
+				PreparedStatement firstChunk = withConnection.prepareStatement(merge + "USERNAME <= ?;");
+				PreparedStatement nextChunk = withConnection.prepareStatement(merge + "USERNAME > ? AND USERNAME <= ?;")) {
+			// as when exporting, the first chunk has no lower bound, as no sentinel sorts before every username
+			String lower = null;
+			while (true) {
+				final PreparedStatement bound = lower == null ? firstBound : nextBound;
+				int parameter = 1;
+				if (lower != null) {
+					bound.setString(parameter++, lower);
+				}
+				bound.setInt(parameter, MERGE_CHUNK_SIZE);
+
+				final String upper;
+				try (ResultSet resultSet = bound.executeQuery()) {
+					upper = resultSet.next() ? resultSet.getString(1) : null;
+				}
+				if (upper == null) {
+					break;
+				}
+
+				final PreparedStatement chunk = lower == null ? firstChunk : nextChunk;
+				parameter = 1;
+				if (lower != null) {
+					chunk.setString(parameter++, lower);
+				}
+				chunk.setString(parameter, upper);
+				chunk.executeUpdate();
+				LeaderboardRepository.incrementVersion(withConnection);
+				withConnection.commit();
+				lower = upper;
+			}
+		} catch (SQLException | RuntimeException ex) {
+			withConnection.rollback();
+			throw ex;
+		} finally {
+			withConnection.setAutoCommit(autoCommit);
+		}
+
+		try (Statement statement = withConnection.createStatement()) {
+			statement.execute("TRUNCATE TABLE `LeaderboardImport`;");
+		}
+	}
+
+	/**
+	 * Parses a row and binds it to the upsert statement.
+	 *
+	 * @param withStatement
+	 * 		upsert statement.
+	 * @param withLine
+	 * 		row to parse.
+	 * @param withLineNumber
+	 * 		line number of the row, for error messages.
+	 * @throws IOException
+	 * 		if the row is malformed.
+	 * @throws SQLException
+	 * 		if the values could not be bound.
+	 */
+	private static void bindRow(final PreparedStatement withStatement, final String withLine, final long withLineNumber)
+			throws IOException, SQLException {
+		// numeric columns never need quoting, so split from the end to allow any username
+		final int secondComma = withLine.lastIndexOf(',');
+		final int firstComma = secondComma > 0 ? withLine.lastIndexOf(',', secondComma - 1) : -1;
+		if (firstComma <= 0) {
+			throw new IOException("Malformed row on line " + withLineNumber + ".");
+		}
+
+		try {
+			withStatement.setString(1, LeaderboardTransfer.readField(withLine.substring(0, firstComma)));
+			withStatement.setInt(2, Integer.parseInt(withLine.substring(firstComma + 1, secondComma)));
+			withStatement.setInt(3, Integer.parseInt(withLine.substring(secondComma + 1)));
+		} catch (NumberFormatException ex) {
+			throw new IOException("Malformed row on line " + withLineNumber + ".", ex);
+		}
+	}
+
+	/**
+	 * Writes a text field, quoting it if it is empty or contains a delimiter, quote or line break. Line breaks and
+	 * backslashes within quoted fields are backslash-escaped so that every row stays on a single line.
+	 *
+	 * @param withWriter
+	 * 		writer.
+	 * @param withValue
+	 * 		field value.
+	 * @throws IOException
+	 * 		if the value could not be written.
+	 */
+	private static void writeField(final Writer withWriter, final String withValue) throws IOException {
+		boolean quote = withValue.isEmpty();
+		for (int i = 0; i < withValue.length() && !quote; i++) {
+			final char c = withValue.charAt(i);
+			quote = c == ',' || c == '"' || c == '\\' || c == '\n' || c == '\r';
+		}
+
+		if (!quote) {
+			withWriter.write(withValue);
+			return;
+		}
+
+		withWriter.write('"');
+		withWriter.write(withValue.replace("\\", "\\\\")
+				.replace("\"", "\"\"")
+				.replace("\r", "\\r")
+				.replace("\n", "\\n"));
+		withWriter.write('"');
+	}
+
+	/**
+	 * Reads a text field written by {@link #writeField(Writer, String)}.
+	 *
+	 * @param withField
+	 * 		raw field.
+	 * @return field value.
+	 */
+	private static String readField(final String withField) {
+		if (withField.length() < 2 || !withField.startsWith("\"") || !withField.endsWith("\"")) {
+			return withField;
+		}
+
+		final StringBuilder builder = new StringBuilder(withField.length());
+		for (int i = 1; i < withField.length() - 1; i++) {
+			final char c = withField.charAt(i);
+			if (c == '"' || c == '\\') {
+				final char next = withField.charAt(++i);
+				builder.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Logs transfer progress.
+	 *
+	 * @param withAction
+	 * 		action being performed.
+	 * @param withRows
+	 * 		rows transferred so far.
+	 * @param withStartNanos
+	 * 		time at which the transfer started.
+	 */
+	private static void logProgress(final String withAction, final long withRows, final long withStartNanos) {
+		LOGGER.info(String.format("%s %d rows (%.0f rows/s)"
+				, withAction
+				, withRows
+				, TransferReport.rowsPerSecond(withRows, System.nanoTime() - withStartNanos)));
+	}
+}
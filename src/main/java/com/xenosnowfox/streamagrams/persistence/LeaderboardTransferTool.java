@@ -0,0 +1,64 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import com.xenosnowfox.streamagrams.utils.PropertiesUtils;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Command line tool exporting or importing the leaderboard of the configured datasource with
+ * {@link LeaderboardTransfer}.
+ * <p>
+ * Usage: `export &lt;file&gt;` or `import &lt;file&gt;`.
+ */
+public class LeaderboardTransferTool {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(LeaderboardTransferTool.class.getName());
+
+	/**
+	 * Hidden constructor.
+	 */
+	private LeaderboardTransferTool() {}
+
+	/**
+	 * Runs the tool.
+	 *
+	 * @param args
+	 * 		command line arguments.
+	 * @throws Exception
+	 * 		if the transfer failed.
+	 */
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+			LOGGER.severe("Usage: LeaderboardTransferTool (export|import) <file>");
+			System.exit(1);
+			return;
+		}
+
+		final DataSource dataSource = BasicDataSourceFactory.createDataSource(
+				PropertiesUtils.fromResources("datasource.properties"));
+		DataSourceMigration.update(dataSource);
+
+		final Path path = Paths.get(args[1]);
+		final TransferReport report;
+		if (args[0].equals("export")) {
+			try (OutputStream outputStream = Files.newOutputStream(path)) {
+				report = LeaderboardTransfer.exportTo(dataSource, outputStream);
+			}
+		} else {
+			try (InputStream inputStream = Files.newInputStream(path)) {
+				report = LeaderboardTransfer.importFrom(dataSource, inputStream);
+			}
+		}
+		LOGGER.info(args[0] + " complete: " + report);
+	}
+}
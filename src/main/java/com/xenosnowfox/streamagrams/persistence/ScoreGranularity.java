@@ -0,0 +1,106 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Size of the time buckets seasonal scores are rolled up into, along with the table holding each. Buckets are aligned
+ * to UTC; weeks start on Monday.
+ */
+enum ScoreGranularity {
+
+	/**
+	 * One bucket per hour; the source of truth for every other rollup.
+	 */
+	HOURLY("ScoreHourly", Duration.ofHours(1)),
+
+	/**
+	 * One bucket per day.
+	 */
+	DAILY("ScoreDaily", Duration.ofDays(1)),
+
+	/**
+	 * One bucket per week.
+	 */
+	WEEKLY("ScoreWeekly", Duration.ofDays(7));
+
+	/**
+	 * Name of the table holding the buckets.
+	 */
+	private final String table;
+
+	/**
+	 * Length of each bucket.
+	 */
+	private final Duration length;
+
+	/**
+	 * Enum constructor.
+	 *
+	 * @param withTable
+	 * 		name of the table holding the buckets.
+	 * @param withLength
+	 * 		length of each bucket.
+	 */
+	ScoreGranularity(final String withTable, final Duration withLength) {
+		this.table = withTable;
+		this.length = withLength;
+	}
+
+	/**
+	 * Returns the name of the table holding the buckets.
+	 *
+	 * @return table name.
+	 */
+	String getTable() {
+		return this.table;
+	}
+
+	/**
+	 * Returns the start of the bucket containing an instant.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return bucket start.
+	 */
+	Instant truncate(final Instant withInstant) {
+		switch (this) {
+			case HOURLY:
+				return withInstant.truncatedTo(ChronoUnit.HOURS);
+			case DAILY:
+				return withInstant.truncatedTo(ChronoUnit.DAYS);
+			default:
+				return withInstant.atOffset(ZoneOffset.UTC)
+						.truncatedTo(ChronoUnit.DAYS)
+						.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+						.toInstant();
+		}
+	}
+
+	/**
+	 * Returns the start of the bucket following the one starting at the given instant.
+	 *
+	 * @param withBucketStart
+	 * 		bucket start.
+	 * @return start of the next bucket.
+	 */
+	Instant next(final Instant withBucketStart) {
+		return withBucketStart.plus(this.length);
+	}
+
+	/**
+	 * Checks whether an instant is the start of a bucket.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return true if aligned to a bucket boundary.
+	 */
+	boolean isAligned(final Instant withInstant) {
+		return this.truncate(withInstant)
+				.equals(withInstant);
+	}
+}
@@ -0,0 +1,58 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Guesses made by one user within one hour, accumulated in memory before being written to the rollup tables.
+ */
+@Getter
+class ScoreIncrement {
+
+	/**
+	 * Start of the hour the guesses were made in.
+	 */
+	private final Instant hour;
+
+	/**
+	 * User that made the guesses.
+	 */
+	private final String username;
+
+	/**
+	 * Number of correct guesses.
+	 */
+	private int correctGuesses;
+
+	/**
+	 * Number of guesses.
+	 */
+	private int guesses;
+
+	/**
+	 * Instantiates a new, empty instance.
+	 *
+	 * @param withHour
+	 * 		start of the hour the guesses were made in.
+	 * @param withUsername
+	 * 		user that made the guesses.
+	 */
+	ScoreIncrement(final Instant withHour, final String withUsername) {
+		this.hour = withHour;
+		this.username = withUsername;
+	}
+
+	/**
+	 * Adds guesses to the increment.
+	 *
+	 * @param withCorrectGuesses
+	 * 		number of correct guesses.
+	 * @param withGuesses
+	 * 		number of guesses.
+	 */
+	void add(final int withCorrectGuesses, final int withGuesses) {
+		this.correctGuesses += withCorrectGuesses;
+		this.guesses += withGuesses;
+	}
+}
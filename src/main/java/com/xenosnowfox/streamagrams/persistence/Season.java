@@ -0,0 +1,66 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.time.Instant;
+
+/**
+ * A named period that scores are totalled over, e.g. a calendar month or a community event.
+ */
+@Getter
+@ToString
+public class Season {
+
+	/**
+	 * Season identifier.
+	 */
+	private final String id;
+
+	/**
+	 * Display name.
+	 */
+	private final String name;
+
+	/**
+	 * Start of the season, inclusive.
+	 */
+	private final Instant startsAt;
+
+	/**
+	 * End of the season, exclusive.
+	 */
+	private final Instant endsAt;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withId
+	 * 		season identifier.
+	 * @param withName
+	 * 		display name.
+	 * @param withStartsAt
+	 * 		start of the season, inclusive.
+	 * @param withEndsAt
+	 * 		end of the season, exclusive.
+	 */
+	public Season(@NonNull final String withId, @NonNull final String withName, @NonNull final Instant withStartsAt,
+			@NonNull final Instant withEndsAt) {
+		this.id = withId;
+		this.name = withName;
+		this.startsAt = withStartsAt;
+		this.endsAt = withEndsAt;
+	}
+
+	/**
+	 * Checks whether an instant falls within the season.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return true if within the season.
+	 */
+	public boolean contains(@NonNull final Instant withInstant) {
+		return !withInstant.isBefore(this.startsAt) && withInstant.isBefore(this.endsAt);
+	}
+}
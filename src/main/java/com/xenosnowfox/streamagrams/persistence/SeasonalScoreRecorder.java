@@ -0,0 +1,284 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.NonNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accumulates guesses in memory, per user and hour, and writes them to the seasonal score tables in background
+ * batches. Recording a guess never touches the database, and each flush costs one upsert per user and bucket no matter
+ * how many guesses were made.
+ * <p>
+ * Increments that fail to write are merged back and retried on the next flush.
+ */
+public class SeasonalScoreRecorder {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(SeasonalScoreRecorder.class.getName());
+
+	/**
+	 * Default interval between flushes.
+	 */
+	private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(5);
+
+	/**
+	 * Repository the increments are written to.
+	 */
+	private final SeasonalScoreRepository repository;
+
+	/**
+	 * Increments not yet written, keyed by hour and username. Guarded by this instance's monitor.
+	 */
+	private Map<String, ScoreIncrement> pending = new HashMap<>();
+
+	/**
+	 * Clock used to timestamp guesses.
+	 */
+	private Clock clock = Clock.systemUTC();
+
+	/**
+	 * Interval between flushes.
+	 */
+	private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+	/**
+	 * Scheduler running periodic flushes.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Number of guesses recorded.
+	 */
+	private final AtomicLong recordedCount = new AtomicLong();
+
+	/**
+	 * Number of increments written.
+	 */
+	private final AtomicLong writtenCount = new AtomicLong();
+
+	/**
+	 * Number of completed flushes.
+	 */
+	private final AtomicLong flushCount = new AtomicLong();
+
+	/**
+	 * Total time spent flushing, in nanoseconds.
+	 */
+	private final AtomicLong flushNanos = new AtomicLong();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withRepository
+	 * 		repository the increments are written to.
+	 * @return new SeasonalScoreRecorder instance.
+	 */
+	public static SeasonalScoreRecorder newInstance(@NonNull final SeasonalScoreRepository withRepository) {
+		return new SeasonalScoreRecorder(withRepository);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withRepository
+	 * 		repository the increments are written to.
+	 */
+	private SeasonalScoreRecorder(final SeasonalScoreRepository withRepository) {
+		this.repository = withRepository;
+	}
+
+	/**
+	 * Defines the clock used to timestamp guesses.
+	 *
+	 * @param withClock
+	 * 		clock.
+	 * @return this instance to allow for method chaining.
+	 */
+	public SeasonalScoreRecorder withClock(@NonNull final Clock withClock) {
+		this.clock = withClock;
+		return this;
+	}
+
+	/**
+	 * Defines the interval between background flushes.
+	 *
+	 * @param withFlushInterval
+	 * 		flush interval.
+	 * @return this instance to allow for method chaining.
+	 */
+	public SeasonalScoreRecorder withFlushInterval(@NonNull final Duration withFlushInterval) {
+		if (withFlushInterval.toMillis() <= 0) {
+			throw new IllegalArgumentException("Flush interval must be positive.");
+		}
+		this.flushInterval = withFlushInterval;
+		return this;
+	}
+
+	/**
+	 * Records a guess made now.
+	 *
+	 * @param withUsername
+	 * 		user that made the guess.
+	 * @param withCorrect
+	 * 		whether the guess was correct.
+	 */
+	public void recordGuess(@NonNull final String withUsername, final boolean withCorrect) {
+		this.recordGuess(withUsername, withCorrect, this.clock.instant());
+	}
+
+	/**
+	 * Records a guess made at the given time.
+	 *
+	 * @param withUsername
+	 * 		user that made the guess.
+	 * @param withCorrect
+	 * 		whether the guess was correct.
+	 * @param withInstant
+	 * 		time the guess was made.
+	 */
+	public void recordGuess(@NonNull final String withUsername, final boolean withCorrect,
+			@NonNull final Instant withInstant) {
+		final Instant hour = ScoreGranularity.HOURLY.truncate(withInstant);
+		synchronized (this) {
+			this.pending.computeIfAbsent(hour.getEpochSecond() + "\n" + withUsername
+							, key -> new ScoreIncrement(hour, withUsername))
+					.add(withCorrect ? 1 : 0, 1);
+		}
+		this.recordedCount.incrementAndGet();
+	}
+
+	/**
+	 * Writes every pending increment.
+	 */
+	public void flush() {
+		final Map<String, ScoreIncrement> batch;
+		synchronized (this) {
+			if (this.pending.isEmpty()) {
+				return;
+			}
+			batch = this.pending;
+			this.pending = new HashMap<>();
+		}
+
+		final long start = System.nanoTime();
+		try {
+			this.repository.applyIncrements(batch.values());
+		} catch (RuntimeException ex) {
+			this.requeue(batch.values());
+			throw ex;
+		}
+		this.flushNanos.addAndGet(System.nanoTime() - start);
+		this.flushCount.incrementAndGet();
+		this.writtenCount.addAndGet(batch.size());
+	}
+
+	/**
+	 * Starts flushing in the background.
+	 */
+	public synchronized void start() {
+		if (this.scheduler != null) {
+			return;
+		}
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "seasonal-score-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(() -> {
+			try {
+				this.flush();
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Seasonal score flush failed; will retry.", ex);
+			}
+		}, this.flushInterval.toMillis(), this.flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops background flushes, writing any pending increments first.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (this.scheduler == null) {
+				return;
+			}
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+		this.flush();
+	}
+
+	/**
+	 * Returns the number of increments waiting to be written.
+	 *
+	 * @return pending increment count.
+	 */
+	public synchronized int getPendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Returns the number of guesses recorded.
+	 *
+	 * @return recorded guess count.
+	 */
+	public long getRecordedCount() {
+		return this.recordedCount.get();
+	}
+
+	/**
+	 * Returns the number of increments written. Each increment covers every guess by one user within one hour.
+	 *
+	 * @return written increment count.
+	 */
+	public long getWrittenCount() {
+		return this.writtenCount.get();
+	}
+
+	/**
+	 * Returns the mean time taken by a flush.
+	 *
+	 * @return mean flush time in milliseconds.
+	 */
+	public double getAverageFlushMillis() {
+		final long flushes = this.flushCount.get();
+		return flushes == 0 ? 0 : this.flushNanos.get() / 1_000_000.0 / flushes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "SeasonalScoreRecorder{recorded=%d, written=%d, pending=%d, flushes=%d"
+						+ ", avgFlushMillis=%.1f}"
+				, this.getRecordedCount(), this.getWrittenCount(), this.getPendingCount(), this.flushCount.get()
+				, this.getAverageFlushMillis());
+	}
+
+	/**
+	 * Merges increments that failed to write back into the pending increments.
+	 *
+	 * @param withIncrements
+	 * 		increments to retry.
+	 */
+	private synchronized void requeue(final Collection<ScoreIncrement> withIncrements) {
+		for (ScoreIncrement increment : withIncrements) {
+			this.pending.computeIfAbsent(increment.getHour()
+							.getEpochSecond() + "\n" + increment.getUsername()
+							, key -> new ScoreIncrement(increment.getHour(), increment.getUsername()))
+					.add(increment.getCorrectGuesses(), increment.getGuesses());
+		}
+	}
+}
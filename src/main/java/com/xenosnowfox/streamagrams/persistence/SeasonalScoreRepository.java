@@ -0,0 +1,658 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.NonNull;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Reads and writes time-bucketed scores: hourly buckets plus daily, weekly and per-season rollups that are maintained
+ * incrementally alongside them.
+ * <p>
+ * Any hour-aligned window is answered by splitting it into the largest whole buckets that fit, so a day or week costs
+ * a single row per user and an arbitrary window at most a few dozen, rather than a scan of raw history. Season boards
+ * are read from their own rollup. The hourly table is the source of truth; if the other rollups drift from it they
+ * can be rebuilt with {@link #rebuild(Instant, Instant)}, e.g. through the {@link SeasonalScoreTool}.
+ * <p>
+ * Buckets and seasons are keyed by their start as whole hours since the epoch, so that no time zone is involved in
+ * storing them. Every write to the rollups takes the row in `ScoreRollupLock` first, so a rebuild never interleaves
+ * with a flush from a {@link SeasonalScoreRecorder} on any node.
+ */
+public class SeasonalScoreRepository {
+
+	/**
+	 * Seconds in an hour.
+	 */
+	private static final long SECONDS_PER_HOUR = 3600;
+
+	/**
+	 * Query runner.
+	 */
+	private final QueryRunner queryRunner;
+
+	/**
+	 * Cached seasons, reloaded whenever a season is defined.
+	 */
+	private volatile List<Season> seasons = null;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withDataSource
+	 * 		DataSource containing the score tables.
+	 * @return new SeasonalScoreRepository instance.
+	 */
+	public static SeasonalScoreRepository newInstance(@NonNull final DataSource withDataSource) {
+		return new SeasonalScoreRepository(withDataSource);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withDataSource
+	 * 		DataSource containing the score tables.
+	 */
+	private SeasonalScoreRepository(final DataSource withDataSource) {
+		this.queryRunner = new QueryRunner(withDataSource);
+	}
+
+	/**
+	 * Defines a season, replacing any existing season with the same identifier. Seasons are aligned to whole hours and
+	 * may not overlap one another, so every instant belongs to at most one season. Scores already recorded within the
+	 * season are not counted until {@link #rebuildSeason(String)} is called.
+	 *
+	 * @param withSeason
+	 * 		season.
+	 * @throws IllegalArgumentException
+	 * 		if the season does not span whole hours, or overlaps another season.
+	 */
+	public void defineSeason(@NonNull final Season withSeason) {
+		if (!ScoreGranularity.HOURLY.isAligned(withSeason.getStartsAt())
+				|| !ScoreGranularity.HOURLY.isAligned(withSeason.getEndsAt())
+				|| !withSeason.getEndsAt()
+				.isAfter(withSeason.getStartsAt())) {
+			throw new IllegalArgumentException("Season must span whole hours: " + withSeason);
+		}
+
+		final long startsHour = SeasonalScoreRepository.toEpochHour(withSeason.getStartsAt());
+		final long endsHour = SeasonalScoreRepository.toEpochHour(withSeason.getEndsAt());
+		try {
+			// the rollup lock also serialises definitions, so two overlapping seasons cannot both pass the check
+			this.inTransaction("Unable to define season `" + withSeason.getId() + "`.", connection -> {
+				final String overlapping = this.queryRunner.query(connection, "SELECT SEASON_ID FROM `Season`"
+								+ " WHERE SEASON_ID <> ? AND STARTS_HOUR < ? AND ENDS_HOUR > ? ORDER BY STARTS_HOUR LIMIT 1;"
+						, new ScalarHandler<String>()
+						, withSeason.getId()
+						, endsHour
+						, startsHour
+				);
+				if (overlapping != null) {
+					throw new IllegalArgumentException("Season `" + withSeason.getId() + "` overlaps season `"
+							+ overlapping + "`.");
+				}
+
+				this.queryRunner.update(connection, "MERGE INTO `Season` (SEASON_ID, NAME, STARTS_HOUR, ENDS_HOUR)"
+								+ " KEY (SEASON_ID) VALUES (?, ?, ?, ?);"
+						, withSeason.getId()
+						, withSeason.getName()
+						, startsHour
+						, endsHour
+				);
+			});
+		} finally {
+			this.seasons = null;
+		}
+	}
+
+	/**
+	 * Returns every defined season, ordered by start.
+	 *
+	 * @return seasons.
+	 */
+	public List<Season> getSeasons() {
+		List<Season> cached = this.seasons;
+		if (cached == null) {
+			try {
+				cached = this.queryRunner.query("SELECT SEASON_ID, NAME, STARTS_HOUR, ENDS_HOUR FROM `Season`"
+								+ " ORDER BY STARTS_HOUR ASC;"
+						, resultSet -> {
+							final List<Season> list = new ArrayList<>();
+							while (resultSet.next()) {
+								list.add(new Season(resultSet.getString(1), resultSet.getString(2)
+										, SeasonalScoreRepository.fromEpochHour(resultSet.getLong(3))
+										, SeasonalScoreRepository.fromEpochHour(resultSet.getLong(4))));
+							}
+							return list;
+						}
+				);
+			} catch (SQLException sqlException) {
+				throw new RuntimeException("Unable to retrieve seasons.", sqlException);
+			}
+			this.seasons = cached;
+		}
+		return cached;
+	}
+
+	/**
+	 * Returns the season containing an instant. Seasons never overlap, so there is at most one.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return season, if any.
+	 */
+	public Optional<Season> findSeason(@NonNull final Instant withInstant) {
+		return this.getSeasons()
+				.stream()
+				.filter(season -> season.contains(withInstant))
+				.findFirst();
+	}
+
+	/**
+	 * Returns the top entries over a window, ordered by correct guesses. The window is widened to whole hours.
+	 *
+	 * @param withFrom
+	 * 		start of the window, inclusive.
+	 * @param withTo
+	 * 		end of the window, exclusive.
+	 * @param withLimit
+	 * 		maximum number of entries to return.
+	 * @return leaderboard entries, with totals for the window only.
+	 */
+	public List<LeaderboardEntry> getTopEntries(@NonNull final Instant withFrom, @NonNull final Instant withTo,
+			final int withLimit) {
+		final List<Segment> segments = SeasonalScoreRepository.decompose(ScoreGranularity.HOURLY.truncate(withFrom)
+				, SeasonalScoreRepository.ceilToHour(withTo));
+		if (segments.isEmpty()) {
+			return new ArrayList<>();
+		}
+
+		final StringBuilder sql = new StringBuilder("SELECT USERNAME, SUM(C), SUM(G) FROM (");
+		final List<Object> parameters = new ArrayList<>();
+		for (Segment segment : segments) {
+			if (!parameters.isEmpty()) {
+				sql.append(" UNION ALL ");
+			}
+			sql.append("SELECT USERNAME, CORRECT_GUESSES AS C, GUESSES AS G FROM `")
+					.append(segment.granularity.getTable())
+					.append("` WHERE BUCKET_HOUR >= ? AND BUCKET_HOUR < ?");
+			parameters.add(SeasonalScoreRepository.toEpochHour(segment.from));
+			parameters.add(SeasonalScoreRepository.toEpochHour(segment.to));
+		}
+		sql.append(") AS S GROUP BY USERNAME ORDER BY SUM(C) DESC, USERNAME ASC LIMIT ?;");
+		parameters.add(withLimit);
+
+		try {
+			return this.queryRunner.query(sql.toString(), SeasonalScoreRepository::toEntries, parameters.toArray());
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to retrieve leaderboard between " + withFrom + " and " + withTo + ".",
+					sqlException);
+		}
+	}
+
+	/**
+	 * Returns the top entries for the UTC day containing an instant.
+	 *
+	 * @param withDay
+	 * 		any instant within the day.
+	 * @param withLimit
+	 * 		maximum number of entries to return.
+	 * @return leaderboard entries.
+	 */
+	public List<LeaderboardEntry> getDailyTopEntries(@NonNull final Instant withDay, final int withLimit) {
+		final Instant start = ScoreGranularity.DAILY.truncate(withDay);
+		return this.getTopEntries(start, ScoreGranularity.DAILY.next(start), withLimit);
+	}
+
+	/**
+	 * Returns the top entries for the week, starting on Monday UTC, containing an instant.
+	 *
+	 * @param withWeek
+	 * 		any instant within the week.
+	 * @param withLimit
+	 * 		maximum number of entries to return.
+	 * @return leaderboard entries.
+	 */
+	public List<LeaderboardEntry> getWeeklyTopEntries(@NonNull final Instant withWeek, final int withLimit) {
+		final Instant start = ScoreGranularity.WEEKLY.truncate(withWeek);
+		return this.getTopEntries(start, ScoreGranularity.WEEKLY.next(start), withLimit);
+	}
+
+	/**
+	 * Returns the top entries of a season.
+	 *
+	 * @param withSeasonId
+	 * 		season identifier.
+	 * @param withLimit
+	 * 		maximum number of entries to return.
+	 * @return leaderboard entries.
+	 */
+	public List<LeaderboardEntry> getSeasonTopEntries(@NonNull final String withSeasonId, final int withLimit) {
+		try {
+			return this.queryRunner.query("SELECT USERNAME, CORRECT_GUESSES, GUESSES FROM `ScoreSeason`"
+							+ " WHERE SEASON_ID = ? ORDER BY CORRECT_GUESSES DESC, USERNAME ASC LIMIT ?;"
+					, SeasonalScoreRepository::toEntries
+					, withSeasonId
+					, withLimit
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to retrieve leaderboard for season `" + withSeasonId + "`.",
+					sqlException);
+		}
+	}
+
+	/**
+	 * Adds hourly increments to the hourly table and every rollup in a single transaction. Increments are summed per
+	 * bucket before writing, so each rollup receives at most one upsert per user and bucket.
+	 *
+	 * @param withIncrements
+	 * 		increments to apply.
+	 */
+	void applyIncrements(final Collection<ScoreIncrement> withIncrements) {
+		if (withIncrements.isEmpty()) {
+			return;
+		}
+
+		final List<Season> seasonList = this.getSeasons();
+		final Map<Instant, Map<String, int[]>> hourly = new HashMap<>();
+		final Map<Instant, Map<String, int[]>> daily = new HashMap<>();
+		final Map<Instant, Map<String, int[]>> weekly = new HashMap<>();
+		final Map<String, Map<String, int[]>> seasonal = new HashMap<>();
+		for (ScoreIncrement increment : withIncrements) {
+			final Instant hour = increment.getHour();
+			SeasonalScoreRepository.accumulate(hourly, hour, increment);
+			SeasonalScoreRepository.accumulate(daily, ScoreGranularity.DAILY.truncate(hour), increment);
+			SeasonalScoreRepository.accumulate(weekly, ScoreGranularity.WEEKLY.truncate(hour), increment);
+			for (Season season : seasonList) {
+				if (season.contains(hour)) {
+					SeasonalScoreRepository.accumulate(seasonal, season.getId(), increment);
+				}
+			}
+		}
+
+		this.inTransaction("Unable to record " + withIncrements.size() + " score increments.", connection -> {
+			this.upsert(connection, ScoreGranularity.HOURLY.getTable(), "BUCKET_HOUR", hourly
+					, SeasonalScoreRepository::toEpochHour);
+			this.upsert(connection, ScoreGranularity.DAILY.getTable(), "BUCKET_HOUR", daily
+					, SeasonalScoreRepository::toEpochHour);
+			this.upsert(connection, ScoreGranularity.WEEKLY.getTable(), "BUCKET_HOUR", weekly
+					, SeasonalScoreRepository::toEpochHour);
+			this.upsert(connection, "ScoreSeason", "SEASON_ID", seasonal, seasonId -> seasonId);
+		});
+	}
+
+	/**
+	 * Returns the daily and weekly rollup buckets whose totals no longer match the hourly buckets they cover.
+	 *
+	 * @param withFrom
+	 * 		start of the range, widened to whole buckets.
+	 * @param withTo
+	 * 		end of the range, widened to whole buckets.
+	 * @return drifted buckets, e.g. `ScoreDaily@2024-01-01T00:00:00Z`.
+	 */
+	public List<String> verify(@NonNull final Instant withFrom, @NonNull final Instant withTo) {
+		final List<String> drifted = new ArrayList<>();
+		for (ScoreGranularity granularity : new ScoreGranularity[]{ScoreGranularity.DAILY, ScoreGranularity.WEEKLY}) {
+			for (Instant bucket = granularity.truncate(withFrom); bucket.isBefore(withTo);
+					bucket = granularity.next(bucket)) {
+				final Instant end = granularity.next(bucket);
+				if (!this.totals(ScoreGranularity.HOURLY, bucket, end)
+						.equals(this.totals(granularity, bucket, end))) {
+					drifted.add(granularity.getTable() + "@" + bucket);
+				}
+			}
+		}
+		return drifted;
+	}
+
+	/**
+	 * Recomputes the daily and weekly rollups from the hourly buckets, one week per transaction. The range is widened
+	 * to whole weeks. Seasons are rebuilt separately with {@link #rebuildSeason(String)}.
+	 * <p>
+	 * Each week holds the rollup lock, so recorders may keep running: their flushes wait for the week to commit, and
+	 * one that times out waiting is requeued and retried.
+	 *
+	 * @param withFrom
+	 * 		start of the range.
+	 * @param withTo
+	 * 		end of the range.
+	 */
+	public void rebuild(@NonNull final Instant withFrom, @NonNull final Instant withTo) {
+		for (Instant week = ScoreGranularity.WEEKLY.truncate(withFrom); week.isBefore(withTo);
+				week = ScoreGranularity.WEEKLY.next(week)) {
+			final Instant weekStart = week;
+			this.inTransaction("Unable to rebuild rollups for week of " + week + ".", connection -> {
+				final Instant weekEnd = ScoreGranularity.WEEKLY.next(weekStart);
+				for (Instant day = weekStart; day.isBefore(weekEnd); day = ScoreGranularity.DAILY.next(day)) {
+					this.rollUp(connection, ScoreGranularity.DAILY, day);
+				}
+				this.rollUp(connection, ScoreGranularity.WEEKLY, weekStart);
+			});
+		}
+	}
+
+	/**
+	 * Recomputes a season's rollup from the hourly buckets.
+	 *
+	 * @param withSeasonId
+	 * 		season identifier.
+	 */
+	public void rebuildSeason(@NonNull final String withSeasonId) {
+		this.seasons = null;
+		final Season season = this.getSeasons()
+				.stream()
+				.filter(candidate -> candidate.getId()
+						.equals(withSeasonId))
+				.findFirst()
+				.orElseThrow(() -> new IllegalArgumentException("Unknown season `" + withSeasonId + "`."));
+
+		this.inTransaction("Unable to rebuild season `" + withSeasonId + "`.", connection -> {
+			this.queryRunner.update(connection, "DELETE FROM `ScoreSeason` WHERE SEASON_ID = ?;", withSeasonId);
+			this.queryRunner.update(connection, "INSERT INTO `ScoreSeason` (SEASON_ID, USERNAME, CORRECT_GUESSES, GUESSES)"
+							+ " SELECT CAST(? AS VARCHAR(100)), USERNAME, SUM(CORRECT_GUESSES), SUM(GUESSES) FROM `ScoreHourly`"
+							+ " WHERE BUCKET_HOUR >= ? AND BUCKET_HOUR < ? GROUP BY USERNAME;"
+					, withSeasonId
+					, SeasonalScoreRepository.toEpochHour(season.getStartsAt())
+					, SeasonalScoreRepository.toEpochHour(season.getEndsAt())
+			);
+		});
+	}
+
+	/**
+	 * Splits an hour-aligned window into the largest whole buckets that fit, merging adjacent buckets of the same size
+	 * into a single range.
+	 *
+	 * @param withFrom
+	 * 		start of the window, aligned to an hour.
+	 * @param withTo
+	 * 		end of the window, aligned to an hour.
+	 * @return ranges to read from each table.
+	 */
+	static List<Segment> decompose(final Instant withFrom, final Instant withTo) {
+		final List<Segment> segments = new ArrayList<>();
+		Instant cursor = withFrom;
+		while (cursor.isBefore(withTo)) {
+			ScoreGranularity granularity = ScoreGranularity.HOURLY;
+			for (ScoreGranularity candidate : new ScoreGranularity[]{ScoreGranularity.WEEKLY, ScoreGranularity.DAILY}) {
+				if (candidate.isAligned(cursor) && !candidate.next(cursor)
+						.isAfter(withTo)) {
+					granularity = candidate;
+					break;
+				}
+			}
+
+			final Instant next = granularity.next(cursor);
+			final Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			if (last != null && last.granularity == granularity && last.to.equals(cursor)) {
+				last.to = next;
+			} else {
+				segments.add(new Segment(granularity, cursor, next));
+			}
+			cursor = next;
+		}
+		return segments;
+	}
+
+	/**
+	 * Replaces one rollup bucket with the sum of the hourly buckets it covers.
+	 *
+	 * @param withConnection
+	 * 		connection within the rebuild transaction.
+	 * @param withGranularity
+	 * 		granularity of the rollup.
+	 * @param withBucketStart
+	 * 		start of the bucket.
+	 * @throws SQLException
+	 * 		if the bucket could not be rebuilt.
+	 */
+	private void rollUp(final Connection withConnection, final ScoreGranularity withGranularity,
+			final Instant withBucketStart) throws SQLException {
+		final long start = SeasonalScoreRepository.toEpochHour(withBucketStart);
+		final long end = SeasonalScoreRepository.toEpochHour(withGranularity.next(withBucketStart));
+		this.queryRunner.update(withConnection, "DELETE FROM `" + withGranularity.getTable() + "` WHERE BUCKET_HOUR = ?;"
+				, start);
+		this.queryRunner.update(withConnection, "INSERT INTO `" + withGranularity.getTable() + "`"
+						+ " (BUCKET_HOUR, USERNAME, CORRECT_GUESSES, GUESSES)"
+						+ " SELECT CAST(? AS BIGINT), USERNAME, SUM(CORRECT_GUESSES), SUM(GUESSES) FROM `ScoreHourly`"
+						+ " WHERE BUCKET_HOUR >= ? AND BUCKET_HOUR < ? GROUP BY USERNAME;"
+				, start
+				, start
+				, end
+		);
+	}
+
+	/**
+	 * Returns the total users, correct guesses and guesses stored in a table over a range, for comparing rollups.
+	 *
+	 * @param withGranularity
+	 * 		table to read.
+	 * @param withFrom
+	 * 		start of the range, inclusive.
+	 * @param withTo
+	 * 		end of the range, exclusive.
+	 * @return totals.
+	 */
+	private List<Long> totals(final ScoreGranularity withGranularity, final Instant withFrom, final Instant withTo) {
+		try {
+			return this.queryRunner.query("SELECT COUNT(DISTINCT USERNAME), COALESCE(SUM(CORRECT_GUESSES), 0)"
+							+ ", COALESCE(SUM(GUESSES), 0) FROM `" + withGranularity.getTable() + "`"
+							+ " WHERE BUCKET_HOUR >= ? AND BUCKET_HOUR < ?;"
+					, resultSet -> {
+						resultSet.next();
+						return List.of(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3));
+					}
+					, SeasonalScoreRepository.toEpochHour(withFrom)
+					, SeasonalScoreRepository.toEpochHour(withTo)
+			);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException("Unable to total `" + withGranularity.getTable() + "`.", sqlException);
+		}
+	}
+
+	/**
+	 * Adds the given per-user sums to a table, inserting rows that do not yet exist.
+	 *
+	 * @param withConnection
+	 * 		connection within the current transaction.
+	 * @param withTable
+	 * 		table name.
+	 * @param withKeyColumn
+	 * 		name of the bucket column.
+	 * @param withSums
+	 * 		correct guesses and guesses per user, grouped by bucket.
+	 * @param withKeyMapper
+	 * 		converts a bucket to its column value.
+	 * @param <K>
+	 * 		type of the bucket.
+	 * @throws SQLException
+	 * 		if the upsert failed.
+	 */
+	private <K> void upsert(final Connection withConnection, final String withTable, final String withKeyColumn,
+			final Map<K, Map<String, int[]>> withSums, final Function<? super K, ?> withKeyMapper) throws SQLException {
+		final List<Object[]> rows = new ArrayList<>();
+		withSums.forEach((key, users) -> users.forEach((username, sums) -> rows.add(new Object[]{
+				withKeyMapper.apply(key), username, sums[0], sums[1], sums[0], sums[1]
+		})));
+		if (rows.isEmpty()) {
+			return;
+		}
+
+		this.queryRunner.batch(withConnection, "INSERT INTO `" + withTable + "` (" + withKeyColumn
+						+ ", USERNAME, CORRECT_GUESSES, GUESSES) VALUES (?, ?, ?, ?)"
+						+ " ON DUPLICATE KEY UPDATE CORRECT_GUESSES = CORRECT_GUESSES + ?, GUESSES = GUESSES + ?;"
+				, rows.toArray(Object[][]::new)
+		);
+	}
+
+	/**
+	 * Runs work within a transaction holding the rollup lock, rolling back if it fails.
+	 *
+	 * @param withErrorMessage
+	 * 		message of the exception thrown on failure.
+	 * @param withWork
+	 * 		work to run.
+	 */
+	private void inTransaction(final String withErrorMessage, final TransactionWork withWork) {
+		try (Connection connection = this.queryRunner.getDataSource()
+				.getConnection()) {
+			final boolean autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			try {
+				// the row lock is held until commit, serialising flushes and rebuilds across every node
+				this.queryRunner.query(connection, "SELECT ID FROM `ScoreRollupLock` WHERE ID = 0 FOR UPDATE;"
+						, new ScalarHandler<Integer>());
+				withWork.run(connection);
+				connection.commit();
+			} catch (SQLException | RuntimeException ex) {
+				connection.rollback();
+				throw ex;
+			} finally {
+				connection.setAutoCommit(autoCommit);
+			}
+		} catch (SQLException sqlException) {
+			throw new RuntimeException(withErrorMessage, sqlException);
+		}
+	}
+
+	/**
+	 * Adds an increment to the sums of a bucket.
+	 *
+	 * @param withSums
+	 * 		sums per user, grouped by bucket.
+	 * @param withKey
+	 * 		bucket.
+	 * @param withIncrement
+	 * 		increment to add.
+	 * @param <K>
+	 * 		type of the bucket.
+	 */
+	private static <K> void accumulate(final Map<K, Map<String, int[]>> withSums, final K withKey,
+			final ScoreIncrement withIncrement) {
+		final int[] sums = withSums.computeIfAbsent(withKey, key -> new HashMap<>())
+				.computeIfAbsent(withIncrement.getUsername(), username -> new int[2]);
+		sums[0] += withIncrement.getCorrectGuesses();
+		sums[1] += withIncrement.getGuesses();
+	}
+
+	/**
+	 * Reads leaderboard entries from a result set of username, correct guesses and guesses.
+	 *
+	 * @param withResultSet
+	 * 		result set.
+	 * @return leaderboard entries.
+	 * @throws SQLException
+	 * 		if the result set could not be read.
+	 */
+	private static List<LeaderboardEntry> toEntries(final ResultSet withResultSet) throws SQLException {
+		final List<LeaderboardEntry> entries = new ArrayList<>();
+		while (withResultSet.next()) {
+			entries.add(new LeaderboardEntry(withResultSet.getString(1), withResultSet.getInt(2), withResultSet.getInt(3)));
+		}
+		return entries;
+	}
+
+	/**
+	 * Returns the number of whole hours between the epoch and an instant, which is how buckets are keyed.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return hours since the epoch.
+	 */
+	private static long toEpochHour(final Instant withInstant) {
+		return Math.floorDiv(withInstant.getEpochSecond(), SECONDS_PER_HOUR);
+	}
+
+	/**
+	 * Returns the start of an hour given as hours since the epoch.
+	 *
+	 * @param withEpochHour
+	 * 		hours since the epoch.
+	 * @return start of the hour.
+	 */
+	private static Instant fromEpochHour(final long withEpochHour) {
+		return Instant.ofEpochSecond(withEpochHour * SECONDS_PER_HOUR);
+	}
+
+	/**
+	 * Rounds an instant up to the next whole hour.
+	 *
+	 * @param withInstant
+	 * 		instant.
+	 * @return hour-aligned instant.
+	 */
+	private static Instant ceilToHour(final Instant withInstant) {
+		final Instant truncated = withInstant.truncatedTo(ChronoUnit.HOURS);
+		return truncated.equals(withInstant) ? truncated : truncated.plus(1, ChronoUnit.HOURS);
+	}
+
+	/**
+	 * Work run within a transaction.
+	 */
+	@FunctionalInterface
+	private interface TransactionWork {
+
+		/**
+		 * Runs the work.
+		 *
+		 * @param withConnection
+		 * 		connection within the transaction.
+		 * @throws SQLException
+		 * 		if the work failed.
+		 */
+		void run(Connection withConnection) throws SQLException;
+	}
+
+	/**
+	 * Contiguous range of buckets read from a single table.
+	 */
+	static final class Segment {
+
+		/**
+		 * Granularity of the buckets.
+		 */
+		private final ScoreGranularity granularity;
+
+		/**
+		 * Start of the first bucket, inclusive.
+		 */
+		private final Instant from;
+
+		/**
+		 * End of the last bucket, exclusive.
+		 */
+		private Instant to;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withGranularity
+		 * 		granularity of the buckets.
+		 * @param withFrom
+		 * 		start of the first bucket.
+		 * @param withTo
+		 * 		end of the last bucket.
+		 */
+		private Segment(final ScoreGranularity withGranularity, final Instant withFrom, final Instant withTo) {
+			this.granularity = withGranularity;
+			this.from = withFrom;
+			this.to = withTo;
+		}
+
+		@Override
+		public String toString() {
+			return this.granularity + "[" + this.from + ", " + this.to + ")";
+		}
+	}
+}
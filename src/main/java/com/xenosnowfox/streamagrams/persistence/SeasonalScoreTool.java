@@ -0,0 +1,69 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import com.xenosnowfox.streamagrams.utils.PropertiesUtils;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Command line tool verifying or rebuilding the seasonal score rollups of the configured datasource.
+ * <p>
+ * Usage: `verify &lt;from&gt; &lt;to&gt;`, `rebuild &lt;from&gt; &lt;to&gt;` or `rebuild-season &lt;id&gt;`, with
+ * times in ISO-8601, e.g. `2024-01-01T00:00:00Z`. Rebuilds may run while the application is recording scores.
+ */
+public class SeasonalScoreTool {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(SeasonalScoreTool.class.getName());
+
+	/**
+	 * Hidden constructor.
+	 */
+	private SeasonalScoreTool() {}
+
+	/**
+	 * Runs the tool.
+	 *
+	 * @param args
+	 * 		command line arguments.
+	 * @throws Exception
+	 * 		if the operation failed.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final boolean window = args.length == 3 && (args[0].equals("verify") || args[0].equals("rebuild"));
+		if (!window && !(args.length == 2 && args[0].equals("rebuild-season"))) {
+			LOGGER.severe("Usage: SeasonalScoreTool (verify|rebuild) <from> <to> | rebuild-season <id>");
+			System.exit(1);
+			return;
+		}
+
+		final DataSource dataSource = BasicDataSourceFactory.createDataSource(
+				PropertiesUtils.fromResources("datasource.properties"));
+		DataSourceMigration.update(dataSource);
+		final SeasonalScoreRepository repository = SeasonalScoreRepository.newInstance(dataSource);
+
+		if (args[0].equals("rebuild-season")) {
+			repository.rebuildSeason(args[1]);
+			LOGGER.info("Rebuilt season `" + args[1] + "`.");
+			return;
+		}
+
+		final Instant from = Instant.parse(args[1]);
+		final Instant to = Instant.parse(args[2]);
+		if (args[0].equals("verify")) {
+			final List<String> drifted = repository.verify(from, to);
+			LOGGER.info(drifted.isEmpty() ? "Rollups match hourly scores." : "Drifted buckets: " + drifted);
+			if (!drifted.isEmpty()) {
+				System.exit(2);
+			}
+		} else {
+			repository.rebuild(from, to);
+			LOGGER.info("Rebuilt rollups between " + from + " and " + to + ".");
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Summary of a bulk export or import.
+ */
+@Getter
+public class TransferReport {
+
+	/**
+	 * Number of rows transferred.
+	 */
+	private final long rows;
+
+	/**
+	 * Time taken by the transfer.
+	 */
+	private final long durationNanos;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withRows
+	 * 		number of rows transferred.
+	 * @param withDurationNanos
+	 * 		time taken by the transfer.
+	 */
+	TransferReport(final long withRows, final long withDurationNanos) {
+		this.rows = withRows;
+		this.durationNanos = withDurationNanos;
+	}
+
+	/**
+	 * Returns the transfer throughput.
+	 *
+	 * @return rows per second.
+	 */
+	public double getRowsPerSecond() {
+		return TransferReport.rowsPerSecond(this.rows, this.durationNanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows in %dms (%.0f rows/s)"
+				, this.rows
+				, TimeUnit.NANOSECONDS.toMillis(this.durationNanos)
+				, this.getRowsPerSecond());
+	}
+
+	/**
+	 * Returns the throughput for a number of rows transferred over a period.
+	 *
+	 * @param withRows
+	 * 		number of rows.
+	 * @param withNanos
+	 * 		period in nanoseconds.
+	 * @return rows per second.
+	 */
+	static double rowsPerSecond(final long withRows, final long withNanos) {
+		return withNanos <= 0 ? 0 : withRows * (double) TimeUnit.SECONDS.toNanos(1) / withNanos;
+	}
+}
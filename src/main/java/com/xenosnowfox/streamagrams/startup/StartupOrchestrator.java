@@ -0,0 +1,273 @@
+package com.xenosnowfox.streamagrams.startup;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Runs the application's startup stages, starting each stage as soon as the stages it depends upon have completed so
+ * that independent stages run concurrently.
+ * <p>
+ * Once every stage has finished a per-stage timing report is logged. When the
+ * `streamagrams.startup.exitAfterStartup` system property is set the JVM exits after startup, which is used by the
+ * build to record the classes loaded during startup for the AppCDS archive.
+ */
+public class StartupOrchestrator {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(StartupOrchestrator.class.getName());
+
+	/**
+	 * System property that requests the JVM to exit once startup has completed.
+	 */
+	public static final String EXIT_AFTER_STARTUP_PROPERTY = "streamagrams.startup.exitAfterStartup";
+
+	/**
+	 * Stages to run, keyed by name in declaration order.
+	 */
+	private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @return new StartupOrchestrator instance.
+	 */
+	public static StartupOrchestrator newInstance() {
+		return new StartupOrchestrator();
+	}
+
+	/**
+	 * Hidden constructor.
+	 */
+	private StartupOrchestrator() {
+	}
+
+	/**
+	 * Declares a stage without dependencies.
+	 *
+	 * @param withName
+	 * 		unique stage name.
+	 * @param withTask
+	 * 		work performed by the stage.
+	 * @return this instance to allow for method chaining.
+	 */
+	public StartupOrchestrator withStage(@NonNull final String withName, @NonNull final StartupTask withTask) {
+		return this.withStage(withName, Collections.emptySet(), withTask);
+	}
+
+	/**
+	 * Declares a stage that may only start once the named stages have completed.
+	 *
+	 * @param withName
+	 * 		unique stage name.
+	 * @param withDependencies
+	 * 		names of the stages this stage depends upon.
+	 * @param withTask
+	 * 		work performed by the stage.
+	 * @return this instance to allow for method chaining.
+	 */
+	public StartupOrchestrator withStage(@NonNull final String withName, @NonNull final Set<String> withDependencies,
+			@NonNull final StartupTask withTask) {
+		if (this.stages.containsKey(withName)) {
+			throw new IllegalArgumentException("Stage `" + withName + "` has already been declared.");
+		}
+		this.stages.put(withName, new Stage(withName, new LinkedHashSet<>(withDependencies), withTask));
+		return this;
+	}
+
+	/**
+	 * Runs every stage and blocks until they have all completed.
+	 *
+	 * @return timing report.
+	 * @throws IllegalStateException
+	 * 		if the stage dependencies are invalid, or if any stage failed.
+	 */
+	public StartupReport run() {
+		final List<Stage> ordered = this.getStagesInDependencyOrder();
+		final AtomicInteger threadCount = new AtomicInteger();
+		// stages are mostly I/O bound, so every stage gets a thread and is never queued behind another
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, ordered.size()), runnable -> {
+			final Thread thread = new Thread(runnable, "startup-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		final long startNanos = System.nanoTime();
+		final Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+		try {
+			for (final Stage stage : ordered) {
+				final CompletableFuture<?>[] dependencies = stage.dependencies.stream()
+						.map(futures::get)
+						.toArray(CompletableFuture[]::new);
+
+				futures.put(stage.name, CompletableFuture.allOf(dependencies)
+						.thenRunAsync(() -> stage.execute(startNanos), executor));
+			}
+
+			try {
+				CompletableFuture.allOf(futures.values()
+								.toArray(CompletableFuture[]::new))
+						.join();
+			} catch (CompletionException ex) {
+				throw new IllegalStateException("Startup failed.", ex.getCause());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final List<StartupReport.Entry> entries = new ArrayList<>();
+		for (final Stage stage : ordered) {
+			entries.add(new StartupReport.Entry(stage.name, stage.threadName, stage.startOffsetNanos, stage.durationNanos));
+		}
+		final StartupReport report = new StartupReport(entries, System.nanoTime() - startNanos);
+		LOGGER.info(report.toString());
+
+		if (Boolean.getBoolean(EXIT_AFTER_STARTUP_PROPERTY)) {
+			LOGGER.info("Exiting after startup as requested by `" + EXIT_AFTER_STARTUP_PROPERTY + "`.");
+			System.exit(0);
+		}
+		return report;
+	}
+
+	/**
+	 * Returns the stages ordered such that every stage appears after its dependencies.
+	 *
+	 * @return ordered stages.
+	 * @throws IllegalStateException
+	 * 		if a dependency is unknown or the dependencies form a cycle.
+	 */
+	private List<Stage> getStagesInDependencyOrder() {
+		final List<Stage> ordered = new ArrayList<>();
+		final Set<String> visited = new LinkedHashSet<>();
+		final Set<String> visiting = new LinkedHashSet<>();
+		for (final Stage stage : this.stages.values()) {
+			this.visit(stage, visited, visiting, ordered);
+		}
+		return ordered;
+	}
+
+	/**
+	 * Depth-first visit used to order stages by dependency.
+	 *
+	 * @param withStage
+	 * 		stage to visit.
+	 * @param withVisited
+	 * 		stages already ordered.
+	 * @param withVisiting
+	 * 		stages on the current path, used to detect cycles.
+	 * @param withOrdered
+	 * 		ordered stages.
+	 */
+	private void visit(final Stage withStage, final Set<String> withVisited, final Set<String> withVisiting,
+			final List<Stage> withOrdered) {
+		if (withVisited.contains(withStage.name)) {
+			return;
+		}
+		if (!withVisiting.add(withStage.name)) {
+			throw new IllegalStateException("Startup stages form a cycle: " + withVisiting + " -> " + withStage.name);
+		}
+
+		for (final String dependency : withStage.dependencies) {
+			final Stage dependencyStage = this.stages.get(dependency);
+			if (dependencyStage == null) {
+				throw new IllegalStateException("Stage `" + withStage.name + "` depends on unknown stage `" + dependency + "`.");
+			}
+			this.visit(dependencyStage, withVisited, withVisiting, withOrdered);
+		}
+
+		withVisiting.remove(withStage.name);
+		withVisited.add(withStage.name);
+		withOrdered.add(withStage);
+	}
+
+	/**
+	 * A declared startup stage and its timings.
+	 */
+	private static final class Stage {
+
+		/**
+		 * Stage name.
+		 */
+		private final String name;
+
+		/**
+		 * Names of the stages this stage depends upon.
+		 */
+		private final Set<String> dependencies;
+
+		/**
+		 * Work performed by the stage.
+		 */
+		private final StartupTask task;
+
+		/**
+		 * Name of the thread that ran the stage.
+		 */
+		private volatile String threadName;
+
+		/**
+		 * Time at which the stage started, relative to the start of startup.
+		 */
+		private volatile long startOffsetNanos;
+
+		/**
+		 * Time taken by the stage.
+		 */
+		private volatile long durationNanos;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withName
+		 * 		stage name.
+		 * @param withDependencies
+		 * 		names of the stages this stage depends upon.
+		 * @param withTask
+		 * 		work performed by the stage.
+		 */
+		private Stage(final String withName, final Set<String> withDependencies, final StartupTask withTask) {
+			this.name = withName;
+			this.dependencies = withDependencies;
+			this.task = withTask;
+		}
+
+		/**
+		 * Runs the stage, recording its timings.
+		 *
+		 * @param withStartupNanos
+		 * 		time at which startup began.
+		 */
+		private void execute(final long withStartupNanos) {
+			final long start = System.nanoTime();
+			this.threadName = Thread.currentThread()
+					.getName();
+			this.startOffsetNanos = start - withStartupNanos;
+			try {
+				this.task.run();
+			} catch (RuntimeException ex) {
+				throw ex;
+			} catch (Exception ex) {
+				throw new RuntimeException("Stage `" + this.name + "` failed.", ex);
+			} finally {
+				this.durationNanos = System.nanoTime() - start;
+				LOGGER.fine("Stage `" + this.name + "` finished in " + TimeUnit.NANOSECONDS.toMillis(this.durationNanos) + "ms");
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package com.xenosnowfox.streamagrams.startup;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage timing breakdown of an application startup.
+ */
+@Getter
+public class StartupReport {
+
+	/**
+	 * Stage timings, in dependency order.
+	 */
+	private final List<Entry> entries;
+
+	/**
+	 * Wall-clock time taken by the whole startup.
+	 */
+	private final long totalNanos;
+
+	/**
+	 * Instantiates a new instance.
+	 *
+	 * @param withEntries
+	 * 		stage timings.
+	 * @param withTotalNanos
+	 * 		wall-clock time taken by the whole startup.
+	 */
+	StartupReport(final List<Entry> withEntries, final long withTotalNanos) {
+		this.entries = Collections.unmodifiableList(withEntries);
+		this.totalNanos = withTotalNanos;
+	}
+
+	/**
+	 * Returns the sum of the time taken by each stage, i.e. how long startup would have taken had it run serially.
+	 *
+	 * @return serial time in nanoseconds.
+	 */
+	public long getSerialNanos() {
+		return this.entries.stream()
+				.mapToLong(Entry::getDurationNanos)
+				.sum();
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder("Startup timings:");
+		for (final Entry entry : this.entries) {
+			builder.append(String.format("%n  %-24s start %6dms  took %6dms  [%s]"
+					, entry.getName()
+					, TimeUnit.NANOSECONDS.toMillis(entry.getStartOffsetNanos())
+					, TimeUnit.NANOSECONDS.toMillis(entry.getDurationNanos())
+					, entry.getThreadName()));
+		}
+		builder.append(String.format("%n  total %dms (%dms if run serially)"
+				, TimeUnit.NANOSECONDS.toMillis(this.totalNanos)
+				, TimeUnit.NANOSECONDS.toMillis(this.getSerialNanos())));
+		return builder.toString();
+	}
+
+	/**
+	 * Timings of a single stage.
+	 */
+	@Getter
+	public static final class Entry {
+
+		/**
+		 * Stage name.
+		 */
+		private final String name;
+
+		/**
+		 * Name of the thread that ran the stage.
+		 */
+		private final String threadName;
+
+		/**
+		 * Time at which the stage started, relative to the start of startup.
+		 */
+		private final long startOffsetNanos;
+
+		/**
+		 * Time taken by the stage.
+		 */
+		private final long durationNanos;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withName
+		 * 		stage name.
+		 * @param withThreadName
+		 * 		name of the thread that ran the stage.
+		 * @param withStartOffsetNanos
+		 * 		time at which the stage started, relative to the start of startup.
+		 * @param withDurationNanos
+		 * 		time taken by the stage.
+		 */
+		Entry(final String withName, final String withThreadName, final long withStartOffsetNanos,
+				final long withDurationNanos) {
+			this.name = withName;
+			this.threadName = withThreadName;
+			this.startOffsetNanos = withStartOffsetNanos;
+			this.durationNanos = withDurationNanos;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package com.xenosnowfox.streamagrams.startup;
+
+/**
+ * Unit of work performed by a startup stage.
+ */
+@FunctionalInterface
+public interface StartupTask {
+
+	/**
+	 * Performs the work of the stage.
+	 *
+	 * @throws Exception
+	 * 		if the stage failed.
+	 */
+	void run() throws Exception;
+}
@@ -0,0 +1,416 @@
+package com.xenosnowfox.streamagrams.twitch;
+
+import lombok.NonNull;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects chat lines that cannot be a guess for the active rack, working directly on the raw IRC frame so that
+ * rejected lines are never dispatched to the guess listener of the {@link TwitchIRCClient}. Other listeners still
+ * receive every line.
+ * <p>
+ * A `PRIVMSG` to a channel with an active rack is rejected when its text is outside the rack's length bounds, or
+ * contains a character that is not one of the rack's letters. Lines for channels without a rack, commands starting with
+ * `!`, frames holding more than one line and text containing non-ASCII letters are always let through. The check
+ * does not allocate.
+ */
+public class GuessPrefilter {
+
+	/**
+	 * Token preceding the channel name of a chat message.
+	 */
+	private static final String PRIVMSG_TOKEN = " PRIVMSG #";
+
+	/**
+	 * Default minimum length of a guess.
+	 */
+	private static final int DEFAULT_MIN_LENGTH = 2;
+
+	/**
+	 * Open-addressed table of active racks. Replaced wholesale whenever a rack changes so that readers never lock.
+	 */
+	private volatile Rack[] table = new Rack[0];
+
+	/**
+	 * Active racks, keyed by lower-cased channel name. Guarded by this instance.
+	 */
+	private final Map<String, Rack> racks = new HashMap<>();
+
+	/**
+	 * Minimum length of a guess.
+	 */
+	private int minLength = DEFAULT_MIN_LENGTH;
+
+	/**
+	 * Number of frames inspected.
+	 */
+	private final AtomicLong inspectedCount = new AtomicLong();
+
+	/**
+	 * Number of frames rejected.
+	 */
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * Time spent inspecting frames.
+	 */
+	private final AtomicLong inspectionNanos = new AtomicLong();
+
+	/**
+	 * Number of frames that were handled as a guess after passing the filter.
+	 */
+	private final AtomicLong downstreamCount = new AtomicLong();
+
+	/**
+	 * Time spent handling frames that passed the filter as a guess.
+	 */
+	private final AtomicLong downstreamNanos = new AtomicLong();
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @return new GuessPrefilter instance.
+	 */
+	public static GuessPrefilter newInstance() {
+		return new GuessPrefilter();
+	}
+
+	/**
+	 * Hidden constructor.
+	 */
+	private GuessPrefilter() {
+	}
+
+	/**
+	 * Defines the minimum length of a guess.
+	 *
+	 * @param withMinLength
+	 * 		minimum length.
+	 * @return this instance to allow for method chaining.
+	 */
+	public GuessPrefilter withMinLength(final int withMinLength) {
+		this.minLength = withMinLength;
+		return this;
+	}
+
+	/**
+	 * Defines the active rack for a channel. Guesses longer than the rack, or using letters not on it, are rejected.
+	 *
+	 * @param withChannelName
+	 * 		channel name, without a leading `#`.
+	 * @param withLetters
+	 * 		letters on the rack.
+	 */
+	public synchronized void setRack(@NonNull final String withChannelName, @NonNull final String withLetters) {
+		int mask = 0;
+		for (int i = 0; i < withLetters.length(); i++) {
+			final int bit = GuessPrefilter.letterBit(withLetters.charAt(i));
+			if (bit < 0) {
+				throw new IllegalArgumentException("Rack may only contain the letters a to z: " + withLetters);
+			}
+			mask |= bit;
+		}
+
+		final String channel = withChannelName.toLowerCase(Locale.ROOT);
+		this.racks.put(channel, new Rack(channel, mask, withLetters.length()));
+		this.rebuildTable();
+	}
+
+	/**
+	 * Removes the active rack for a channel, letting all of its lines through.
+	 *
+	 * @param withChannelName
+	 * 		channel name, without a leading `#`.
+	 */
+	public synchronized void clearRack(@NonNull final String withChannelName) {
+		if (this.racks.remove(withChannelName.toLowerCase(Locale.ROOT)) != null) {
+			this.rebuildTable();
+		}
+	}
+
+	/**
+	 * Inspects a raw IRC frame.
+	 *
+	 * @param withFrame
+	 * 		raw frame as received from the websocket.
+	 * @return true if the frame cannot be a guess and should be discarded.
+	 */
+	public boolean reject(@NonNull final String withFrame) {
+		final long start = System.nanoTime();
+		final boolean rejected = this.inspect(withFrame);
+		this.inspectionNanos.addAndGet(System.nanoTime() - start);
+		this.inspectedCount.incrementAndGet();
+		if (rejected) {
+			this.rejectedCount.incrementAndGet();
+		}
+		return rejected;
+	}
+
+	/**
+	 * Records the time taken to handle a frame that passed the filter as a guess. Used to estimate the CPU time saved
+	 * by rejecting frames.
+	 *
+	 * @param withNanos
+	 * 		time taken.
+	 */
+	public void recordDownstreamNanos(final long withNanos) {
+		this.downstreamCount.incrementAndGet();
+		this.downstreamNanos.addAndGet(withNanos);
+	}
+
+	/**
+	 * Returns the number of frames inspected.
+	 *
+	 * @return inspected count.
+	 */
+	public long getInspectedCount() {
+		return this.inspectedCount.get();
+	}
+
+	/**
+	 * Returns the number of frames rejected.
+	 *
+	 * @return rejected count.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
+	/**
+	 * Returns the fraction of inspected frames that were rejected.
+	 *
+	 * @return rejection ratio between 0 and 1.
+	 */
+	public double getRejectionRatio() {
+		final long inspected = this.inspectedCount.get();
+		return inspected == 0 ? 0 : (double) this.rejectedCount.get() / inspected;
+	}
+
+	/**
+	 * Returns an estimate of the CPU time saved: the rejected frames multiplied by the average cost of handling a frame
+	 * as a guess, less the time spent inspecting frames.
+	 *
+	 * @return estimated nanoseconds saved.
+	 */
+	public long getEstimatedNanosSaved() {
+		final long downstream = this.downstreamCount.get();
+		if (downstream == 0) {
+			return 0;
+		}
+		final double averageDownstreamNanos = (double) this.downstreamNanos.get() / downstream;
+		return Math.round(this.rejectedCount.get() * averageDownstreamNanos) - this.inspectionNanos.get();
+	}
+
+	/**
+	 * Returns a summary of the filter's effectiveness.
+	 *
+	 * @return summary.
+	 */
+	@Override
+	public String toString() {
+		return String.format("GuessPrefilter: rejected %d of %d frames (%.1f%%), ~%.2fms CPU saved"
+				, this.getRejectedCount()
+				, this.getInspectedCount()
+				, this.getRejectionRatio() * 100
+				, this.getEstimatedNanosSaved() / 1e6);
+	}
+
+	/**
+	 * Checks whether a frame cannot be a guess.
+	 *
+	 * @param withFrame
+	 * 		raw frame.
+	 * @return true if the frame should be rejected.
+	 */
+	private boolean inspect(final String withFrame) {
+		final Rack[] racksTable = this.table;
+		if (racksTable.length == 0) {
+			return false;
+		}
+
+		// ignore trailing line terminators, and let frames holding several lines through untouched
+		int end = withFrame.length();
+		while (end > 0 && (withFrame.charAt(end - 1) == '\n' || withFrame.charAt(end - 1) == '\r')) {
+			end--;
+		}
+		if (withFrame.lastIndexOf('\n', end - 1) >= 0) {
+			return false;
+		}
+
+		final int token = withFrame.indexOf(PRIVMSG_TOKEN);
+		if (token < 0) {
+			return false;
+		}
+
+		final int channelStart = token + PRIVMSG_TOKEN.length();
+		final int channelEnd = withFrame.indexOf(' ', channelStart);
+		if (channelEnd < 0 || channelEnd + 1 >= end || withFrame.charAt(channelEnd + 1) != ':') {
+			return false;
+		}
+
+		final Rack rack = GuessPrefilter.find(racksTable, withFrame, channelStart, channelEnd);
+		if (rack == null) {
+			return false;
+		}
+
+		int textStart = channelEnd + 2;
+		int textEnd = end;
+		while (textStart < textEnd && withFrame.charAt(textStart) == ' ') {
+			textStart++;
+		}
+		while (textEnd > textStart && withFrame.charAt(textEnd - 1) == ' ') {
+			textEnd--;
+		}
+
+		if (textStart < textEnd && withFrame.charAt(textStart) == '!') {
+			return false;
+		}
+
+		final int length = textEnd - textStart;
+		if (length < this.minLength || length > rack.maxLength) {
+			return true;
+		}
+
+		for (int i = textStart; i < textEnd; i++) {
+			final char c = withFrame.charAt(i);
+			final int bit = GuessPrefilter.letterBit(c);
+			if (bit < 0) {
+				// letters outside a to z cannot be judged by the mask, so leave them to the full parser
+				return c < 0x80 || !Character.isLetter(c);
+			}
+			if ((rack.mask & bit) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Rebuilds the open-addressed lookup table from the active racks. Must be called while holding this instance's
+	 * lock.
+	 */
+	private void rebuildTable() {
+		if (this.racks.isEmpty()) {
+			this.table = new Rack[0];
+			return;
+		}
+
+		final Rack[] newTable = new Rack[Integer.highestOneBit(this.racks.size() * 4 - 1) << 1];
+		for (final Rack rack : this.racks.values()) {
+			int slot = GuessPrefilter.spread(rack.hash) & (newTable.length - 1);
+			while (newTable[slot] != null) {
+				slot = (slot + 1) & (newTable.length - 1);
+			}
+			newTable[slot] = rack;
+		}
+		this.table = newTable;
+	}
+
+	/**
+	 * Looks up the rack for the channel named by a region of a frame.
+	 *
+	 * @param withTable
+	 * 		lookup table.
+	 * @param withFrame
+	 * 		raw frame.
+	 * @param withStart
+	 * 		start of the channel name.
+	 * @param withEnd
+	 * 		end of the channel name, exclusive.
+	 * @return rack, or null if the channel has no active rack.
+	 */
+	private static Rack find(final Rack[] withTable, final String withFrame, final int withStart, final int withEnd) {
+		// same as String#hashCode of the lower-cased channel name, without creating the string
+		int hash = 0;
+		for (int i = withStart; i < withEnd; i++) {
+			final char c = withFrame.charAt(i);
+			hash = 31 * hash + (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+		}
+
+		final int length = withEnd - withStart;
+		int slot = GuessPrefilter.spread(hash) & (withTable.length - 1);
+		Rack rack;
+		while ((rack = withTable[slot]) != null) {
+			if (rack.hash == hash && rack.channel.length() == length
+					&& withFrame.regionMatches(true, withStart, rack.channel, 0, length)) {
+				return rack;
+			}
+			slot = (slot + 1) & (withTable.length - 1);
+		}
+		return null;
+	}
+
+	/**
+	 * Spreads the bits of a hash code across the table.
+	 *
+	 * @param withHash
+	 * 		hash code.
+	 * @return spread hash.
+	 */
+	private static int spread(final int withHash) {
+		return withHash ^ (withHash >>> 16);
+	}
+
+	/**
+	 * Returns the mask bit of an ASCII letter, ignoring case.
+	 *
+	 * @param withChar
+	 * 		character.
+	 * @return mask bit, or -1 if the character is not a letter from a to z.
+	 */
+	private static int letterBit(final char withChar) {
+		if (withChar >= 'a' && withChar <= 'z') {
+			return 1 << (withChar - 'a');
+		}
+		if (withChar >= 'A' && withChar <= 'Z') {
+			return 1 << (withChar - 'A');
+		}
+		return -1;
+	}
+
+	/**
+	 * Active rack of a channel.
+	 */
+	private static final class Rack {
+
+		/**
+		 * Lower-cased channel name.
+		 */
+		private final String channel;
+
+		/**
+		 * Hash code of the channel name.
+		 */
+		private final int hash;
+
+		/**
+		 * Bit mask of the letters on the rack.
+		 */
+		private final int mask;
+
+		/**
+		 * Number of letters on the rack, and so the maximum length of a guess.
+		 */
+		private final int maxLength;
+
+		/**
+		 * Instantiates a new instance.
+		 *
+		 * @param withChannel
+		 * 		lower-cased channel name.
+		 * @param withMask
+		 * 		bit mask of the letters on the rack.
+		 * @param withMaxLength
+		 * 		number of letters on the rack.
+		 */
+		private Rack(final String withChannel, final int withMask, final int withMaxLength) {
+			this.channel = withChannel;
+			this.hash = withChannel.hashCode();
+			this.mask = withMask;
+			this.maxLength = withMaxLength;
+		}
+	}
+}
@@ -6,7 +6,8 @@ package com.xenosnowfox.streamagrams.twitch;
 public interface TwitchAccessTokenListener {
 
 	/**
-	 * Called with the access token.
+	 * Called with the access token. This is invoked on the HTTP request thread, so any slow work such as logging in to
+	 * IRC should be handed off, e.g. to a {@link TwitchLoginPipeline}.
 	 *
 	 * @param withAccessToken Twitch OAuth2 Access Token
 	 */
@@ -0,0 +1,490 @@
+package com.xenosnowfox.streamagrams.twitch;
+
+import lombok.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces outbound chat announcements per channel.
+ * <p>
+ * Announcements are collected over a short window and rendered into as few PRIVMSG lines as possible, keeping each
+ * line within Twitch's message length limit. Priority announcements bypass the window and are sent immediately.
+ */
+public class TwitchAnnouncementAggregator {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(TwitchAnnouncementAggregator.class.getName());
+
+	/**
+	 * Maximum number of characters Twitch accepts in a single chat message.
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 500;
+
+	/**
+	 * Default period over which announcements are collected before being sent.
+	 */
+	private static final Duration DEFAULT_WINDOW = Duration.ofMillis(1500);
+
+	/**
+	 * Separator placed between coalesced announcements sharing a line.
+	 */
+	private static final String SEPARATOR = " | ";
+
+	/**
+	 * IRC client used to deliver messages.
+	 */
+	private final TwitchIRCClient client;
+
+	/**
+	 * Nickname used when sending messages.
+	 */
+	private final String nickname;
+
+	/**
+	 * Pending announcements, keyed by lower-cased channel name.
+	 */
+	private final Map<String, PendingAnnouncements> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Total number of announcements submitted.
+	 */
+	private final AtomicLong announcementCount = new AtomicLong();
+
+	/**
+	 * Total number of chat lines sent.
+	 */
+	private final AtomicLong lineCount = new AtomicLong();
+
+	/**
+	 * Total number of chat lines the submitted announcements would have taken had each been sent on its own.
+	 */
+	private final AtomicLong uncoalescedLineCount = new AtomicLong();
+
+	/**
+	 * Scheduler used to flush channels once their window elapses.
+	 */
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Whether the scheduler was created by this instance and should be stopped on shutdown.
+	 */
+	private boolean ownsScheduler = false;
+
+	/**
+	 * Period over which announcements are collected before being sent.
+	 */
+	private Duration window = DEFAULT_WINDOW;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withClient
+	 * 		IRC client used to deliver messages.
+	 * @param withNickname
+	 * 		nickname used when sending messages.
+	 * @return new TwitchAnnouncementAggregator instance.
+	 */
+	public static TwitchAnnouncementAggregator newInstance(@NonNull final TwitchIRCClient withClient,
+			@NonNull final String withNickname) {
+		return new TwitchAnnouncementAggregator(withClient, withNickname);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withClient
+	 * 		IRC client used to deliver messages.
+	 * @param withNickname
+	 * 		nickname used when sending messages.
+	 */
+	private TwitchAnnouncementAggregator(final TwitchIRCClient withClient, final String withNickname) {
+		this.client = withClient;
+		this.nickname = withNickname;
+	}
+
+	/**
+	 * Defines the period over which announcements are collected before being sent.
+	 *
+	 * @param withWindow
+	 * 		collection window.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchAnnouncementAggregator withWindow(@NonNull final Duration withWindow) {
+		if (withWindow.isNegative()) {
+			throw new IllegalArgumentException("Window must not be negative.");
+		}
+		this.window = withWindow;
+		return this;
+	}
+
+	/**
+	 * Defines the scheduler used to flush channels once their window elapses. A scheduler created internally before
+	 * this call is shut down once its already scheduled flushes have run.
+	 *
+	 * @param withScheduler
+	 * 		scheduler.
+	 * @return this instance to allow for method chaining.
+	 */
+	public synchronized TwitchAnnouncementAggregator withScheduler(@NonNull final ScheduledExecutorService withScheduler) {
+		if (this.ownsScheduler && this.scheduler != withScheduler) {
+			this.scheduler.shutdown();
+		}
+		this.scheduler = withScheduler;
+		this.ownsScheduler = false;
+		return this;
+	}
+
+	/**
+	 * Queues an announcement that a user has found a word.
+	 *
+	 * @param withChannelName
+	 * 		channel the word was found in.
+	 * @param withUsername
+	 * 		user that found the word.
+	 */
+	public void announceCorrectGuess(@NonNull final String withChannelName, @NonNull final String withUsername) {
+		this.enqueue(withChannelName, 1, p -> p.finders.add(withUsername));
+	}
+
+	/**
+	 * Queues a general announcement, such as a hint, to be coalesced with others in the same window.
+	 *
+	 * @param withChannelName
+	 * 		channel to announce to.
+	 * @param withMessage
+	 * 		announcement text.
+	 */
+	public void announce(@NonNull final String withChannelName, @NonNull final String withMessage) {
+		this.enqueue(withChannelName, TwitchAnnouncementAggregator.splitToFit(withMessage)
+				.size(), p -> p.messages.add(withMessage));
+	}
+
+	/**
+	 * Queues an end-of-round summary. The summary is combined with any pending announcements for the channel and the
+	 * channel is flushed straight away.
+	 *
+	 * @param withChannelName
+	 * 		channel to announce to.
+	 * @param withSummary
+	 * 		round summary text.
+	 */
+	public void announceRoundEnd(@NonNull final String withChannelName, @NonNull final String withSummary) {
+		this.enqueue(withChannelName, TwitchAnnouncementAggregator.splitToFit(withSummary)
+				.size(), p -> p.roundSummary = withSummary);
+		this.flush(withChannelName);
+	}
+
+	/**
+	 * Sends an announcement immediately, bypassing the collection window.
+	 *
+	 * @param withChannelName
+	 * 		channel to announce to.
+	 * @param withMessage
+	 * 		announcement text.
+	 */
+	public void announceImmediately(@NonNull final String withChannelName, @NonNull final String withMessage) {
+		final List<String> lines = TwitchAnnouncementAggregator.splitToFit(withMessage);
+		this.announcementCount.incrementAndGet();
+		this.uncoalescedLineCount.addAndGet(lines.size());
+		lines.forEach(line -> this.send(withChannelName, line));
+	}
+
+	/**
+	 * Sends all pending announcements for the given channel.
+	 *
+	 * @param withChannelName
+	 * 		channel to flush.
+	 */
+	public void flush(@NonNull final String withChannelName) {
+		final PendingAnnouncements announcements = this.pending.remove(withChannelName.toLowerCase(Locale.ROOT));
+		if (announcements == null) {
+			return;
+		}
+
+		final List<String> lines;
+		synchronized (announcements) {
+			announcements.closed = true;
+			if (announcements.scheduledFlush != null) {
+				announcements.scheduledFlush.cancel(false);
+			}
+			lines = TwitchAnnouncementAggregator.render(announcements);
+		}
+
+		lines.forEach(line -> this.send(withChannelName, line));
+	}
+
+	/**
+	 * Sends all pending announcements for every channel.
+	 */
+	public void flushAll() {
+		new ArrayList<>(this.pending.keySet()).forEach(this::flush);
+	}
+
+	/**
+	 * Flushes all pending announcements and stops the internal scheduler, if one was created.
+	 */
+	public void shutdown() {
+		this.flushAll();
+		synchronized (this) {
+			if (this.ownsScheduler) {
+				this.scheduler.shutdown();
+			}
+		}
+	}
+
+	/**
+	 * Returns the total number of announcements submitted.
+	 *
+	 * @return announcement count.
+	 */
+	public long getAnnouncementCount() {
+		return this.announcementCount.get();
+	}
+
+	/**
+	 * Returns the total number of chat lines sent.
+	 *
+	 * @return line count.
+	 */
+	public long getLineCount() {
+		return this.lineCount.get();
+	}
+
+	/**
+	 * Returns the number of chat lines saved by coalescing announcements, compared to sending every announcement on
+	 * its own. Announcements too long for a single line count once per line they would have needed.
+	 *
+	 * @return saved line count.
+	 */
+	public long getLinesSaved() {
+		return Math.max(0, this.uncoalescedLineCount.get() - this.lineCount.get());
+	}
+
+	/**
+	 * Applies a mutation to the pending announcements of a channel, scheduling a flush if one is not already due.
+	 *
+	 * @param withChannelName
+	 * 		channel the announcement belongs to.
+	 * @param withLines
+	 * 		number of lines the announcement would take if sent on its own.
+	 * @param withMutation
+	 * 		mutation to apply.
+	 */
+	private void enqueue(final String withChannelName, final int withLines,
+			final Consumer<PendingAnnouncements> withMutation) {
+		this.announcementCount.incrementAndGet();
+		this.uncoalescedLineCount.addAndGet(withLines);
+		final String key = withChannelName.toLowerCase(Locale.ROOT);
+
+		while (true) {
+			final PendingAnnouncements announcements = this.pending.computeIfAbsent(key, k -> new PendingAnnouncements());
+			synchronized (announcements) {
+				// the entry may have been flushed between lookup and lock; retry against a fresh one
+				if (announcements.closed) {
+					continue;
+				}
+
+				withMutation.accept(announcements);
+				if (announcements.scheduledFlush == null) {
+					announcements.scheduledFlush = this.getScheduler()
+							.schedule(() -> this.flush(key), this.window.toMillis(), TimeUnit.MILLISECONDS);
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sends a single line to a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel to send to.
+	 * @param withLine
+	 * 		line to send.
+	 */
+	private void send(final String withChannelName, final String withLine) {
+		this.lineCount.incrementAndGet();
+		try {
+			this.client.sendPrivateMessage(this.nickname, withChannelName, withLine);
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Unable to send announcement to #" + withChannelName, ex);
+		}
+	}
+
+	/**
+	 * Returns the scheduler, lazily creating a single daemon thread if none was provided.
+	 *
+	 * @return scheduler.
+	 */
+	private synchronized ScheduledExecutorService getScheduler() {
+		if (this.scheduler == null) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "announcement-aggregator");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.ownsScheduler = true;
+		}
+		return this.scheduler;
+	}
+
+	/**
+	 * Renders pending announcements into as few lines as possible.
+	 *
+	 * @param withAnnouncements
+	 * 		pending announcements.
+	 * @return lines to send.
+	 */
+	private static List<String> render(final PendingAnnouncements withAnnouncements) {
+		final List<String> parts = new ArrayList<>(withAnnouncements.messages);
+
+		if (withAnnouncements.roundSummary != null) {
+			final StringBuilder summary = new StringBuilder(withAnnouncements.roundSummary);
+			if (!withAnnouncements.finders.isEmpty()) {
+				summary.append(" ");
+			}
+			final int budget = MAX_MESSAGE_LENGTH - summary.length();
+			summary.append(TwitchAnnouncementAggregator.renderFinders(withAnnouncements.finders, budget));
+			parts.add(summary.toString());
+		} else if (!withAnnouncements.finders.isEmpty()) {
+			parts.add(TwitchAnnouncementAggregator.renderFinders(withAnnouncements.finders, MAX_MESSAGE_LENGTH));
+		}
+
+		final List<String> lines = new ArrayList<>();
+		final StringBuilder line = new StringBuilder();
+		for (final String part : parts) {
+			for (final String chunk : TwitchAnnouncementAggregator.splitToFit(part)) {
+				if (line.length() > 0 && line.length() + SEPARATOR.length() + chunk.length() > MAX_MESSAGE_LENGTH) {
+					lines.add(line.toString());
+					line.setLength(0);
+				}
+				if (line.length() > 0) {
+					line.append(SEPARATOR);
+				}
+				line.append(chunk);
+			}
+		}
+		if (line.length() > 0) {
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Renders the set of users that found words, e.g. "alice, bob and 12 others found words", within a character
+	 * budget.
+	 *
+	 * @param withFinders
+	 * 		users that found words, in the order they found them.
+	 * @param withBudget
+	 * 		maximum number of characters to use.
+	 * @return rendered text.
+	 */
+	private static String renderFinders(final Set<String> withFinders, final int withBudget) {
+		if (withFinders.isEmpty()) {
+			return "";
+		}
+
+		final String suffix = withFinders.size() == 1 ? " found a word" : " found words";
+		final List<String> names = new ArrayList<>(withFinders);
+
+		// find the largest number of names that can be listed before summarising the remainder; every listed name
+		// costs at least three characters, which bounds the search regardless of how many users found words
+		for (int listed = Math.min(names.size(), (withBudget + 2) / 3); listed > 0; listed--) {
+			final int remaining = names.size() - listed;
+			final StringBuilder text = new StringBuilder();
+			for (int i = 0; i < listed; i++) {
+				if (i > 0) {
+					text.append(i == listed - 1 && remaining == 0 ? " and " : ", ");
+				}
+				text.append(names.get(i));
+			}
+			if (remaining > 0) {
+				text.append(" and ")
+						.append(remaining)
+						.append(remaining == 1 ? " other" : " others");
+			}
+			text.append(suffix);
+
+			if (text.length() <= withBudget) {
+				return text.toString();
+			}
+		}
+
+		return names.size() + (names.size() == 1 ? " user" : " users") + suffix;
+	}
+
+	/**
+	 * Splits text into chunks no longer than the message length limit, preferring to break on whitespace.
+	 *
+	 * @param withText
+	 * 		text to split.
+	 * @return list of chunks.
+	 */
+	private static List<String> splitToFit(final String withText) {
+		final List<String> chunks = new ArrayList<>();
+		String remaining = withText.trim();
+		while (remaining.length() > MAX_MESSAGE_LENGTH) {
+			int index = remaining.lastIndexOf(' ', MAX_MESSAGE_LENGTH);
+			if (index <= 0) {
+				index = MAX_MESSAGE_LENGTH;
+			}
+			chunks.add(remaining.substring(0, index)
+					.trim());
+			remaining = remaining.substring(index)
+					.trim();
+		}
+		if (!remaining.isEmpty()) {
+			chunks.add(remaining);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Announcements waiting to be sent to a single channel.
+	 */
+	private static final class PendingAnnouncements {
+
+		/**
+		 * Users that found words during the window, in the order they were reported.
+		 */
+		private final Set<String> finders = new LinkedHashSet<>();
+
+		/**
+		 * General announcements, in the order they were reported.
+		 */
+		private final List<String> messages = new ArrayList<>();
+
+		/**
+		 * End-of-round summary, if the round finished during the window.
+		 */
+		private String roundSummary;
+
+		/**
+		 * Scheduled flush for this window.
+		 */
+		private ScheduledFuture<?> scheduledFlush;
+
+		/**
+		 * Whether this window has been flushed and no longer accepts announcements.
+		 */
+		private boolean closed;
+	}
+}
@@ -14,7 +14,7 @@ import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 import java.io.IOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.Future;
 
@@ -34,6 +34,11 @@ public class TwitchIRCClient {
 	 */
 	private final WebSocketContainer webSocketContainer;
 
+	/**
+	 * URI of the WebSocket endpoint to connect to.
+	 */
+	private final URI endpoint;
+
 	/**
 	 * User Session.
 	 */
@@ -45,11 +50,34 @@ public class TwitchIRCClient {
 	@Setter
 	private TwitchIRCMessageListener messageListener;
 
+	/**
+	 * Callback listener for receiving IRC messages that may be a guess, i.e. that passed the guess prefilter.
+	 */
+	@Setter
+	private TwitchIRCMessageListener guessListener;
+
+	/**
+	 * Optional filter that keeps chat lines which cannot be a guess from the guess listener.
+	 */
+	@Setter
+	private GuessPrefilter guessPrefilter;
+
 	/**
 	 * Default constructor.
 	 */
 	public TwitchIRCClient() {
+		this(URI.create(TwitchIRCClient.WEBSOCKET_URI));
+	}
+
+	/**
+	 * Instantiates a client connecting to the given endpoint instead of Twitch, e.g. a local stub server.
+	 *
+	 * @param withEndpoint
+	 * 		URI of the WebSocket endpoint.
+	 */
+	public TwitchIRCClient(@NonNull final URI withEndpoint) {
 		this.webSocketContainer = ContainerProvider.getWebSocketContainer();
+		this.endpoint = withEndpoint;
 	}
 
 	/**
@@ -57,12 +85,22 @@ public class TwitchIRCClient {
 	 */
 	public void connect() {
 		try {
-			this.userSession = this.webSocketContainer.connectToServer(this, new URI(TwitchIRCClient.WEBSOCKET_URI));
-		} catch (URISyntaxException | DeploymentException | IOException ex) {
+			this.userSession = this.webSocketContainer.connectToServer(this, this.endpoint);
+		} catch (DeploymentException | IOException ex) {
 			throw new RuntimeException(ex);
 		}
 	}
 
+	/**
+	 * Checks whether the connection is open.
+	 *
+	 * @return true if connected.
+	 */
+	public boolean isConnected() {
+		final Session session = this.userSession;
+		return session != null && session.isOpen();
+	}
+
 	/**
 	 * Disconnects from IRC.
 	 *
@@ -130,6 +168,17 @@ public class TwitchIRCClient {
 		return this.sendMessage(msg);
 	}
 
+	/**
+	 * Sends several raw messages as a single write, without waiting for the server to respond to any of them.
+	 *
+	 * @param withLines
+	 * 		raw IRC messages, in the order the server should process them.
+	 * @return a future that will be resolved in the future
+	 */
+	public Future<Void> sendBurst(@NonNull final List<String> withLines) {
+		return this.sendMessage(String.join("\r\n", withLines));
+	}
+
 	/**
 	 * Sends a raw message.
 	 *
@@ -167,21 +216,89 @@ public class TwitchIRCClient {
 
 	/**
 	 * Callback hook for Message Events. This method will be invoked when a client send a message.
+	 * <p>
+	 * Twitch may batch several IRC lines into a single frame, so each line is handled separately.
 	 *
 	 * @param withMessageString
 	 * 		The text message
 	 */
 	@OnMessage
 	public void onMessage(String withMessageString) {
-		TwitchIRCMessage message = TwitchIRCMessage.fromString(withMessageString);
+		final int newline = withMessageString.indexOf('\n');
+		if (newline < 0 || newline >= withMessageString.stripTrailing()
+				.length()) {
+			this.onLine(withMessageString);
+			return;
+		}
+
+		for (String line : withMessageString.split("\r?\n")) {
+			if (!line.isBlank()) {
+				this.onLine(line);
+			}
+		}
+	}
 
-		if (message.getCommand()
-				.equalsIgnoreCase("ping")) {
+	/**
+	 * Handles a single IRC line.
+	 * <p>
+	 * The guess prefilter inspects the raw line before anything is parsed. Lines it rejects are never delivered to the
+	 * guess listener, and are only parsed at all when a message listener needs to receive them.
+	 *
+	 * @param withMessageString
+	 * 		raw IRC line.
+	 */
+	private void onLine(final String withMessageString) {
+		if (TwitchIRCClient.isPing(withMessageString)) {
 			this.pong();
 		}
 
-		if (this.messageListener != null) {
-			this.messageListener.onMessage(message);
+		final TwitchIRCMessageListener messageListener = this.messageListener;
+		final TwitchIRCMessageListener guessListener = this.guessListener;
+		final GuessPrefilter prefilter = guessListener == null ? null : this.guessPrefilter;
+		final boolean rejected = prefilter != null && prefilter.reject(withMessageString);
+		if (messageListener == null && (guessListener == null || rejected)) {
+			return;
+		}
+
+		final long parseStart = System.nanoTime();
+		final TwitchIRCMessage message = TwitchIRCMessage.fromString(withMessageString);
+		final long parseNanos = System.nanoTime() - parseStart;
+
+		if (messageListener != null) {
+			messageListener.onMessage(message);
+		}
+
+		if (guessListener == null || rejected) {
+			return;
+		}
+
+		final long dispatchStart = System.nanoTime();
+		guessListener.onMessage(message);
+		if (prefilter != null) {
+			// parsing is counted as guess handling too, as it is skipped for rejected lines when nothing else listens
+			prefilter.recordDownstreamNanos(parseNanos + System.nanoTime() - dispatchStart);
+		}
+	}
+
+	/**
+	 * Checks whether a raw IRC line is a `PING`, skipping any tags and prefix, without parsing it.
+	 *
+	 * @param withLine
+	 * 		raw IRC line.
+	 * @return true if the line's command is `PING`.
+	 */
+	private static boolean isPing(final String withLine) {
+		int start = 0;
+		while (start < withLine.length() && (withLine.charAt(start) == '@' || withLine.charAt(start) == ':')) {
+			final int space = withLine.indexOf(' ', start);
+			if (space < 0) {
+				return false;
+			}
+			start = space + 1;
 		}
+
+		final int end = start + "PING".length();
+		return withLine.regionMatches(true, start, "PING", 0, "PING".length())
+				&& (end == withLine.length() || withLine.charAt(end) == ' ' || withLine.charAt(end) == '\r');
 	}
 }
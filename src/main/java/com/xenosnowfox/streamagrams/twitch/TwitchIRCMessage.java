@@ -7,7 +7,10 @@ import lombok.ToString;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * IRC Message based upon <a href="https://datatracker.ietf.org/doc/html/rfc1459">RFC1459</a>.
@@ -35,6 +38,12 @@ public class TwitchIRCMessage {
 
 		String str = withMessage.trim();
 
+		if (str.startsWith("@")) {
+			var s = str.split(" ", 2);
+			message.setTags(TwitchIRCMessage.parseTags(s[0].substring(1)));
+			str = s.length > 1 ? s[1].stripLeading() : "";
+		}
+
 		if (str.startsWith(":")) {
 			var s = str.split(" ", 2);
 			message.setPrefix(s[0]);
@@ -56,6 +65,91 @@ public class TwitchIRCMessage {
 		return message;
 	}
 
+	/**
+	 * Parses IRCv3 message tags, as sent by Twitch once the `twitch.tv/tags` capability has been acknowledged.
+	 *
+	 * @param withTags
+	 * 		tags without the leading `@`, e.g. `color=#FF0000;display-name=Alice`.
+	 * @return tag values keyed by tag name, with escape sequences resolved.
+	 */
+	private static Map<String, String> parseTags(final String withTags) {
+		final Map<String, String> tags = new HashMap<>();
+		for (String tag : withTags.split(";")) {
+			if (tag.isEmpty()) {
+				continue;
+			}
+			final int separator = tag.indexOf('=');
+			if (separator < 0) {
+				tags.put(tag, "");
+			} else {
+				tags.put(tag.substring(0, separator), TwitchIRCMessage.unescapeTagValue(tag.substring(separator + 1)));
+			}
+		}
+		return tags;
+	}
+
+	/**
+	 * Resolves the escape sequences of an IRCv3 tag value.
+	 *
+	 * @param withValue
+	 * 		escaped tag value.
+	 * @return unescaped tag value.
+	 */
+	private static String unescapeTagValue(final String withValue) {
+		if (withValue.indexOf('\\') < 0) {
+			return withValue;
+		}
+
+		final StringBuilder builder = new StringBuilder(withValue.length());
+		for (int i = 0; i < withValue.length(); i++) {
+			final char c = withValue.charAt(i);
+			if (c != '\\') {
+				builder.append(c);
+				continue;
+			}
+			if (i + 1 >= withValue.length()) {
+				// a lone trailing backslash is dropped
+				break;
+			}
+
+			final char escaped = withValue.charAt(++i);
+			switch (escaped) {
+				case ':':
+					builder.append(';');
+					break;
+				case 's':
+					builder.append(' ');
+					break;
+				case 'r':
+					builder.append('\r');
+					break;
+				case 'n':
+					builder.append('\n');
+					break;
+				default:
+					builder.append(escaped);
+					break;
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Returns the value of a message tag.
+	 *
+	 * @param withName
+	 * 		tag name, e.g. `display-name`.
+	 * @return tag value, or null if the message does not carry the tag.
+	 */
+	public String getTag(@NonNull final String withName) {
+		return this.tags.get(withName);
+	}
+
+	/**
+	 * IRCv3 message tags, empty unless the `twitch.tv/tags` capability has been requested.
+	 */
+	private Map<String, String> tags = Collections.emptyMap();
+
 	/**
 	 * Message prefix data.
 	 */
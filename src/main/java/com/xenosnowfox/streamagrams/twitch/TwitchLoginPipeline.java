@@ -0,0 +1,490 @@
+package com.xenosnowfox.streamagrams.twitch;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous IRC login, started from the OAuth2 callback.
+ * <p>
+ * {@link #onAccessToken(String)} only hands the token to a background executor, so the callback route responds
+ * immediately. The login itself sends `CAP REQ`, `PASS`, `NICK` and the `JOIN`s for every channel as a single
+ * pipelined write rather than waiting on each command in turn. Progress is then tracked from the server's replies:
+ * `001` (registered), `CAP * ACK` (capabilities granted), `376` (end of MOTD) and one `366` (end of names) per joined
+ * channel. {@link #getReady()} completes once all of these have been seen.
+ * <p>
+ * The pipeline installs itself as the client's message listener and forwards every message to the listener defined
+ * through {@link #withMessageListener(TwitchIRCMessageListener)}.
+ */
+public class TwitchLoginPipeline implements TwitchAccessTokenListener, TwitchIRCMessageListener {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(TwitchLoginPipeline.class.getName());
+
+	/**
+	 * Capabilities requested during login.
+	 */
+	private static final String CAPABILITIES = "twitch.tv/tags twitch.tv/commands";
+
+	/**
+	 * Maximum length of a `JOIN` line, keeping well within the 512 byte IRC line limit.
+	 */
+	private static final int MAX_JOIN_LINE_LENGTH = 450;
+
+	/**
+	 * Default time allowed for the login to become ready.
+	 */
+	private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(15);
+
+	/**
+	 * IRC client to log in with.
+	 */
+	private final TwitchIRCClient client;
+
+	/**
+	 * Nickname to log in as.
+	 */
+	private final String nickname;
+
+	/**
+	 * Channels to join, lower-cased and without a leading `#`.
+	 */
+	private final Set<String> channels = new LinkedHashSet<>();
+
+	/**
+	 * Channels whose `366` reply has been received during the current login.
+	 */
+	private final Set<String> joinedChannels = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Listener receiving every message once the pipeline has looked at it.
+	 */
+	private TwitchIRCMessageListener messageListener = null;
+
+	/**
+	 * Executor running logins off the caller's thread.
+	 */
+	private ExecutorService executor = null;
+
+	/**
+	 * Time allowed for the login to become ready.
+	 */
+	private Duration timeout = DEFAULT_TIMEOUT;
+
+	/**
+	 * Future completed once the current login is ready.
+	 */
+	@Getter
+	private volatile CompletableFuture<Void> ready = new CompletableFuture<>();
+
+	/**
+	 * Whether the server has sent `001`.
+	 */
+	private volatile boolean registered;
+
+	/**
+	 * Whether the server has acknowledged the requested capabilities, or refused them.
+	 */
+	private volatile boolean capabilitiesAnswered;
+
+	/**
+	 * Whether the server has sent `376`.
+	 */
+	private volatile boolean motdEnded;
+
+	/**
+	 * Whether the server rejected a command for being sent before registration completed.
+	 */
+	private volatile boolean rejectedBeforeRegistration;
+
+	/**
+	 * Time the access token was received, from {@link System#nanoTime()}.
+	 */
+	private volatile long tokenNanos;
+
+	/**
+	 * Time from receiving the token until the login burst was written, in nanoseconds.
+	 */
+	@Getter
+	private volatile long tokenToBurstNanos = -1;
+
+	/**
+	 * Time from receiving the token until `001`, in nanoseconds.
+	 */
+	@Getter
+	private volatile long tokenToRegisteredNanos = -1;
+
+	/**
+	 * Time from receiving the token until the login became ready, in nanoseconds.
+	 */
+	@Getter
+	private volatile long tokenToReadyNanos = -1;
+
+	/**
+	 * Time from receiving the token until the first chat message arrived, in nanoseconds.
+	 */
+	@Getter
+	private volatile long tokenToFirstChatNanos = -1;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withClient
+	 * 		IRC client to log in with.
+	 * @param withNickname
+	 * 		nickname to log in as.
+	 * @return new TwitchLoginPipeline instance.
+	 */
+	public static TwitchLoginPipeline newInstance(@NonNull final TwitchIRCClient withClient,
+			@NonNull final String withNickname) {
+		return new TwitchLoginPipeline(withClient, withNickname);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withClient
+	 * 		IRC client to log in with.
+	 * @param withNickname
+	 * 		nickname to log in as.
+	 */
+	private TwitchLoginPipeline(final TwitchIRCClient withClient, final String withNickname) {
+		this.client = withClient;
+		this.nickname = withNickname.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Adds a channel to join as part of the login.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchLoginPipeline withChannel(@NonNull final String withChannelName) {
+		synchronized (this.channels) {
+			this.channels.add(TwitchLoginPipeline.toKey(withChannelName));
+		}
+		return this;
+	}
+
+	/**
+	 * Adds several channels to join as part of the login.
+	 *
+	 * @param withChannelNames
+	 * 		channel names, with or without a leading `#`.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchLoginPipeline withChannels(@NonNull final Collection<String> withChannelNames) {
+		withChannelNames.forEach(this::withChannel);
+		return this;
+	}
+
+	/**
+	 * Defines the listener that receives every message.
+	 *
+	 * @param withListener
+	 * 		listener.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchLoginPipeline withMessageListener(@NonNull final TwitchIRCMessageListener withListener) {
+		this.messageListener = withListener;
+		return this;
+	}
+
+	/**
+	 * Defines the executor logins run on. By default a single daemon thread is used.
+	 *
+	 * @param withExecutor
+	 * 		executor.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchLoginPipeline withExecutor(@NonNull final ExecutorService withExecutor) {
+		this.executor = withExecutor;
+		return this;
+	}
+
+	/**
+	 * Defines the time allowed for a login to become ready before {@link #getReady()} fails.
+	 *
+	 * @param withTimeout
+	 * 		timeout.
+	 * @return this instance to allow for method chaining.
+	 */
+	public TwitchLoginPipeline withTimeout(@NonNull final Duration withTimeout) {
+		this.timeout = withTimeout;
+		return this;
+	}
+
+	/**
+	 * Hands the access token to the background executor and returns immediately.
+	 *
+	 * @param withAccessToken
+	 * 		Twitch OAuth2 Access Token
+	 */
+	@Override
+	public void onAccessToken(final String withAccessToken) {
+		final long receivedNanos = System.nanoTime();
+		this.getExecutor()
+				.execute(() -> {
+					try {
+						this.login(withAccessToken, receivedNanos);
+					} catch (RuntimeException ex) {
+						LOGGER.log(Level.WARNING, "Twitch login failed.", ex);
+						this.ready.completeExceptionally(ex);
+					}
+				});
+	}
+
+	/**
+	 * Logs in with the given token, reconnecting if a previous login is still connected.
+	 *
+	 * @param withAccessToken
+	 * 		Twitch OAuth2 Access Token.
+	 * @param withReceivedNanos
+	 * 		time the token was received, from {@link System#nanoTime()}.
+	 */
+	private synchronized void login(final String withAccessToken, final long withReceivedNanos) {
+		this.reset(withReceivedNanos);
+
+		if (this.client.isConnected()) {
+			try {
+				this.client.disconnect();
+			} catch (IOException ex) {
+				LOGGER.log(Level.FINE, "Unable to close previous Twitch connection.", ex);
+			}
+		}
+
+		this.client.setMessageListener(this);
+		this.client.connect();
+
+		final List<String> burst = new ArrayList<>();
+		burst.add("CAP REQ :" + CAPABILITIES);
+		burst.add("PASS oauth:" + withAccessToken);
+		burst.add("NICK " + this.nickname);
+		burst.addAll(this.joinLines(this.getChannels()));
+		this.client.sendBurst(burst);
+		this.tokenToBurstNanos = System.nanoTime() - withReceivedNanos;
+	}
+
+	@Override
+	public void onMessage(final TwitchIRCMessage withMessage) {
+		final String command = withMessage.getCommand();
+		final String[] arguments = withMessage.getArguments();
+
+		switch (command.toUpperCase(Locale.ROOT)) {
+			case "001":
+				this.registered = true;
+				this.tokenToRegisteredNanos = System.nanoTime() - this.tokenNanos;
+				break;
+			case "CAP":
+				if (arguments.length >= 2 && ("ACK".equalsIgnoreCase(arguments[1])
+						|| "NAK".equalsIgnoreCase(arguments[1]))) {
+					if ("NAK".equalsIgnoreCase(arguments[1])) {
+						LOGGER.warning(() -> "Twitch refused capabilities: " + arguments[arguments.length - 1]);
+					}
+					this.capabilitiesAnswered = true;
+				}
+				break;
+			case "376":
+				this.motdEnded = true;
+				this.rejoinIfRejected();
+				break;
+			case "366":
+				if (arguments.length >= 2) {
+					this.joinedChannels.add(TwitchLoginPipeline.toKey(arguments[1]));
+				}
+				break;
+			case "451":
+				this.rejectedBeforeRegistration = true;
+				break;
+			case "NOTICE":
+				// before registration Twitch only sends notices to reject the credentials
+				if (!this.registered && arguments.length >= 2) {
+					this.ready.completeExceptionally(new IllegalStateException("Twitch login failed: " + arguments[1]));
+				}
+				break;
+			case "PRIVMSG":
+				if (this.tokenToFirstChatNanos < 0) {
+					this.tokenToFirstChatNanos = System.nanoTime() - this.tokenNanos;
+					LOGGER.info(this::toString);
+				}
+				break;
+			default:
+				break;
+		}
+		this.checkReady();
+
+		final TwitchIRCMessageListener listener = this.messageListener;
+		if (listener != null) {
+			listener.onMessage(withMessage);
+		}
+	}
+
+	/**
+	 * Stops the executor logins run on.
+	 */
+	public synchronized void shutdown() {
+		if (this.executor != null) {
+			this.executor.shutdown();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "TwitchLoginPipeline{burstMillis=%.1f, registeredMillis=%.1f"
+						+ ", readyMillis=%.1f, firstChatMillis=%.1f, joined=%d/%d}"
+				, TwitchLoginPipeline.toMillis(this.tokenToBurstNanos)
+				, TwitchLoginPipeline.toMillis(this.tokenToRegisteredNanos)
+				, TwitchLoginPipeline.toMillis(this.tokenToReadyNanos)
+				, TwitchLoginPipeline.toMillis(this.tokenToFirstChatNanos)
+				, this.joinedChannels.size(), this.getChannels()
+						.size());
+	}
+
+	/**
+	 * Clears the state of any previous login.
+	 *
+	 * @param withReceivedNanos
+	 * 		time the new token was received, from {@link System#nanoTime()}.
+	 */
+	private void reset(final long withReceivedNanos) {
+		if (this.ready.isDone()) {
+			this.ready = new CompletableFuture<>();
+		}
+		this.ready.orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+		this.tokenNanos = withReceivedNanos;
+		this.registered = false;
+		this.capabilitiesAnswered = false;
+		this.motdEnded = false;
+		this.rejectedBeforeRegistration = false;
+		this.joinedChannels.clear();
+		this.tokenToBurstNanos = -1;
+		this.tokenToRegisteredNanos = -1;
+		this.tokenToReadyNanos = -1;
+		this.tokenToFirstChatNanos = -1;
+	}
+
+	/**
+	 * Completes the ready future once the server has answered every part of the login.
+	 */
+	private void checkReady() {
+		if (this.ready.isDone() || !this.registered || !this.capabilitiesAnswered || !this.motdEnded) {
+			return;
+		}
+		if (!this.joinedChannels.containsAll(this.getChannels())) {
+			return;
+		}
+
+		this.tokenToReadyNanos = System.nanoTime() - this.tokenNanos;
+		this.ready.complete(null);
+	}
+
+	/**
+	 * Re-sends the `JOIN`s for channels not yet joined, if the server rejected commands pipelined ahead of
+	 * registration.
+	 */
+	private void rejoinIfRejected() {
+		if (!this.rejectedBeforeRegistration) {
+			return;
+		}
+
+		final List<String> missing = new ArrayList<>(this.getChannels());
+		missing.removeAll(this.joinedChannels);
+		if (!missing.isEmpty()) {
+			LOGGER.fine(() -> "Re-joining " + missing.size() + " channels after registration.");
+			this.client.sendBurst(this.joinLines(missing));
+		}
+	}
+
+	/**
+	 * Groups channels into as few `JOIN` lines as the IRC line length allows.
+	 *
+	 * @param withChannelNames
+	 * 		normalised channel names.
+	 * @return `JOIN` lines.
+	 */
+	private List<String> joinLines(final Collection<String> withChannelNames) {
+		final List<String> lines = new ArrayList<>();
+		final StringBuilder line = new StringBuilder();
+		for (String channel : withChannelNames) {
+			if (line.length() > 0 && line.length() + channel.length() + 2 > MAX_JOIN_LINE_LENGTH) {
+				lines.add(line.toString());
+				line.setLength(0);
+			}
+			line.append(line.length() == 0 ? "JOIN #" : ",#")
+					.append(channel);
+		}
+		if (line.length() > 0) {
+			lines.add(line.toString());
+		}
+		return lines;
+	}
+
+	/**
+	 * Returns a snapshot of the channels to join.
+	 *
+	 * @return channel names.
+	 */
+	private List<String> getChannels() {
+		synchronized (this.channels) {
+			return new ArrayList<>(this.channels);
+		}
+	}
+
+	/**
+	 * Returns the executor logins run on, creating the default one on first use.
+	 *
+	 * @return executor.
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (this.executor == null) {
+			this.executor = Executors.newSingleThreadExecutor(runnable -> {
+				final Thread thread = new Thread(runnable, "twitch-login");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return this.executor;
+	}
+
+	/**
+	 * Normalises a channel name.
+	 *
+	 * @param withChannelName
+	 * 		channel name, with or without a leading `#`.
+	 * @return normalised channel name.
+	 */
+	private static String toKey(final String withChannelName) {
+		final String name = withChannelName.startsWith("#") ? withChannelName.substring(1) : withChannelName;
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * Converts a duration to milliseconds for reporting.
+	 *
+	 * @param withNanos
+	 * 		duration in nanoseconds, or a negative value if not yet measured.
+	 * @return duration in milliseconds, or NaN if not yet measured.
+	 */
+	private static double toMillis(final long withNanos) {
+		return withNanos < 0 ? Double.NaN : withNanos / 1_000_000.0;
+	}
+}
@@ -0,0 +1,51 @@
+package com.xenosnowfox.streamagrams.utils;
+
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Utility class for writing JSON.
+ */
+@UtilityClass
+public class JsonUtils {
+
+	/**
+	 * Returns the given value as a quoted and escaped JSON string literal.
+	 *
+	 * @param withValue
+	 * 		value to quote.
+	 * @return JSON string literal.
+	 */
+	public String quote(@NonNull final String withValue) {
+		final StringBuilder builder = new StringBuilder(withValue.length() + 2);
+		builder.append('"');
+		for (int i = 0; i < withValue.length(); i++) {
+			final char c = withValue.charAt(i);
+			switch (c) {
+				case '"':
+					builder.append("\\\"");
+					break;
+				case '\\':
+					builder.append("\\\\");
+					break;
+				case '\n':
+					builder.append("\\n");
+					break;
+				case '\r':
+					builder.append("\\r");
+					break;
+				case '\t':
+					builder.append("\\t");
+					break;
+				default:
+					if (c < ' ') {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+			}
+		}
+		return builder.append('"')
+				.toString();
+	}
+}
@@ -6,6 +6,8 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 /**
  * Utility class for working with resource files.
@@ -49,4 +51,41 @@ public class ResourceUtils {
 			throw new RuntimeException(ex);
 		}
 	}
+
+	/**
+	 * Checks whether a resource of the given name exists.
+	 *
+	 * @param withResourceFileName
+	 * 		filename of the resource
+	 * @return true if the resource exists
+	 */
+	public boolean exists(final String withResourceFileName) {
+		return ResourceUtils.class.getResource(withResourceFileName) != null;
+	}
+
+	/**
+	 * Reads the resource of the given name as UTF-8 text, passing each line to the consumer without holding the whole
+	 * resource in memory.
+	 *
+	 * @param withResourceFileName
+	 * 		filename of the resource to read in
+	 * @param withLineConsumer
+	 * 		consumer receiving each line
+	 */
+	public void forEachLine(final String withResourceFileName, final Consumer<String> withLineConsumer) {
+		try (InputStream inputStream = ResourceUtils.class.getResourceAsStream(withResourceFileName)) {
+			if (inputStream == null) {
+				throw new NullPointerException("Unable to read resource `" + withResourceFileName + "`.");
+			}
+
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = br.readLine()) != null) {
+					withLineConsumer.accept(line);
+				}
+			}
+		} catch (IOException ex) {
+			throw new RuntimeException(ex);
+		}
+	}
 }
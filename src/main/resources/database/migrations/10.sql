@@ -0,0 +1,6 @@
+ALTER TABLE `ChannelStatsRollup` ADD COLUMN `BUCKET_START_MILLIS` BIGINT;
+UPDATE `ChannelStatsRollup` SET `BUCKET_START_MILLIS` = DATEDIFF('MILLISECOND', TIMESTAMP '1970-01-01 00:00:00', `BUCKET_START`);
+ALTER TABLE `ChannelStatsRollup` DROP PRIMARY KEY;
+ALTER TABLE `ChannelStatsRollup` DROP COLUMN `BUCKET_START`;
+ALTER TABLE `ChannelStatsRollup` ALTER COLUMN `BUCKET_START_MILLIS` SET NOT NULL;
+ALTER TABLE `ChannelStatsRollup` ADD PRIMARY KEY (`CHANNEL`, `BUCKET_START_MILLIS`);
\ No newline at end of file
@@ -0,0 +1,5 @@
+CREATE TABLE `LeaderboardImportLock` (
+    `ID` INT PRIMARY KEY
+);
+
+INSERT INTO `LeaderboardImportLock` (`ID`) VALUES (0);
\ No newline at end of file
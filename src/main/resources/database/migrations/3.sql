@@ -0,0 +1,26 @@
+CREATE TABLE `ClusterNode` (
+    `NODE_ID` VARCHAR(100) PRIMARY KEY
+    , `HEARTBEAT_AT` TIMESTAMP NOT NULL
+);
+
+CREATE TABLE `ChannelLease` (
+    `CHANNEL` VARCHAR(200) PRIMARY KEY
+    , `OWNER_NODE` VARCHAR(100)
+    , `FENCING_TOKEN` BIGINT NOT NULL DEFAULT 0
+    , `EXPIRES_AT` TIMESTAMP
+);
+
+CREATE TABLE `ChannelRoundState` (
+    `CHANNEL` VARCHAR(200) PRIMARY KEY
+    , `FENCING_TOKEN` BIGINT NOT NULL
+    , `STATE` LONGTEXT
+    , `UPDATED_AT` TIMESTAMP NOT NULL
+);
+
+CREATE TABLE `RoundAnnouncement` (
+    `CHANNEL` VARCHAR(200) NOT NULL
+    , `ROUND_ID` VARCHAR(100) NOT NULL
+    , `FENCING_TOKEN` BIGINT NOT NULL
+    , `ANNOUNCED_AT` TIMESTAMP NOT NULL
+    , PRIMARY KEY (`CHANNEL`, `ROUND_ID`)
+);
\ No newline at end of file
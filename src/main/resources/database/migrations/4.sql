@@ -0,0 +1,13 @@
+CREATE TABLE `ChannelStatsRollup` (
+    `CHANNEL` VARCHAR(200) NOT NULL
+    , `BUCKET_START` TIMESTAMP NOT NULL
+    , `BUCKET_MILLIS` BIGINT NOT NULL
+    , `MESSAGES` BIGINT NOT NULL
+    , `GUESSES` BIGINT NOT NULL
+    , `ROUNDS_PLAYED` BIGINT NOT NULL
+    , `ROUNDS_SOLVED` BIGINT NOT NULL
+    , `CHATTERS_SKETCH` VARBINARY(512) NOT NULL
+    , `GUESSERS_SKETCH` VARBINARY(512) NOT NULL
+    , `SOLVE_SKETCH` VARBINARY(2048) NOT NULL
+    , PRIMARY KEY (`CHANNEL`, `BUCKET_START`)
+);
\ No newline at end of file
@@ -0,0 +1,5 @@
+CREATE TABLE `PassivatedChannel` (
+    `CHANNEL` VARCHAR(200) PRIMARY KEY
+    , `STATE` BLOB NOT NULL
+    , `PASSIVATED_AT` TIMESTAMP NOT NULL
+);
\ No newline at end of file
@@ -0,0 +1,38 @@
+CREATE TABLE `ScoreHourly` (
+    `BUCKET_START` TIMESTAMP NOT NULL
+    , `USERNAME` VARCHAR(200) NOT NULL
+    , `CORRECT_GUESSES` INT NOT NULL DEFAULT 0
+    , `GUESSES` INT NOT NULL DEFAULT 0
+    , PRIMARY KEY (`BUCKET_START`, `USERNAME`)
+);
+
+CREATE TABLE `ScoreDaily` (
+    `BUCKET_START` TIMESTAMP NOT NULL
+    , `USERNAME` VARCHAR(200) NOT NULL
+    , `CORRECT_GUESSES` INT NOT NULL DEFAULT 0
+    , `GUESSES` INT NOT NULL DEFAULT 0
+    , PRIMARY KEY (`BUCKET_START`, `USERNAME`)
+);
+
+CREATE TABLE `ScoreWeekly` (
+    `BUCKET_START` TIMESTAMP NOT NULL
+    , `USERNAME` VARCHAR(200) NOT NULL
+    , `CORRECT_GUESSES` INT NOT NULL DEFAULT 0
+    , `GUESSES` INT NOT NULL DEFAULT 0
+    , PRIMARY KEY (`BUCKET_START`, `USERNAME`)
+);
+
+CREATE TABLE `Season` (
+    `SEASON_ID` VARCHAR(100) PRIMARY KEY
+    , `NAME` VARCHAR(200) NOT NULL
+    , `STARTS_AT` TIMESTAMP NOT NULL
+    , `ENDS_AT` TIMESTAMP NOT NULL
+);
+
+CREATE TABLE `ScoreSeason` (
+    `SEASON_ID` VARCHAR(100) NOT NULL
+    , `USERNAME` VARCHAR(200) NOT NULL
+    , `CORRECT_GUESSES` INT NOT NULL DEFAULT 0
+    , `GUESSES` INT NOT NULL DEFAULT 0
+    , PRIMARY KEY (`SEASON_ID`, `USERNAME`)
+);
\ No newline at end of file
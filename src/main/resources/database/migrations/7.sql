@@ -0,0 +1,6 @@
+CREATE TABLE `LeaderboardVersion` (
+    `ID` INT PRIMARY KEY
+    , `VERSION` BIGINT NOT NULL
+);
+
+INSERT INTO `LeaderboardVersion` (`ID`, `VERSION`) VALUES (0, 0);
\ No newline at end of file
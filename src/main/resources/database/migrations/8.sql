@@ -0,0 +1,5 @@
+CREATE TABLE `LeaderboardImport` (
+    `USERNAME` VARCHAR(200) PRIMARY KEY
+    , `TOTAL_CORRECT_GUESSES` INT DEFAULT 0
+    , `TOTAL_GUESSES` INT DEFAULT 0
+);
\ No newline at end of file
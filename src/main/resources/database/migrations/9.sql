@@ -0,0 +1,35 @@
+ALTER TABLE `ScoreHourly` ADD COLUMN `BUCKET_HOUR` BIGINT;
+UPDATE `ScoreHourly` SET `BUCKET_HOUR` = DATEDIFF('HOUR', TIMESTAMP '1970-01-01 00:00:00', `BUCKET_START`);
+ALTER TABLE `ScoreHourly` DROP PRIMARY KEY;
+ALTER TABLE `ScoreHourly` DROP COLUMN `BUCKET_START`;
+ALTER TABLE `ScoreHourly` ALTER COLUMN `BUCKET_HOUR` SET NOT NULL;
+ALTER TABLE `ScoreHourly` ADD PRIMARY KEY (`BUCKET_HOUR`, `USERNAME`);
+
+ALTER TABLE `ScoreDaily` ADD COLUMN `BUCKET_HOUR` BIGINT;
+UPDATE `ScoreDaily` SET `BUCKET_HOUR` = DATEDIFF('HOUR', TIMESTAMP '1970-01-01 00:00:00', `BUCKET_START`);
+ALTER TABLE `ScoreDaily` DROP PRIMARY KEY;
+ALTER TABLE `ScoreDaily` DROP COLUMN `BUCKET_START`;
+ALTER TABLE `ScoreDaily` ALTER COLUMN `BUCKET_HOUR` SET NOT NULL;
+ALTER TABLE `ScoreDaily` ADD PRIMARY KEY (`BUCKET_HOUR`, `USERNAME`);
+
+ALTER TABLE `ScoreWeekly` ADD COLUMN `BUCKET_HOUR` BIGINT;
+UPDATE `ScoreWeekly` SET `BUCKET_HOUR` = DATEDIFF('HOUR', TIMESTAMP '1970-01-01 00:00:00', `BUCKET_START`);
+ALTER TABLE `ScoreWeekly` DROP PRIMARY KEY;
+ALTER TABLE `ScoreWeekly` DROP COLUMN `BUCKET_START`;
+ALTER TABLE `ScoreWeekly` ALTER COLUMN `BUCKET_HOUR` SET NOT NULL;
+ALTER TABLE `ScoreWeekly` ADD PRIMARY KEY (`BUCKET_HOUR`, `USERNAME`);
+
+ALTER TABLE `Season` ADD COLUMN `STARTS_HOUR` BIGINT;
+ALTER TABLE `Season` ADD COLUMN `ENDS_HOUR` BIGINT;
+UPDATE `Season` SET `STARTS_HOUR` = DATEDIFF('HOUR', TIMESTAMP '1970-01-01 00:00:00', `STARTS_AT`)
+    , `ENDS_HOUR` = DATEDIFF('HOUR', TIMESTAMP '1970-01-01 00:00:00', `ENDS_AT`);
+ALTER TABLE `Season` DROP COLUMN `STARTS_AT`;
+ALTER TABLE `Season` DROP COLUMN `ENDS_AT`;
+ALTER TABLE `Season` ALTER COLUMN `STARTS_HOUR` SET NOT NULL;
+ALTER TABLE `Season` ALTER COLUMN `ENDS_HOUR` SET NOT NULL;
+
+CREATE TABLE `ScoreRollupLock` (
+    `ID` INT PRIMARY KEY
+);
+
+INSERT INTO `ScoreRollupLock` (`ID`) VALUES (0);
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import com.xenosnowfox.streamagrams.twitch.GuessPrefilter;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Replays a recorded chat trace, one raw frame per line, through a {@link GuessPrefilter} and reports its rejection
+ * ratio and the CPU time it saves.
+ * <p>
+ * Usage: `&lt;trace file&gt; &lt;channel&gt;=&lt;rack letters&gt; ...`, run on the soak runtime classpath.
+ */
+public class GuessPrefilterBenchmark {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(GuessPrefilterBenchmark.class.getName());
+
+	/**
+	 * Number of trace passes used when evaluating a trace, the first of which warms up the JIT.
+	 */
+	private static final int EVALUATION_PASSES = 5;
+
+	/**
+	 * Hidden constructor.
+	 */
+	private GuessPrefilterBenchmark() {}
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args
+	 * 		command line arguments.
+	 * @throws IOException
+	 * 		if the trace could not be read.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 2) {
+			LOGGER.severe("Usage: GuessPrefilterBenchmark <trace file> <channel>=<rack letters> ...");
+			System.exit(1);
+			return;
+		}
+
+		final List<String> frames = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+		final Map<String, String> racks = new HashMap<>();
+		for (int i = 1; i < args.length; i++) {
+			final String[] parts = args[i].split("=", 2);
+			racks.put(parts[0], parts[1]);
+		}
+
+		// time parsing every frame, as guess handling did before the filter, against filtering then parsing survivors
+		long baselineNanos = 0;
+		long filteredNanos = 0;
+		GuessPrefilter prefilter = null;
+		for (int pass = 0; pass < EVALUATION_PASSES; pass++) {
+			prefilter = GuessPrefilter.newInstance();
+			racks.forEach(prefilter::setRack);
+
+			final long baselineStart = System.nanoTime();
+			for (final String frame : frames) {
+				TwitchIRCMessage.fromString(frame);
+			}
+			final long filteredStart = System.nanoTime();
+			for (final String frame : frames) {
+				if (!prefilter.reject(frame)) {
+					TwitchIRCMessage.fromString(frame);
+				}
+			}
+			final long end = System.nanoTime();
+
+			if (pass > 0) {
+				baselineNanos += filteredStart - baselineStart;
+				filteredNanos += end - filteredStart;
+			}
+		}
+
+		final int measuredPasses = EVALUATION_PASSES - 1;
+		LOGGER.info(String.format(Locale.ROOT, "%d frames, %.1f%% rejected", frames.size()
+				, prefilter.getRejectionRatio() * 100));
+		LOGGER.info(String.format(Locale.ROOT, "parse all: %.2fms, prefilter + parse survivors: %.2fms (%.1f%% CPU saved)"
+				, baselineNanos / 1e6 / measuredPasses
+				, filteredNanos / 1e6 / measuredPasses
+				, baselineNanos == 0 ? 0 : 100.0 * (baselineNanos - filteredNanos) / baselineNanos));
+	}
+}
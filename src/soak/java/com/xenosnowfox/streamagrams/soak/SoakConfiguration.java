@@ -0,0 +1,102 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings of a soak run, read from `soak.*` system properties so that they can be passed straight through from
+ * Gradle, e.g. `./gradlew soakTest -Psoak.duration=PT2H`.
+ */
+@Getter
+@ToString
+public class SoakConfiguration {
+
+	/**
+	 * Total length of the run, including warm-up.
+	 */
+	private final Duration duration;
+
+	/**
+	 * Time at the start of the run excluded from the growth checks, while caches and pools fill up.
+	 */
+	private final Duration warmup;
+
+	/**
+	 * Interval between samples.
+	 */
+	private final Duration sampleInterval;
+
+	/**
+	 * Number of channels the stub serves.
+	 */
+	private final int channels;
+
+	/**
+	 * Number of distinct synthetic chatters.
+	 */
+	private final int chatters;
+
+	/**
+	 * Chat messages sent by the stub per second, across all channels.
+	 */
+	private final int messagesPerSecond;
+
+	/**
+	 * Largest tolerated growth of heap-after-GC once warmed up, in megabytes per hour.
+	 */
+	private final double maxHeapGrowthMbPerHour;
+
+	/**
+	 * Largest tolerated single GC pause, in milliseconds.
+	 */
+	private final double maxGcPauseMillis;
+
+	/**
+	 * Largest tolerated mean allocation rate once warmed up, in megabytes per second.
+	 */
+	private final double maxAllocationMbPerSecond;
+
+	/**
+	 * Directory the per-run report directories are written to.
+	 */
+	private final Path reportDirectory;
+
+	/**
+	 * Port the chat stub listens on.
+	 */
+	private final int port;
+
+	/**
+	 * Hidden constructor.
+	 */
+	private SoakConfiguration() {
+		this.duration = Duration.parse(System.getProperty("soak.duration", "PT10M"));
+		this.warmup = Duration.parse(System.getProperty("soak.warmup", "PT1M"));
+		this.sampleInterval = Duration.parse(System.getProperty("soak.sampleInterval", "PT5S"));
+		this.channels = Integer.parseInt(System.getProperty("soak.channels", "50"));
+		this.chatters = Integer.parseInt(System.getProperty("soak.chatters", "5000"));
+		this.messagesPerSecond = Integer.parseInt(System.getProperty("soak.messagesPerSecond", "2000"));
+		this.maxHeapGrowthMbPerHour = Double.parseDouble(System.getProperty("soak.maxHeapGrowthMbPerHour", "32"));
+		this.maxGcPauseMillis = Double.parseDouble(System.getProperty("soak.maxGcPauseMillis", "200"));
+		this.maxAllocationMbPerSecond = Double.parseDouble(System.getProperty("soak.maxAllocationMbPerSecond", "256"));
+		this.reportDirectory = Paths.get(System.getProperty("soak.reportDirectory", "build/reports/soak"));
+		this.port = Integer.parseInt(System.getProperty("soak.port", "18765"));
+
+		if (this.warmup.compareTo(this.duration) >= 0) {
+			throw new IllegalArgumentException("Warm-up must be shorter than the run.");
+		}
+	}
+
+	/**
+	 * Returns the configuration given by the current system properties.
+	 *
+	 * @return new SoakConfiguration instance.
+	 */
+	public static SoakConfiguration fromSystemProperties() {
+		return new SoakConfiguration();
+	}
+}
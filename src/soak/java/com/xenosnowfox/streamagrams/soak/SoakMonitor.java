@@ -0,0 +1,341 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.NonNull;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Samples heap, allocation and garbage collection behaviour while a soak run is in progress.
+ * <p>
+ * Heap-after-GC and allocation rate are read through JMX at a fixed interval. Pauses are taken from GC notifications
+ * as they happen and, once the run stops, cross-checked against a JFR recording of the run, which is kept alongside the
+ * report for later inspection.
+ */
+public class SoakMonitor {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(SoakMonitor.class.getName());
+
+	/**
+	 * Interval between samples.
+	 */
+	private final Duration sampleInterval;
+
+	/**
+	 * File the JFR recording is written to.
+	 */
+	private final Path recordingFile;
+
+	/**
+	 * Samples taken so far. Guarded by this instance's monitor.
+	 */
+	private final List<SoakSample> samples = new ArrayList<>();
+
+	/**
+	 * Bytes allocated by each live thread when last sampled.
+	 */
+	private Map<Long, Long> threadAllocations = new HashMap<>();
+
+	/**
+	 * Bytes allocated since the run started.
+	 */
+	private long allocatedBytes = 0;
+
+	/**
+	 * Longest pause reported since the previous sample, in microseconds. Guarded by this instance's monitor.
+	 */
+	private long pendingMaxPauseMicros = 0;
+
+	/**
+	 * Longest pause reported during the run, in microseconds. Guarded by this instance's monitor.
+	 */
+	private long maxPauseMicros = 0;
+
+	/**
+	 * Longest pause recorded by JFR, in milliseconds, once the recording has been read.
+	 */
+	private double recordedMaxPauseMillis = -1;
+
+	/**
+	 * Listener receiving GC notifications.
+	 */
+	private final NotificationListener gcListener = this::onGcNotification;
+
+	/**
+	 * Time the run started, from {@link System#nanoTime()}.
+	 */
+	private long startNanos;
+
+	/**
+	 * Time of the previous sample, from {@link System#nanoTime()}.
+	 */
+	private long lastSampleNanos;
+
+	/**
+	 * JFR recording of the run.
+	 */
+	private Recording recording = null;
+
+	/**
+	 * Scheduler taking samples.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withSampleInterval
+	 * 		interval between samples.
+	 * @param withRecordingFile
+	 * 		file the JFR recording is written to.
+	 * @return new SoakMonitor instance.
+	 */
+	public static SoakMonitor newInstance(@NonNull final Duration withSampleInterval,
+			@NonNull final Path withRecordingFile) {
+		return new SoakMonitor(withSampleInterval, withRecordingFile);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withSampleInterval
+	 * 		interval between samples.
+	 * @param withRecordingFile
+	 * 		file the JFR recording is written to.
+	 */
+	private SoakMonitor(final Duration withSampleInterval, final Path withRecordingFile) {
+		this.sampleInterval = withSampleInterval;
+		this.recordingFile = withRecordingFile;
+	}
+
+	/**
+	 * Starts the JFR recording and periodic sampling.
+	 *
+	 * @throws IOException
+	 * 		if the JFR configuration could not be read.
+	 * @throws ParseException
+	 * 		if the JFR configuration could not be parsed.
+	 */
+	public synchronized void start() throws IOException, ParseException {
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter) {
+				((NotificationEmitter) collector).addNotificationListener(this.gcListener, null, null);
+			}
+		}
+
+		this.recording = new Recording(Configuration.getConfiguration("default"));
+		this.recording.setName("streamagrams-soak");
+		this.recording.setToDisk(true);
+		this.recording.start();
+
+		this.startNanos = System.nanoTime();
+		this.lastSampleNanos = this.startNanos;
+		this.threadAllocations = SoakMonitor.readThreadAllocations();
+
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "soak-monitor");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleAtFixedRate(this::sample, this.sampleInterval.toMillis(), this.sampleInterval.toMillis()
+				, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Takes a final sample, stops sampling, and writes and reads back the JFR recording.
+	 *
+	 * @throws IOException
+	 * 		if the JFR recording could not be written or read.
+	 */
+	public void stop() throws IOException {
+		synchronized (this) {
+			if (this.scheduler == null) {
+				return;
+			}
+			this.scheduler.shutdown();
+			this.scheduler = null;
+		}
+		this.sample();
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter) {
+				try {
+					((NotificationEmitter) collector).removeNotificationListener(this.gcListener);
+				} catch (ListenerNotFoundException ex) {
+					LOGGER.log(Level.FINE, "GC listener was not registered.", ex);
+				}
+			}
+		}
+
+		this.recording.stop();
+		this.recording.dump(this.recordingFile);
+		this.recording.close();
+
+		double longest = 0;
+		for (RecordedEvent event : RecordingFile.readAllEvents(this.recordingFile)) {
+			if ("jdk.GarbageCollection".equals(event.getEventType()
+					.getName())) {
+				longest = Math.max(longest, event.getDuration("longestPause")
+						.toNanos() / 1_000_000.0);
+			}
+		}
+		this.recordedMaxPauseMillis = longest;
+	}
+
+	/**
+	 * Returns the samples taken so far.
+	 *
+	 * @return samples, oldest first.
+	 */
+	public synchronized List<SoakSample> getSamples() {
+		return Collections.unmodifiableList(new ArrayList<>(this.samples));
+	}
+
+	/**
+	 * Returns the longest GC pause of the run. Once the run has stopped this is the longer of the pauses reported by
+	 * GC notifications and by JFR.
+	 *
+	 * @return longest pause in milliseconds.
+	 */
+	public synchronized double getMaxPauseMillis() {
+		return Math.max(this.maxPauseMicros / 1000.0, this.recordedMaxPauseMillis);
+	}
+
+	/**
+	 * Returns the longest GC pause recorded by JFR.
+	 *
+	 * @return longest pause in milliseconds, or -1 if the recording has not been read yet.
+	 */
+	public synchronized double getRecordedMaxPauseMillis() {
+		return this.recordedMaxPauseMillis;
+	}
+
+	/**
+	 * Returns the file the JFR recording is written to.
+	 *
+	 * @return recording file.
+	 */
+	public Path getRecordingFile() {
+		return this.recordingFile;
+	}
+
+	/**
+	 * Takes a sample.
+	 */
+	private synchronized void sample() {
+		try {
+			final long now = System.nanoTime();
+
+			long heapAfterGc = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				final MemoryUsage usage = pool.getCollectionUsage();
+				if (pool.getType() == MemoryType.HEAP && usage != null) {
+					heapAfterGc += usage.getUsed();
+				}
+			}
+
+			long gcCount = 0;
+			long gcMillis = 0;
+			for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+				gcCount += Math.max(0, collector.getCollectionCount());
+				gcMillis += Math.max(0, collector.getCollectionTime());
+			}
+
+			// threads that ended since the previous sample take their final allocations with them
+			final Map<Long, Long> allocations = SoakMonitor.readThreadAllocations();
+			long allocated = 0;
+			for (Map.Entry<Long, Long> entry : allocations.entrySet()) {
+				allocated += Math.max(0, entry.getValue() - this.threadAllocations.getOrDefault(entry.getKey(), 0L));
+			}
+			this.threadAllocations = allocations;
+			this.allocatedBytes += allocated;
+
+			final double seconds = Math.max(1, now - this.lastSampleNanos) / 1_000_000_000.0;
+			this.samples.add(new SoakSample((now - this.startNanos) / 1_000_000_000.0, ManagementFactory.getMemoryMXBean()
+					.getHeapMemoryUsage()
+					.getUsed(), heapAfterGc, this.allocatedBytes, allocated / seconds, gcCount, gcMillis
+					, this.pendingMaxPauseMicros / 1000.0, ManagementFactory.getThreadMXBean()
+					.getThreadCount()));
+			this.pendingMaxPauseMicros = 0;
+			this.lastSampleNanos = now;
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Unable to take soak sample.", ex);
+		}
+	}
+
+	/**
+	 * Records the duration of a collection reported through JMX.
+	 *
+	 * @param withNotification
+	 * 		notification.
+	 * @param withHandback
+	 * 		unused.
+	 */
+	private void onGcNotification(final Notification withNotification, final Object withHandback) {
+		if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(withNotification.getType())) {
+			return;
+		}
+
+		final GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+				(CompositeData) withNotification.getUserData());
+		final long micros = TimeUnit.MILLISECONDS.toMicros(info.getGcInfo()
+				.getDuration());
+		synchronized (this) {
+			this.pendingMaxPauseMicros = Math.max(this.pendingMaxPauseMicros, micros);
+			this.maxPauseMicros = Math.max(this.maxPauseMicros, micros);
+		}
+	}
+
+	/**
+	 * Reads the bytes allocated by every live thread.
+	 *
+	 * @return allocated bytes keyed by thread identifier.
+	 */
+	private static Map<Long, Long> readThreadAllocations() {
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		final Map<Long, Long> allocations = new HashMap<>();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return allocations;
+		}
+
+		final long[] ids = threads.getAllThreadIds();
+		final long[] bytes = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(ids);
+		for (int i = 0; i < ids.length; i++) {
+			if (bytes[i] >= 0) {
+				allocations.put(ids[i], bytes[i]);
+			}
+		}
+		return allocations;
+	}
+}
@@ -0,0 +1,262 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a soak run: the thresholds checked against the samples taken, and the files the run is written to.
+ * <p>
+ * Heap growth is the slope of a least-squares fit through the heap-after-GC samples taken after warm-up, so that a
+ * single late collection neither hides nor fakes a leak.
+ */
+public class SoakReport {
+
+	/**
+	 * Bytes in a megabyte.
+	 */
+	private static final double MB = 1024 * 1024;
+
+	/**
+	 * Fewest post-warm-up samples needed to fit a heap growth trend.
+	 */
+	private static final int MIN_TREND_SAMPLES = 3;
+
+	/**
+	 * Configuration of the run.
+	 */
+	private final SoakConfiguration configuration;
+
+	/**
+	 * Time the run started.
+	 */
+	private final Instant startedAt;
+
+	/**
+	 * Samples taken during the run, oldest first.
+	 */
+	private final List<SoakSample> samples;
+
+	/**
+	 * Longest GC pause of the run, in milliseconds.
+	 */
+	private final double maxPauseMillis;
+
+	/**
+	 * Lines describing the state of each pipeline component at the end of the run.
+	 */
+	private final List<String> components = new ArrayList<>();
+
+	/**
+	 * Threshold checks and their outcome.
+	 */
+	private final List<String> checks = new ArrayList<>();
+
+	/**
+	 * Whether every threshold was met.
+	 */
+	private boolean passed = true;
+
+	/**
+	 * Returns a new instance, evaluating the thresholds of the configuration.
+	 *
+	 * @param withConfiguration
+	 * 		configuration of the run.
+	 * @param withStartedAt
+	 * 		time the run started.
+	 * @param withSamples
+	 * 		samples taken during the run, oldest first.
+	 * @param withMaxPauseMillis
+	 * 		longest GC pause of the run, in milliseconds.
+	 * @return new SoakReport instance.
+	 */
+	public static SoakReport newInstance(@NonNull final SoakConfiguration withConfiguration,
+			@NonNull final Instant withStartedAt, @NonNull final List<SoakSample> withSamples,
+			final double withMaxPauseMillis) {
+		return new SoakReport(withConfiguration, withStartedAt, withSamples, withMaxPauseMillis);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withConfiguration
+	 * 		configuration of the run.
+	 * @param withStartedAt
+	 * 		time the run started.
+	 * @param withSamples
+	 * 		samples taken during the run, oldest first.
+	 * @param withMaxPauseMillis
+	 * 		longest GC pause of the run, in milliseconds.
+	 */
+	private SoakReport(final SoakConfiguration withConfiguration, final Instant withStartedAt,
+			final List<SoakSample> withSamples, final double withMaxPauseMillis) {
+		this.configuration = withConfiguration;
+		this.startedAt = withStartedAt;
+		this.samples = withSamples;
+		this.maxPauseMillis = withMaxPauseMillis;
+		this.evaluate();
+	}
+
+	/**
+	 * Adds a line describing the state of a pipeline component at the end of the run.
+	 *
+	 * @param withComponent
+	 * 		component description, usually its {@code toString()}.
+	 * @return this instance to allow for method chaining.
+	 */
+	public SoakReport withComponent(@NonNull final Object withComponent) {
+		this.components.add(String.valueOf(withComponent));
+		return this;
+	}
+
+	/**
+	 * Returns whether every threshold was met.
+	 *
+	 * @return true if the run passed.
+	 */
+	public boolean isPassed() {
+		return this.passed;
+	}
+
+	/**
+	 * Returns the samples taken after warm-up.
+	 *
+	 * @return steady-state samples, oldest first.
+	 */
+	public List<SoakSample> getSteadySamples() {
+		final double warmup = this.configuration.getWarmup()
+				.toMillis() / 1000.0;
+		final List<SoakSample> steady = new ArrayList<>();
+		for (SoakSample sample : this.samples) {
+			if (sample.getElapsedSeconds() >= warmup) {
+				steady.add(sample);
+			}
+		}
+		return steady;
+	}
+
+	/**
+	 * Writes `report.txt` and `samples.csv` to a directory.
+	 *
+	 * @param withDirectory
+	 * 		run directory.
+	 * @throws IOException
+	 * 		if a file could not be written.
+	 */
+	public void write(@NonNull final Path withDirectory) throws IOException {
+		Files.createDirectories(withDirectory);
+
+		final List<String> csv = new ArrayList<>();
+		csv.add(SoakSample.CSV_HEADER);
+		this.samples.forEach(sample -> csv.add(sample.toCsv()));
+		Files.write(withDirectory.resolve("samples.csv"), csv, StandardCharsets.UTF_8);
+
+		Files.writeString(withDirectory.resolve("report.txt"), this.toString(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		builder.append("Streamagrams soak run started ")
+				.append(this.startedAt)
+				.append(System.lineSeparator())
+				.append("Result: ")
+				.append(this.passed ? "PASSED" : "FAILED")
+				.append(System.lineSeparator())
+				.append(System.lineSeparator())
+				.append(this.configuration)
+				.append(System.lineSeparator())
+				.append(System.lineSeparator())
+				.append("Checks:")
+				.append(System.lineSeparator());
+		this.checks.forEach(check -> builder.append("  ")
+				.append(check)
+				.append(System.lineSeparator()));
+
+		builder.append(System.lineSeparator())
+				.append("Components:")
+				.append(System.lineSeparator());
+		this.components.forEach(component -> builder.append("  ")
+				.append(component)
+				.append(System.lineSeparator()));
+		return builder.toString();
+	}
+
+	/**
+	 * Checks the samples against the thresholds of the configuration.
+	 */
+	private void evaluate() {
+		final List<SoakSample> steady = this.getSteadySamples();
+
+		if (steady.size() < MIN_TREND_SAMPLES) {
+			this.check("heap growth", false, String.format(Locale.ROOT
+					, "only %d samples after warm-up, need %d", steady.size(), MIN_TREND_SAMPLES));
+		} else {
+			final double growth = SoakReport.slope(steady) * 3600 / MB;
+			this.check("heap growth", growth <= this.configuration.getMaxHeapGrowthMbPerHour(), String.format(Locale.ROOT
+					, "%.2f MB/h after GC (limit %.2f MB/h)", growth, this.configuration.getMaxHeapGrowthMbPerHour()));
+		}
+
+		this.check("gc pause", this.maxPauseMillis <= this.configuration.getMaxGcPauseMillis(), String.format(Locale.ROOT
+				, "%.2f ms longest (limit %.2f ms)", this.maxPauseMillis, this.configuration.getMaxGcPauseMillis()));
+
+		if (steady.size() >= 2) {
+			final SoakSample first = steady.get(0);
+			final SoakSample last = steady.get(steady.size() - 1);
+			final double seconds = Math.max(1e-3, last.getElapsedSeconds() - first.getElapsedSeconds());
+			final double rate = (last.getAllocatedBytes() - first.getAllocatedBytes()) / seconds / MB;
+			this.check("allocation rate", rate <= this.configuration.getMaxAllocationMbPerSecond(), String.format(
+					Locale.ROOT, "%.2f MB/s mean (limit %.2f MB/s)", rate
+					, this.configuration.getMaxAllocationMbPerSecond()));
+		}
+	}
+
+	/**
+	 * Records the outcome of a check.
+	 *
+	 * @param withName
+	 * 		check name.
+	 * @param withPassed
+	 * 		whether the check passed.
+	 * @param withDetail
+	 * 		measured value and threshold.
+	 */
+	private void check(final String withName, final boolean withPassed, final String withDetail) {
+		this.passed &= withPassed;
+		this.checks.add((withPassed ? "PASS " : "FAIL ") + withName + ": " + withDetail);
+	}
+
+	/**
+	 * Fits a least-squares line through heap-after-GC against elapsed time.
+	 *
+	 * @param withSamples
+	 * 		samples to fit.
+	 * @return slope in bytes per second.
+	 */
+	private static double slope(final List<SoakSample> withSamples) {
+		double meanX = 0;
+		double meanY = 0;
+		for (SoakSample sample : withSamples) {
+			meanX += sample.getElapsedSeconds();
+			meanY += sample.getHeapAfterGcBytes();
+		}
+		meanX /= withSamples.size();
+		meanY /= withSamples.size();
+
+		double covariance = 0;
+		double variance = 0;
+		for (SoakSample sample : withSamples) {
+			final double dx = sample.getElapsedSeconds() - meanX;
+			covariance += dx * (sample.getHeapAfterGcBytes() - meanY);
+			variance += dx * dx;
+		}
+		return variance == 0 ? 0 : covariance / variance;
+	}
+}
@@ -0,0 +1,110 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Point-in-time reading of the JVM taken during a soak run.
+ */
+@Getter
+public class SoakSample {
+
+	/**
+	 * Header line of the CSV form of a sample.
+	 */
+	static final String CSV_HEADER = "elapsedSeconds,heapUsedBytes,heapAfterGcBytes,allocatedBytes,allocationBytesPerSecond"
+			+ ",gcCount,gcMillis,maxPauseMillis,threads";
+
+	/**
+	 * Time since the run started, in seconds.
+	 */
+	private final double elapsedSeconds;
+
+	/**
+	 * Heap in use when the sample was taken, in bytes.
+	 */
+	private final long heapUsedBytes;
+
+	/**
+	 * Heap still in use after the most recent collection of each heap pool, in bytes.
+	 */
+	private final long heapAfterGcBytes;
+
+	/**
+	 * Bytes allocated since the run started.
+	 */
+	private final long allocatedBytes;
+
+	/**
+	 * Allocation rate since the previous sample, in bytes per second.
+	 */
+	private final double allocationBytesPerSecond;
+
+	/**
+	 * Collections since the JVM started.
+	 */
+	private final long gcCount;
+
+	/**
+	 * Time spent collecting since the JVM started, in milliseconds.
+	 */
+	private final long gcMillis;
+
+	/**
+	 * Longest collection pause since the previous sample, in milliseconds.
+	 */
+	private final double maxPauseMillis;
+
+	/**
+	 * Live threads.
+	 */
+	private final int threads;
+
+	/**
+	 * Instantiates a new sample.
+	 *
+	 * @param withElapsedSeconds
+	 * 		time since the run started, in seconds.
+	 * @param withHeapUsedBytes
+	 * 		heap in use, in bytes.
+	 * @param withHeapAfterGcBytes
+	 * 		heap in use after the most recent collection, in bytes.
+	 * @param withAllocatedBytes
+	 * 		bytes allocated since the run started.
+	 * @param withAllocationBytesPerSecond
+	 * 		allocation rate since the previous sample, in bytes per second.
+	 * @param withGcCount
+	 * 		collections since the JVM started.
+	 * @param withGcMillis
+	 * 		time spent collecting since the JVM started, in milliseconds.
+	 * @param withMaxPauseMillis
+	 * 		longest pause since the previous sample, in milliseconds.
+	 * @param withThreads
+	 * 		live threads.
+	 */
+	SoakSample(final double withElapsedSeconds, final long withHeapUsedBytes, final long withHeapAfterGcBytes,
+			final long withAllocatedBytes, final double withAllocationBytesPerSecond, final long withGcCount,
+			final long withGcMillis, final double withMaxPauseMillis, final int withThreads) {
+		this.elapsedSeconds = withElapsedSeconds;
+		this.heapUsedBytes = withHeapUsedBytes;
+		this.heapAfterGcBytes = withHeapAfterGcBytes;
+		this.allocatedBytes = withAllocatedBytes;
+		this.allocationBytesPerSecond = withAllocationBytesPerSecond;
+		this.gcCount = withGcCount;
+		this.gcMillis = withGcMillis;
+		this.maxPauseMillis = withMaxPauseMillis;
+		this.threads = withThreads;
+	}
+
+	/**
+	 * Returns the sample as a CSV line matching {@link #CSV_HEADER}.
+	 *
+	 * @return CSV line.
+	 */
+	String toCsv() {
+		return String.format(Locale.ROOT, "%.1f,%d,%d,%d,%.0f,%d,%d,%.2f,%d", this.elapsedSeconds, this.heapUsedBytes
+				, this.heapAfterGcBytes, this.allocatedBytes, this.allocationBytesPerSecond, this.gcCount, this.gcMillis
+				, this.maxPauseMillis, this.threads);
+	}
+}
@@ -0,0 +1,294 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import com.xenosnowfox.streamagrams.analytics.AnalyticsRollupStore;
+import com.xenosnowfox.streamagrams.analytics.ChannelAnalyticsEngine;
+import com.xenosnowfox.streamagrams.lifecycle.ChannelLifecycleManager;
+import com.xenosnowfox.streamagrams.lifecycle.ChannelStateCodec;
+import com.xenosnowfox.streamagrams.lifecycle.DatabasePassivationStore;
+import com.xenosnowfox.streamagrams.persistence.DataSourceMigration;
+import com.xenosnowfox.streamagrams.persistence.LeaderboardRepository;
+import com.xenosnowfox.streamagrams.persistence.SeasonalScoreRecorder;
+import com.xenosnowfox.streamagrams.persistence.SeasonalScoreRepository;
+import com.xenosnowfox.streamagrams.twitch.GuessPrefilter;
+import com.xenosnowfox.streamagrams.twitch.TwitchAnnouncementAggregator;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCClient;
+import com.xenosnowfox.streamagrams.twitch.TwitchIRCMessage;
+import com.xenosnowfox.streamagrams.twitch.TwitchLoginPipeline;
+import com.xenosnowfox.streamagrams.utils.PropertiesUtils;
+import org.apache.commons.dbcp2.BasicDataSourceFactory;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Soak test driving the whole chat pipeline with synthetic traffic for a configurable duration.
+ * <p>
+ * The real client, login pipeline, guess prefilter, channel lifecycle manager, analytics engine, leaderboard and
+ * seasonal score recorder and announcement aggregator are wired together as in production, but connect to a local
+ * {@link TwitchChatStub} and write to an H2 file database inside the run's report directory. The JVM is sampled
+ * throughout by a {@link SoakMonitor}, and the run fails, exiting with status 1, if heap-after-GC keeps growing, a GC
+ * pause runs long, or the allocation rate is too high. Settings are read by {@link SoakConfiguration}.
+ */
+public class SoakTest {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(SoakTest.class.getName());
+
+	/**
+	 * Nickname the pipeline logs in with.
+	 */
+	private static final String NICKNAME = "soakbot";
+
+	/**
+	 * Length of a synthetic round, after which every channel's found words are cleared.
+	 */
+	private static final Duration ROUND_LENGTH = Duration.ofSeconds(30);
+
+	/**
+	 * Time a channel may go without chat before it is passivated. Kept short so that passivation is exercised.
+	 */
+	private static final Duration IDLE_THRESHOLD = Duration.ofSeconds(30);
+
+	/**
+	 * Time allowed for the login to become ready.
+	 */
+	private static final Duration LOGIN_TIMEOUT = Duration.ofSeconds(30);
+
+	/**
+	 * Name of the run directory, derived from the time the run started.
+	 */
+	private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'", Locale.ROOT)
+			.withZone(ZoneOffset.UTC);
+
+	/**
+	 * Codec storing the words found in a channel's current round as newline-separated text.
+	 */
+	private static final ChannelStateCodec<Set<String>> FOUND_WORDS_CODEC = new ChannelStateCodec<>() {
+		@Override
+		public byte[] encode(final Set<String> withState) {
+			return String.join("\n", withState)
+					.getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public Set<String> decode(final byte[] withBytes) {
+			final Set<String> words = new HashSet<>();
+			if (withBytes.length > 0) {
+				words.addAll(Arrays.asList(new String(withBytes, StandardCharsets.UTF_8).split("\n")));
+			}
+			return words;
+		}
+
+		@Override
+		public long estimateBytes(final Set<String> withState) {
+			return 64 + withState.size() * 96L;
+		}
+	};
+
+	/**
+	 * Hidden constructor.
+	 */
+	private SoakTest() {}
+
+	/**
+	 * Runs a soak test.
+	 *
+	 * @param args
+	 * 		command line arguments, unused.
+	 * @throws Exception
+	 * 		if the run could not be set up.
+	 */
+	public static void main(final String[] args) throws Exception {
+		final SoakConfiguration configuration = SoakConfiguration.fromSystemProperties();
+		final Instant startedAt = Instant.now();
+		final Path runDirectory = configuration.getReportDirectory()
+				.resolve(RUN_NAME.format(startedAt))
+				.toAbsolutePath();
+		Files.createDirectories(runDirectory);
+		LOGGER.info("Starting soak run in " + runDirectory + ": " + configuration);
+
+		// pool settings as in production, pointed at a database private to this run
+		final Properties properties = PropertiesUtils.fromResources("datasource.properties");
+		properties.setProperty("url", "jdbc:h2:file:" + runDirectory.resolve("db")
+				.resolve("streamagrams") + ";MODE=MYSQL");
+		final DataSource dataSource = BasicDataSourceFactory.createDataSource(properties);
+		DataSourceMigration.update(dataSource);
+
+		final TwitchChatStub stub = TwitchChatStub.newInstance(configuration);
+		stub.start();
+
+		final SeasonalScoreRecorder recorder = SeasonalScoreRecorder.newInstance(
+				SeasonalScoreRepository.newInstance(dataSource));
+		final LeaderboardRepository leaderboard = LeaderboardRepository.newInstance(dataSource)
+				.withSeasonalScoreRecorder(recorder);
+		final ChannelAnalyticsEngine analytics = ChannelAnalyticsEngine.newInstance()
+				.withRollupStore(AnalyticsRollupStore.newInstance(dataSource));
+
+		final GuessPrefilter prefilter = GuessPrefilter.newInstance();
+		stub.getChannels()
+				.forEach(channel -> prefilter.setRack(channel, stub.getRack(channel)));
+
+		final TwitchIRCClient client = new TwitchIRCClient(stub.getUri());
+		client.setGuessPrefilter(prefilter);
+		final TwitchAnnouncementAggregator aggregator = TwitchAnnouncementAggregator.newInstance(client, NICKNAME);
+
+		final ChannelLifecycleManager<Set<String>> lifecycle = ChannelLifecycleManager.newInstance(FOUND_WORDS_CODEC
+						, DatabasePassivationStore.newInstance(dataSource), channel -> new HashSet<>())
+				.withIdleThreshold(IDLE_THRESHOLD)
+				.withMessageHandler((channel, found, message) -> SoakTest.onGuess(stub, leaderboard, aggregator
+						, channel, found, message));
+
+		client.setGuessListener(lifecycle);
+
+		final TwitchLoginPipeline login = TwitchLoginPipeline.newInstance(client, NICKNAME)
+				.withChannels(stub.getChannels())
+				.withTimeout(LOGIN_TIMEOUT)
+				.withMessageListener(analytics);
+
+		recorder.start();
+		leaderboard.start();
+		analytics.start();
+		lifecycle.start();
+		login.onAccessToken(NICKNAME);
+		login.getReady()
+				.get(LOGIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+		LOGGER.info("Logged in: " + login);
+
+		final ScheduledExecutorService rounds = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			final Thread thread = new Thread(runnable, "soak-rounds");
+			thread.setDaemon(true);
+			return thread;
+		});
+		rounds.scheduleAtFixedRate(() -> SoakTest.endRounds(stub, lifecycle, analytics, aggregator)
+				, ROUND_LENGTH.toMillis(), ROUND_LENGTH.toMillis(), TimeUnit.MILLISECONDS);
+
+		final SoakMonitor monitor = SoakMonitor.newInstance(configuration.getSampleInterval()
+				, runDirectory.resolve("soak.jfr"));
+		monitor.start();
+		Thread.sleep(configuration.getDuration()
+				.toMillis());
+		monitor.stop();
+
+		rounds.shutdownNow();
+		stub.stop();
+		aggregator.flushAll();
+		aggregator.shutdown();
+		lifecycle.stop();
+		analytics.stop();
+		leaderboard.stop();
+		recorder.stop();
+		login.shutdown();
+
+		final SoakReport report = SoakReport.newInstance(configuration, startedAt, monitor.getSamples()
+						, monitor.getMaxPauseMillis())
+				.withComponent(String.format(Locale.ROOT, "SoakMonitor{jfrMaxPauseMillis=%.2f, recording=%s}"
+						, monitor.getRecordedMaxPauseMillis(), monitor.getRecordingFile()))
+				.withComponent(stub)
+				.withComponent(login)
+				.withComponent(prefilter)
+				.withComponent(lifecycle)
+				.withComponent(recorder)
+				.withComponent(String.format(Locale.ROOT, "TwitchAnnouncementAggregator{announcements=%d, lines=%d"
+								+ ", linesSaved=%d}", aggregator.getAnnouncementCount(), aggregator.getLineCount()
+						, aggregator.getLinesSaved()));
+		report.write(runDirectory);
+
+		LOGGER.info(System.lineSeparator() + report);
+		// the WebSocket client keeps non-daemon threads alive
+		System.exit(report.isPassed() ? 0 : 1);
+	}
+
+	/**
+	 * Scores a chat message against the answers of its channel.
+	 *
+	 * @param withStub
+	 * 		stub supplying each channel's answers.
+	 * @param withLeaderboard
+	 * 		leaderboard guesses are recorded in.
+	 * @param withAggregator
+	 * 		aggregator correct guesses are announced through.
+	 * @param withChannelName
+	 * 		normalised channel name.
+	 * @param withFound
+	 * 		words found in the channel's current round.
+	 * @param withMessage
+	 * 		chat message.
+	 */
+	private static void onGuess(final TwitchChatStub withStub, final LeaderboardRepository withLeaderboard,
+			final TwitchAnnouncementAggregator withAggregator, final String withChannelName, final Set<String> withFound,
+			final TwitchIRCMessage withMessage) {
+		if (withMessage.getArguments().length < 2 || withMessage.getPrefix() == null) {
+			return;
+		}
+
+		final String prefix = withMessage.getPrefix();
+		final int nickEnd = prefix.indexOf('!');
+		final String username = prefix.substring(prefix.startsWith(":") ? 1 : 0, nickEnd < 0 ? prefix.length() : nickEnd);
+		final String text = withMessage.getArguments()[1].trim()
+				.toLowerCase(Locale.ROOT);
+		if (text.startsWith("!")) {
+			return;
+		}
+
+		final boolean correct = withStub.getAnswers(withChannelName)
+				.contains(text) && withFound.add(text);
+		withLeaderboard.recordGuess(username, correct);
+		if (correct) {
+			withAggregator.announceCorrectGuess(withChannelName, username);
+		}
+	}
+
+	/**
+	 * Ends the current round in every resident channel.
+	 *
+	 * @param withStub
+	 * 		stub supplying each channel's rack.
+	 * @param withLifecycle
+	 * 		lifecycle manager holding each channel's found words.
+	 * @param withAnalytics
+	 * 		analytics engine round outcomes are recorded in.
+	 * @param withAggregator
+	 * 		aggregator round summaries are announced through.
+	 */
+	private static void endRounds(final TwitchChatStub withStub, final ChannelLifecycleManager<Set<String>> withLifecycle,
+			final ChannelAnalyticsEngine withAnalytics, final TwitchAnnouncementAggregator withAggregator) {
+		try {
+			for (String channel : withStub.getChannels()) {
+				if (!withLifecycle.isResident(channel)) {
+					continue;
+				}
+
+				final int found = withLifecycle.withState(channel, words -> {
+					final int count = words.size();
+					words.clear();
+					return count;
+				});
+				withAnalytics.recordRoundOutcome(channel, withStub.getRack(channel), found > 0, Duration.ofMillis(
+						ThreadLocalRandom.current()
+								.nextLong(ROUND_LENGTH.toMillis())));
+				withAggregator.announceRoundEnd(channel, "Round over! " + found + " words found.");
+			}
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Unable to end soak rounds.", ex);
+		}
+	}
+}
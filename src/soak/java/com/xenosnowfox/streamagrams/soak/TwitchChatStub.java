@@ -0,0 +1,507 @@
+package com.xenosnowfox.streamagrams.soak;
+
+import lombok.NonNull;
+import org.glassfish.tyrus.server.Server;
+
+import javax.websocket.DeploymentException;
+import javax.websocket.OnClose;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local stand-in for the Twitch IRC WebSocket endpoint.
+ * <p>
+ * It answers the login handshake the way Twitch does (`CAP * ACK`, `001`..`376`, and `JOIN`/`353`/`366` per channel),
+ * then streams synthetic, tagged chat to every joined channel at a fixed rate. Several lines are batched into each
+ * frame, as Twitch does under load. Chatter activity is skewed towards a few busy channels, so that quieter channels
+ * regularly go idle, and the chatter population slowly turns over, so that per-user state that is never released
+ * shows up as heap growth.
+ */
+public class TwitchChatStub {
+
+	/**
+	 * Logger instance.
+	 */
+	private static final Logger LOGGER = Logger.getLogger(TwitchChatStub.class.getName());
+
+	/**
+	 * Racks of letters played in the synthetic channels, each followed by the words that count as correct answers.
+	 */
+	private static final String[][] RACKS = {
+			{"aelpst", "pastel", "plates", "staple", "petals", "palest", "leapt", "slate", "steal", "least", "tales"},
+			{"aeinrst", "retains", "nastier", "stainer", "retina", "strain", "trains", "saint", "stair", "rites"},
+			{"adeimnr", "mandrel", "marine", "remain", "airmen", "minder", "reminds", "denim", "mined", "drain"},
+			{"eghinst", "nighest", "things", "nights", "height", "tinges", "hinge", "neigh", "sight", "thing"}
+	};
+
+	/**
+	 * Chat lines that are never guesses.
+	 */
+	private static final String[] CHATTER = {
+			"lol", "nice one", "GG", "how do I play?", "PogChamp", "this is hard", "that was close KEKW", "!score",
+			"!help", "hello chat", "brb", "Kappa Kappa Kappa", "what's the longest word so far?"
+	};
+
+	/**
+	 * Interval between bursts of generated chat.
+	 */
+	private static final long TICK_MILLIS = 20;
+
+	/**
+	 * Largest number of lines batched into one frame.
+	 */
+	private static final int MAX_LINES_PER_FRAME = 5;
+
+	/**
+	 * Interval between `PING`s sent to every connection.
+	 */
+	private static final long PING_MILLIS = 10_000;
+
+	/**
+	 * Stub instance the endpoints delegate to. Tyrus instantiates endpoints itself, so state is shared statically.
+	 */
+	private static volatile TwitchChatStub instance;
+
+	/**
+	 * Port to listen on.
+	 */
+	private final int port;
+
+	/**
+	 * Channels served, in activity order: the first is the busiest.
+	 */
+	private final List<String> channels;
+
+	/**
+	 * Size of the active chatter population.
+	 */
+	private final int chatters;
+
+	/**
+	 * Chat messages generated per second, across all channels.
+	 */
+	private final int messagesPerSecond;
+
+	/**
+	 * Open connections and the channels each has joined.
+	 */
+	private final Map<Session, Set<String>> connections = new ConcurrentHashMap<>();
+
+	/**
+	 * Number of chat lines sent.
+	 */
+	private final AtomicLong sentCount = new AtomicLong();
+
+	/**
+	 * Number of `PRIVMSG` lines received from clients.
+	 */
+	private final AtomicLong receivedChatCount = new AtomicLong();
+
+	/**
+	 * Number of `PONG` lines received from clients.
+	 */
+	private final AtomicLong pongCount = new AtomicLong();
+
+	/**
+	 * Time the stub started generating chat, from {@link System#nanoTime()}.
+	 */
+	private long startNanos;
+
+	/**
+	 * Underlying WebSocket server.
+	 */
+	private Server server = null;
+
+	/**
+	 * Scheduler generating chat.
+	 */
+	private ScheduledExecutorService scheduler = null;
+
+	/**
+	 * Returns a new instance.
+	 *
+	 * @param withConfiguration
+	 * 		soak configuration.
+	 * @return new TwitchChatStub instance.
+	 */
+	public static TwitchChatStub newInstance(@NonNull final SoakConfiguration withConfiguration) {
+		return new TwitchChatStub(withConfiguration);
+	}
+
+	/**
+	 * Hidden constructor.
+	 *
+	 * @param withConfiguration
+	 * 		soak configuration.
+	 */
+	private TwitchChatStub(final SoakConfiguration withConfiguration) {
+		this.port = withConfiguration.getPort();
+		this.chatters = withConfiguration.getChatters();
+		this.messagesPerSecond = withConfiguration.getMessagesPerSecond();
+
+		final List<String> names = new ArrayList<>();
+		for (int i = 0; i < withConfiguration.getChannels(); i++) {
+			names.add(String.format(Locale.ROOT, "soakchannel%03d", i));
+		}
+		this.channels = Collections.unmodifiableList(names);
+	}
+
+	/**
+	 * Returns the URI clients should connect to.
+	 *
+	 * @return WebSocket URI.
+	 */
+	public URI getUri() {
+		return URI.create("ws://localhost:" + this.port + "/");
+	}
+
+	/**
+	 * Returns the channels served.
+	 *
+	 * @return channel names, without a leading `#`.
+	 */
+	public List<String> getChannels() {
+		return this.channels;
+	}
+
+	/**
+	 * Returns the rack of letters played in a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel name, without a leading `#`.
+	 * @return rack letters.
+	 */
+	public String getRack(@NonNull final String withChannelName) {
+		return this.rackOf(withChannelName)[0];
+	}
+
+	/**
+	 * Returns the words that count as correct answers in a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel name, without a leading `#`.
+	 * @return answers.
+	 */
+	public List<String> getAnswers(@NonNull final String withChannelName) {
+		final String[] rack = this.rackOf(withChannelName);
+		return Arrays.asList(rack)
+				.subList(1, rack.length);
+	}
+
+	/**
+	 * Starts listening and generating chat.
+	 *
+	 * @throws DeploymentException
+	 * 		if the server could not be started.
+	 */
+	public synchronized void start() throws DeploymentException {
+		TwitchChatStub.instance = this;
+		this.server = new Server("localhost", this.port, "/", null, Endpoint.class);
+		this.server.start();
+
+		this.startNanos = System.nanoTime();
+		this.scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+			final Thread thread = new Thread(runnable, "twitch-chat-stub");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+		this.scheduler.scheduleAtFixedRate(this::ping, PING_MILLIS, PING_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops generating chat and closes the server.
+	 */
+	public synchronized void stop() {
+		if (this.scheduler != null) {
+			this.scheduler.shutdownNow();
+			this.scheduler = null;
+		}
+		if (this.server != null) {
+			this.server.stop();
+			this.server = null;
+		}
+		TwitchChatStub.instance = null;
+	}
+
+	@Override
+	public String toString() {
+		return "TwitchChatStub{connections=" + this.connections.size() + ", sent=" + this.sentCount.get()
+				+ ", receivedChat=" + this.receivedChatCount.get() + ", pongs=" + this.pongCount.get() + "}";
+	}
+
+	/**
+	 * Handles a frame from a client, answering the login handshake.
+	 *
+	 * @param withSession
+	 * 		client session.
+	 * @param withFrame
+	 * 		raw frame, possibly holding several lines.
+	 */
+	private void onFrame(final Session withSession, final String withFrame) {
+		final StringBuilder reply = new StringBuilder();
+		for (String line : withFrame.split("\r?\n")) {
+			final String[] parts = line.split(" ", 2);
+			final String argument = parts.length > 1 ? parts[1] : "";
+			switch (parts[0].toUpperCase(Locale.ROOT)) {
+				case "CAP":
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv CAP * ACK :" + argument.substring(argument.indexOf(':') + 1));
+					break;
+				case "NICK":
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv 001 " + argument + " :Welcome, GLHF!");
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv 002 " + argument + " :Your host is tmi.twitch.tv");
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv 375 " + argument + " :-");
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv 372 " + argument + " :You are in a maze of twisty passages.");
+					TwitchChatStub.appendLine(reply, ":tmi.twitch.tv 376 " + argument + " :>");
+					break;
+				case "JOIN":
+					final Set<String> joined = this.connections.computeIfAbsent(withSession,
+							session -> ConcurrentHashMap.newKeySet());
+					for (String channel : argument.split(",")) {
+						final String name = channel.trim()
+								.substring(1);
+						joined.add(name);
+						TwitchChatStub.appendLine(reply, ":soakbot!soakbot@soakbot.tmi.twitch.tv JOIN #" + name);
+						TwitchChatStub.appendLine(reply, ":soakbot.tmi.twitch.tv 353 soakbot = #" + name + " :soakbot");
+						TwitchChatStub.appendLine(reply, ":soakbot.tmi.twitch.tv 366 soakbot #" + name + " :End of /NAMES list");
+					}
+					break;
+				case "PRIVMSG":
+					this.receivedChatCount.incrementAndGet();
+					break;
+				case "PONG":
+					this.pongCount.incrementAndGet();
+					break;
+				default:
+					break;
+			}
+		}
+
+		if (reply.length() > 0) {
+			TwitchChatStub.send(withSession, reply.toString());
+		}
+	}
+
+	/**
+	 * Generates one tick's worth of chat for every connection.
+	 */
+	private void tick() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final int perTick = Math.max(1, (int) (this.messagesPerSecond * TICK_MILLIS / 1000));
+
+		// the population of active chatters turns over completely once an hour
+		final long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.startNanos);
+		final long populationOffset = elapsedSeconds * this.chatters / 3600;
+
+		for (Map.Entry<Session, Set<String>> connection : this.connections.entrySet()) {
+			if (connection.getValue()
+					.isEmpty()) {
+				continue;
+			}
+
+			final StringBuilder frame = new StringBuilder();
+			int lines = 0;
+			for (int i = 0; i < perTick; i++) {
+				// squaring skews activity towards the first channels, leaving the tail mostly idle
+				final double skew = random.nextDouble();
+				final String channel = this.channels.get((int) (skew * skew * this.channels.size()));
+				if (!connection.getValue()
+						.contains(channel)) {
+					continue;
+				}
+
+				final long chatterId = populationOffset + random.nextInt(this.chatters);
+				TwitchChatStub.appendLine(frame, this.chatLine(channel, chatterId, random));
+				if (++lines == MAX_LINES_PER_FRAME) {
+					TwitchChatStub.send(connection.getKey(), frame.toString());
+					this.sentCount.addAndGet(lines);
+					frame.setLength(0);
+					lines = 0;
+				}
+			}
+			if (lines > 0) {
+				TwitchChatStub.send(connection.getKey(), frame.toString());
+				this.sentCount.addAndGet(lines);
+			}
+		}
+	}
+
+	/**
+	 * Builds a tagged chat line.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @param withChatterId
+	 * 		identifier of the chatter.
+	 * @param withRandom
+	 * 		random source.
+	 * @return raw IRC line.
+	 */
+	private String chatLine(final String withChannelName, final long withChatterId, final ThreadLocalRandom withRandom) {
+		final String[] rack = this.rackOf(withChannelName);
+		final String text;
+		final int roll = withRandom.nextInt(10);
+		if (roll < 3) {
+			text = rack[1 + withRandom.nextInt(rack.length - 1)];
+		} else if (roll < 5) {
+			text = TwitchChatStub.shuffle(rack[0], withRandom);
+		} else if (roll < 6) {
+			text = "zzyzx";
+		} else {
+			text = CHATTER[withRandom.nextInt(CHATTER.length)];
+		}
+
+		final String user = "chatter" + withChatterId;
+		return "@badge-info=;badges=;color=#1E90FF;display-name=" + user + ";emotes=;id=" + withRandom.nextLong()
+				+ ";mod=0;room-id=" + Math.abs(withChannelName.hashCode()) + ";subscriber=0;tmi-sent-ts="
+				+ System.currentTimeMillis() + ";turbo=0;user-id=" + withChatterId + ";user-type= :" + user + "!" + user
+				+ "@" + user + ".tmi.twitch.tv PRIVMSG #" + withChannelName + " :" + text;
+	}
+
+	/**
+	 * Sends a `PING` to every connection.
+	 */
+	private void ping() {
+		this.connections.keySet()
+				.forEach(session -> TwitchChatStub.send(session, "PING :tmi.twitch.tv"));
+	}
+
+	/**
+	 * Returns the rack and answers of a channel.
+	 *
+	 * @param withChannelName
+	 * 		channel name.
+	 * @return rack letters followed by answers.
+	 */
+	private String[] rackOf(final String withChannelName) {
+		return RACKS[Math.floorMod(withChannelName.hashCode(), RACKS.length)];
+	}
+
+	/**
+	 * Sends a frame, dropping the connection if it has gone away.
+	 *
+	 * @param withSession
+	 * 		client session.
+	 * @param withFrame
+	 * 		frame to send.
+	 */
+	private static void send(final Session withSession, final String withFrame) {
+		try {
+			synchronized (withSession) {
+				withSession.getBasicRemote()
+						.sendText(withFrame);
+			}
+		} catch (IOException | IllegalStateException ex) {
+			LOGGER.log(Level.FINE, "Dropping stub connection.", ex);
+			final TwitchChatStub stub = TwitchChatStub.instance;
+			if (stub != null) {
+				stub.connections.remove(withSession);
+			}
+		}
+	}
+
+	/**
+	 * Appends a line to a frame, separating lines with CRLF.
+	 *
+	 * @param withFrame
+	 * 		frame being built.
+	 * @param withLine
+	 * 		line to append.
+	 */
+	private static void appendLine(final StringBuilder withFrame, final String withLine) {
+		if (withFrame.length() > 0) {
+			withFrame.append("\r\n");
+		}
+		withFrame.append(withLine);
+	}
+
+	/**
+	 * Returns the letters of a word in random order.
+	 *
+	 * @param withWord
+	 * 		word.
+	 * @param withRandom
+	 * 		random source.
+	 * @return shuffled letters.
+	 */
+	private static String shuffle(final String withWord, final ThreadLocalRandom withRandom) {
+		final char[] letters = withWord.toCharArray();
+		for (int i = letters.length - 1; i > 0; i--) {
+			final int j = withRandom.nextInt(i + 1);
+			final char swap = letters[i];
+			letters[i] = letters[j];
+			letters[j] = swap;
+		}
+		return new String(letters);
+	}
+
+	/**
+	 * WebSocket endpoint delegating to the running stub.
+	 */
+	@ServerEndpoint("/")
+	public static class Endpoint {
+
+		/**
+		 * Callback hook for Connection open events.
+		 *
+		 * @param withSession
+		 * 		the session which is opened.
+		 */
+		@OnOpen
+		public void onOpen(final Session withSession) {
+			final TwitchChatStub stub = TwitchChatStub.instance;
+			if (stub != null) {
+				stub.connections.put(withSession, ConcurrentHashMap.newKeySet());
+			}
+		}
+
+		/**
+		 * Callback hook for Message Events.
+		 *
+		 * @param withFrame
+		 * 		the text frame.
+		 * @param withSession
+		 * 		the session the frame was received on.
+		 */
+		@OnMessage
+		public void onMessage(final String withFrame, final Session withSession) {
+			final TwitchChatStub stub = TwitchChatStub.instance;
+			if (stub != null) {
+				stub.onFrame(withSession, withFrame);
+			}
+		}
+
+		/**
+		 * Callback hook for Connection close events.
+		 *
+		 * @param withSession
+		 * 		the session which is getting closed.
+		 */
+		@OnClose
+		public void onClose(final Session withSession) {
+			final TwitchChatStub stub = TwitchChatStub.instance;
+			if (stub != null) {
+				stub.connections.remove(withSession);
+			}
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package com.xenosnowfox.streamagrams.cluster;
+
+import com.xenosnowfox.streamagrams.persistence.DataSourceMigration;
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests claiming, renewing, stealing and expiring channel leases against an in-memory H2 database.
+ */
+class ChannelLeaseManagerTest {
+
+	/**
+	 * DataSource shared by the nodes under test.
+	 */
+	private JdbcDataSource dataSource;
+
+	/**
+	 * Query runner used to inspect and age leases.
+	 */
+	private QueryRunner queryRunner;
+
+	/**
+	 * Creates a fresh, migrated database for each test.
+	 */
+	@BeforeEach
+	void setUp() {
+		this.dataSource = new JdbcDataSource();
+		this.dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		DataSourceMigration.update(this.dataSource);
+		this.queryRunner = new QueryRunner(this.dataSource);
+	}
+
+	@Test
+	void fairSharesAddUpToChannelCount() {
+		final List<String> nodes = List.of("node-a", "node-b", "node-c", "node-d");
+		final List<Long> shares = new ArrayList<>();
+		for (String node : nodes) {
+			shares.add(ChannelLeaseManager.getFairShare(5, nodes, node));
+		}
+
+		assertEquals(List.of(2L, 1L, 1L, 1L), shares);
+		assertEquals(1, ChannelLeaseManager.getFairShare(5, List.of("node-a", "node-b", "node-c", "node-d"), "node-e"));
+		assertEquals(3, ChannelLeaseManager.getFairShare(3, List.of(), "node-a"));
+	}
+
+	@Test
+	void claimGrantsNewFencingToken() {
+		final ChannelLeaseManager node = ChannelLeaseManager.newInstance(this.dataSource, "node-a");
+		node.registerChannel("Alpha");
+		node.heartbeat();
+
+		assertEquals(Map.of("alpha", 1L), node.getOwnedChannels());
+		assertEquals("node-a", this.ownerOf("alpha"));
+	}
+
+	@Test
+	void renewKeepsLeaseAndToken() throws SQLException {
+		final ChannelLeaseManager node = ChannelLeaseManager.newInstance(this.dataSource, "node-a");
+		node.registerChannel("alpha");
+		node.heartbeat();
+		this.queryRunner.update("UPDATE `ChannelLease` SET EXPIRES_AT = DATEADD('MILLISECOND', 500, CURRENT_TIMESTAMP());");
+
+		node.heartbeat();
+
+		assertEquals(Map.of("alpha", 1L), node.getOwnedChannels());
+		assertTrue(this.queryRunner.<Number>query("SELECT COUNT(*) FROM `ChannelLease`"
+				+ " WHERE EXPIRES_AT > DATEADD('SECOND', 5, CURRENT_TIMESTAMP());", new ScalarHandler<>())
+				.longValue() > 0);
+	}
+
+	@Test
+	void unexpiredLeaseIsNotStolen() {
+		final ChannelLeaseManager first = ChannelLeaseManager.newInstance(this.dataSource, "node-a");
+		final ChannelLeaseManager second = ChannelLeaseManager.newInstance(this.dataSource, "node-b");
+		first.registerChannel("alpha");
+		first.registerChannel("beta");
+		first.heartbeat();
+
+		second.heartbeat();
+
+		assertEquals(2, first.getOwnedChannels()
+				.size());
+		assertTrue(second.getOwnedChannels()
+				.isEmpty());
+	}
+
+	@Test
+	void joiningNodeReceivesReleasedChannel() {
+		final ChannelLeaseManager first = ChannelLeaseManager.newInstance(this.dataSource, "node-a");
+		final ChannelLeaseManager second = ChannelLeaseManager.newInstance(this.dataSource, "node-b");
+		first.registerChannel("alpha");
+		first.registerChannel("beta");
+		first.heartbeat();
+		second.heartbeat();
+
+		first.heartbeat();
+		second.heartbeat();
+
+		assertEquals(Map.of("alpha", 1L), first.getOwnedChannels());
+		assertEquals(Map.of("beta", 2L), second.getOwnedChannels());
+	}
+
+	@Test
+	void expiredLeaseIsStolenAndOldOwnerIsFenced() throws SQLException {
+		final List<String> released = new ArrayList<>();
+		final ChannelLeaseManager first = ChannelLeaseManager.newInstance(this.dataSource, "node-a")
+				.withOwnershipListener(new ChannelOwnershipListener() {
+					@Override
+					public void onChannelAcquired(final String withChannelName, final long withFencingToken) {
+					}
+
+					@Override
+					public void onChannelReleased(final String withChannelName) {
+						released.add(withChannelName);
+					}
+				});
+		final ChannelLeaseManager second = ChannelLeaseManager.newInstance(this.dataSource, "node-b");
+		final ChannelRoundStateStore store = ChannelRoundStateStore.newInstance(this.dataSource);
+		first.registerChannel("alpha");
+		first.heartbeat();
+		assertTrue(store.save("Alpha", 1, "first"));
+
+		// node-a stops heart-beating and its lease runs out
+		this.queryRunner.update("UPDATE `ChannelLease` SET EXPIRES_AT = DATEADD('SECOND', -1, CURRENT_TIMESTAMP());");
+		this.queryRunner.update("UPDATE `ClusterNode` SET HEARTBEAT_AT = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP())"
+				+ " WHERE NODE_ID = 'node-a';");
+		second.heartbeat();
+
+		assertEquals(Map.of("alpha", 2L), second.getOwnedChannels());
+		assertFalse(store.save("alpha", 1, "stale"));
+		assertFalse(store.claimWinnerAnnouncement("alpha", "round-1", 1));
+		assertTrue(store.save("ALPHA", 2, "second"));
+		assertTrue(store.claimWinnerAnnouncement("alpha", "round-1", 2));
+		assertEquals("second", store.load("Alpha")
+				.orElseThrow());
+
+		first.heartbeat();
+
+		assertFalse(first.getOwnedChannels()
+				.containsKey("alpha"));
+		assertEquals(List.of("alpha"), released);
+		assertEquals("node-b", this.ownerOf("alpha"));
+	}
+
+	/**
+	 * Returns the node holding a channel's lease.
+	 *
+	 * @param withChannelName
+	 * 		channel key.
+	 * @return owner node identifier, or null.
+	 * @throws RuntimeException
+	 * 		if the lease could not be read.
+	 */
+	private String ownerOf(final String withChannelName) {
+		try {
+			return this.queryRunner.query("SELECT OWNER_NODE FROM `ChannelLease` WHERE CHANNEL = ?;"
+					, new ScalarHandler<String>(), withChannelName);
+		} catch (SQLException sqlException) {
+			throw new RuntimeException(sqlException);
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.xenosnowfox.streamagrams.dictionary;
+
+import com.xenosnowfox.streamagrams.utils.PropertiesUtils;
+import com.xenosnowfox.streamagrams.utils.ResourceUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests loading the word lists bundled on the classpath.
+ */
+class DictionaryLoaderTest {
+
+	@Test
+	void bundledDefaultLocaleLoads() throws IOException {
+		final Properties properties = PropertiesUtils.fromResources("application.properties");
+		final String directory = properties.getProperty("dictionary.directory");
+		final Locale locale = Locale.forLanguageTag(properties.getProperty("dictionary.defaultLocale"));
+
+		assertTrue(ResourceUtils.exists(directory + "/" + locale.toLanguageTag() + ".txt"));
+
+		final Dictionary dictionary = DictionaryLoader.fromResources(directory)
+				.load(locale, false);
+
+		assertTrue(dictionary.getWordCount() > 0);
+		assertTrue(dictionary.contains("Stream"));
+		assertEquals(3, dictionary.getAnagrams("master")
+				.size());
+	}
+
+	@Test
+	void missingLocaleIsRejected() {
+		final DictionaryLoader loader = DictionaryLoader.fromResources("/dictionaries");
+
+		assertThrows(IllegalArgumentException.class, () -> loader.load(Locale.forLanguageTag("xx"), false));
+	}
+}
@@ -0,0 +1,123 @@
+package com.xenosnowfox.streamagrams.persistence;
+
+import org.apache.commons.dbutils.QueryRunner;
+import org.apache.commons.dbutils.handlers.ScalarHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests exporting and importing the leaderboard against an in-memory H2 database.
+ */
+class LeaderboardTransferTest {
+
+	/**
+	 * Number of users exported, enough for the import to merge more than one chunk.
+	 */
+	private static final int USERS = 25_000;
+
+	/**
+	 * DataSource holding the leaderboard.
+	 */
+	private JdbcDataSource dataSource;
+
+	/**
+	 * Query runner used to seed and inspect the leaderboard.
+	 */
+	private QueryRunner queryRunner;
+
+	/**
+	 * Creates a fresh, migrated database for each test.
+	 */
+	@BeforeEach
+	void setUp() {
+		this.dataSource = new JdbcDataSource();
+		this.dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MYSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=100");
+		DataSourceMigration.update(this.dataSource);
+		this.queryRunner = new QueryRunner(this.dataSource);
+	}
+
+	@Test
+	void importRestoresExportAndBumpsVersion() throws IOException, SQLException {
+		final LeaderboardRepository repository = LeaderboardRepository.newInstance(this.dataSource);
+		repository.recordGuess("", true);
+		for (int i = 0; i < USERS; i++) {
+			repository.recordGuess(String.format("user%05d", i), i % 2 == 0);
+		}
+		final byte[] export = this.export();
+
+		this.queryRunner.update("DELETE FROM `Leaderboard`;");
+		repository.recordGuess("user00000", false);
+		final long version = repository.getVersion();
+
+		final TransferReport report = LeaderboardTransfer.importFrom(this.dataSource, new ByteArrayInputStream(export));
+
+		assertEquals(USERS + 1, report.getRows());
+		assertEquals(USERS + 1, this.count("SELECT COUNT(*) FROM `Leaderboard`;"));
+		assertEquals(USERS / 2 + 1, this.count("SELECT SUM(TOTAL_CORRECT_GUESSES) FROM `Leaderboard`;"));
+		assertEquals(1, this.count("SELECT TOTAL_GUESSES FROM `Leaderboard` WHERE USERNAME = 'user00000';"));
+		assertEquals(0, this.count("SELECT COUNT(*) FROM `LeaderboardImport`;"));
+		assertTrue(repository.getVersion() > version);
+	}
+
+	@Test
+	void secondImportFailsWhileOneIsRunning() throws IOException, SQLException {
+		LeaderboardRepository.newInstance(this.dataSource)
+				.recordGuess("alpha", true);
+		final byte[] export = this.export();
+
+		try (Connection connection = this.dataSource.getConnection()) {
+			connection.setAutoCommit(false);
+			try (Statement statement = connection.createStatement();
+					ResultSet ignored = statement.executeQuery("SELECT ID FROM `LeaderboardImportLock`"
+							+ " WHERE ID = 0 FOR UPDATE;")) {
+				assertThrows(RuntimeException.class, () -> LeaderboardTransfer.importFrom(this.dataSource
+						, new ByteArrayInputStream(export)));
+			} finally {
+				connection.rollback();
+			}
+		}
+
+		LeaderboardTransfer.importFrom(this.dataSource, new ByteArrayInputStream(export));
+	}
+
+	/**
+	 * Exports the leaderboard.
+	 *
+	 * @return exported bytes.
+	 * @throws IOException
+	 * 		if the export failed.
+	 */
+	private byte[] export() throws IOException {
+		final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		LeaderboardTransfer.exportTo(this.dataSource, outputStream);
+		return outputStream.toByteArray();
+	}
+
+	/**
+	 * Runs a query returning a single number.
+	 *
+	 * @param withSql
+	 * 		query.
+	 * @return result.
+	 * @throws SQLException
+	 * 		if the query failed.
+	 */
+	private long count(final String withSql) throws SQLException {
+		return this.queryRunner.<Number>query(withSql, new ScalarHandler<>())
+				.longValue();
+	}
+}